@@ -0,0 +1,103 @@
+package com.whh.springboot3.lucene.benchmark;
+
+import com.alibaba.fastjson2.JSON;
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.index.IndexAuthor;
+import com.whh.springboot3.lucene.index.IndexWriterService;
+import com.whh.springboot3.lucene.schema.SchemaRegistry;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * @Author wanghonghui
+ * @Description 基准测试数据：读取 authors.tang.json，按倍数复制放大，主键加后缀保证唯一
+ * @Date 2026/10/17 18:00
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static List<Author> authors(int multiplier) throws IOException {
+        List<Author> source;
+        try (InputStream in = Objects.requireNonNull(BenchmarkData.class.getResourceAsStream("/data/authors.tang.json"))) {
+            source = JSON.parseArray(in.readAllBytes(), Author.class);
+        }
+        List<Author> authors = new ArrayList<>(source.size() * multiplier);
+        for (int i = 0; i < multiplier; i++) {
+            for (Author author : source) {
+                authors.add(new Author()
+                        .setId(i == 0 ? author.getId() : author.getId() + "-" + i)
+                        .setName(author.getName())
+                        .setDesc(author.getDesc()));
+            }
+        }
+        return authors;
+    }
+
+    /**
+     * 放大后的数据序列化成 JSON 数组，导入时按流读取，和接口导入走同一条路径
+     */
+    static byte[] authorsJson(int multiplier) throws IOException {
+        return JSON.toJSONBytes(authors(multiplier));
+    }
+
+    /**
+     * 在临时目录中打开 writer，测试时关闭自动分组提交的影响：提交间隔和未提交上限都放大
+     */
+    static IndexWriterService openWriter(Path dir) throws IOException {
+        return openWriter(dir, properties());
+    }
+
+    static IndexWriterService openWriter(Path dir, LuceneProperties properties) throws IOException {
+        return new IndexWriterService(dir, SchemaRegistry.of(Author.class), properties);
+    }
+
+    /**
+     * 基准测试用的配置，可以在此基础上修改后传给 openWriter
+     */
+    static LuceneProperties properties() {
+        LuceneProperties properties = new LuceneProperties();
+        properties.getWriter().setCommitIntervalMs(60_000);
+        properties.getWriter().setMaxPendingDocs(Integer.MAX_VALUE);
+        return properties;
+    }
+
+    /**
+     * 建好一份完整索引，查询类基准共用
+     */
+    static IndexWriterService buildIndex(Path dir, byte[] json) throws IOException {
+        IndexWriterService writerService = openWriter(dir);
+        new IndexAuthor(writerService).indexAuthors(new ByteArrayInputStream(json), true);
+        writerService.getSearcherManager().maybeRefreshBlocking();
+        return writerService;
+    }
+
+    static void delete(Path dir) {
+        if (dir == null || !Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.whh.springboot3.lucene.benchmark;
+
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.schema.SchemaRegistry;
+import com.whh.springboot3.lucene.search.AbstractSearch;
+import com.whh.springboot3.lucene.search.IndexSearcherManager;
+import com.whh.springboot3.lucene.search.base.LuceneQueryBuilder;
+import org.apache.lucene.search.Query;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * @Author wanghonghui
+ * @Description 基准测试用的搜索，查询由调用方通过 LuceneQueryBuilder 构造，每次搜索都重新构造
+ * @Date 2026/10/17 18:05
+ */
+class BenchmarkSearch extends AbstractSearch<Author> {
+
+    private final UnaryOperator<LuceneQueryBuilder> query;
+
+    private final String[] highlightFields;
+
+    BenchmarkSearch(IndexSearcherManager searcherManager, UnaryOperator<LuceneQueryBuilder> query, String... highlightFields) {
+        super(searcherManager, SchemaRegistry.of(Author.class));
+        this.query = query;
+        this.highlightFields = highlightFields;
+    }
+
+    @Override
+    public Query getQuery(String searchContent, String searchField) {
+        return query.apply(new LuceneQueryBuilder(getSchema())).queryBuilder.build();
+    }
+
+    @Override
+    public String[] getHighlightFields() {
+        return highlightFields;
+    }
+}
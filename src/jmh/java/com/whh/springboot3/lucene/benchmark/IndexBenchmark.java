@@ -0,0 +1,117 @@
+package com.whh.springboot3.lucene.benchmark;
+
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.index.IndexAuthor;
+import com.whh.springboot3.lucene.index.IndexWriterService;
+import com.whh.springboot3.lucene.index.IndexWriterService.Durability;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author wanghonghui
+ * @Description 写入基准：整批流式导入的耗时，以及单条写入在不同持久化等级下的延迟
+ * @Date 2026/10/17 18:10
+ */
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class IndexBenchmark {
+
+    /**
+     * 整批导入，每次迭代在新的空目录上从头导入，结果为导入 + 提交的总耗时
+     */
+    @State(Scope.Benchmark)
+    public static class BulkState {
+
+        @Param({"1", "10"})
+        public int multiplier;
+
+        byte[] json;
+
+        Path dir;
+
+        IndexWriterService writerService;
+
+        IndexAuthor indexAuthor;
+
+        @Setup(Level.Trial)
+        public void load() throws IOException {
+            json = BenchmarkData.authorsJson(multiplier);
+        }
+
+        @Setup(Level.Iteration)
+        public void open() throws IOException {
+            dir = Files.createTempDirectory("lucene-bench-bulk");
+            writerService = BenchmarkData.openWriter(dir);
+            indexAuthor = new IndexAuthor(writerService);
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() throws IOException {
+            writerService.close();
+            BenchmarkData.delete(dir);
+        }
+    }
+
+    /**
+     * 单条写入，索引中先放一份基础数据
+     */
+    @State(Scope.Benchmark)
+    public static class SingleState {
+
+        @Param({"NONE", "VISIBLE"})
+        public Durability durability;
+
+        List<Author> authors;
+
+        Path dir;
+
+        IndexWriterService writerService;
+
+        IndexAuthor indexAuthor;
+
+        int next;
+
+        @Setup(Level.Trial)
+        public void open() throws IOException {
+            authors = BenchmarkData.authors(1);
+            dir = Files.createTempDirectory("lucene-bench-single");
+            writerService = BenchmarkData.buildIndex(dir, BenchmarkData.authorsJson(1));
+            indexAuthor = new IndexAuthor(writerService);
+            indexAuthor.setDurability(durability);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            writerService.close();
+            BenchmarkData.delete(dir);
+        }
+
+        Author nextAuthor() {
+            Author source = authors.get(next % authors.size());
+            return new Author().setId("single-" + next++).setName(source.getName()).setDesc(source.getDesc());
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public void bulkIndex(BulkState state) throws IOException {
+        state.indexAuthor.indexAuthors(new ByteArrayInputStream(state.json), true);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 5)
+    @Measurement(iterations = 5, time = 5)
+    public void addSingle(SingleState state) throws IOException {
+        state.indexAuthor.indexAuthor(state.nextAuthor());
+    }
+}
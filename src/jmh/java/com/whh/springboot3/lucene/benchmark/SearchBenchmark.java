@@ -0,0 +1,167 @@
+package com.whh.springboot3.lucene.benchmark;
+
+import com.whh.springboot3.lucene.Cons;
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.index.IndexWriterService;
+import com.whh.springboot3.lucene.search.base.HighlightMode;
+import com.whh.springboot3.lucene.search.base.LuceneQueryBuilder;
+import com.whh.springboot3.lucene.search.base.PageResult;
+import com.whh.springboot3.lucene.search.base.SearchRequest;
+import com.whh.springboot3.lucene.search.base.SearchResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * @Author wanghonghui
+ * @Description 查询基准：各类查询、浅分页和深分页（页码 / 游标）、每页高亮的开销；不启用结果缓存
+ * @Date 2026/10/17 18:20
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SearchBenchmark {
+
+    /**
+     * 深分页翻到的页码
+     */
+    private static final int DEEP_PAGE = 200;
+
+    @State(Scope.Benchmark)
+    public static class IndexState {
+
+        @Param({"10"})
+        public int multiplier;
+
+        Path dir;
+
+        IndexWriterService writerService;
+
+        @Setup(Level.Trial)
+        public void open() throws IOException {
+            dir = Files.createTempDirectory("lucene-bench-search");
+            writerService = BenchmarkData.buildIndex(dir, BenchmarkData.authorsJson(multiplier));
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            writerService.close();
+            BenchmarkData.delete(dir);
+        }
+    }
+
+    /**
+     * 各类查询，只取主键，排除读取存储字段和高亮的影响
+     */
+    @State(Scope.Benchmark)
+    public static class QueryState {
+
+        @Param({"term", "phrase", "prefix", "wildcard", "fuzzy", "range"})
+        public String queryType;
+
+        BenchmarkSearch search;
+
+        SearchRequest request;
+
+        @Setup(Level.Trial)
+        public void setup(IndexState index) {
+            UnaryOperator<LuceneQueryBuilder> query = switch (queryType) {
+                case "term" -> b -> b.term(Cons.AUTHOR_DESC, "詩");
+                case "phrase" -> b -> b.phrase(Cons.AUTHOR_DESC, "進士".split(""));
+                case "prefix" -> b -> b.prefix(Cons.AUTHOR_NAME, "李");
+                case "wildcard" -> b -> b.wildcard(Cons.AUTHOR_NAME, "王?");
+                case "fuzzy" -> b -> b.fuzzy(Cons.AUTHOR_NAME, "李白");
+                case "range" -> b -> b.termRange(Cons.AUTHOR_ID, "0", "8");
+                default -> throw new IllegalArgumentException("未知的查询类型: " + queryType);
+            };
+            search = new BenchmarkSearch(index.writerService.getSearcherManager(), query);
+            request = new SearchRequest().setIdsOnly(true);
+        }
+    }
+
+    /**
+     * 浅分页、按页码深分页、按游标深分页
+     */
+    @State(Scope.Benchmark)
+    public static class PagingState {
+
+        @Param({"shallow", "deep_offset", "deep_cursor"})
+        public String paging;
+
+        BenchmarkSearch search;
+
+        SearchRequest request;
+
+        @Setup(Level.Trial)
+        public void setup(IndexState index) throws Exception {
+            search = new BenchmarkSearch(index.writerService.getSearcherManager(), b -> b.term(Cons.AUTHOR_DESC, "人"));
+            request = new SearchRequest().setIdsOnly(true);
+            switch (paging) {
+                case "shallow" -> request.setPageNumber(1);
+                case "deep_offset" -> request.setPageNumber(DEEP_PAGE);
+                case "deep_cursor" -> {
+                    // 先按游标翻到目标页的前一页，基准只测最后一页
+                    String after = "";
+                    for (int page = 1; page < DEEP_PAGE && after != null; page++) {
+                        after = search.search(request.setAfter(after)).getAfter();
+                    }
+                    if (after == null) {
+                        throw new IllegalStateException("命中数不足 " + DEEP_PAGE + " 页，请调大 multiplier");
+                    }
+                    request.setAfter(after);
+                }
+                default -> throw new IllegalArgumentException("未知的分页方式: " + paging);
+            }
+        }
+    }
+
+    /**
+     * 同一查询不同每页条数、不同高亮方式，比较 NONE 和其它方式的差值除以每页条数即每条高亮的开销
+     */
+    @State(Scope.Benchmark)
+    public static class HighlightState {
+
+        @Param({"NONE", "PLAIN", "UNIFIED"})
+        public String highlight;
+
+        @Param({"10", "50"})
+        public int pageSize;
+
+        BenchmarkSearch search;
+
+        SearchRequest request;
+
+        @Setup(Level.Trial)
+        public void setup(IndexState index) {
+            UnaryOperator<LuceneQueryBuilder> query = b -> b.phrase(Cons.AUTHOR_DESC, "進士".split(""));
+            if ("NONE".equals(highlight)) {
+                search = new BenchmarkSearch(index.writerService.getSearcherManager(), query);
+            } else {
+                search = new BenchmarkSearch(index.writerService.getSearcherManager(), query, Cons.AUTHOR_NAME, Cons.AUTHOR_DESC);
+                search.setHighlightMode(HighlightMode.valueOf(highlight));
+            }
+            request = new SearchRequest().setPageSize(pageSize);
+        }
+    }
+
+    @Benchmark
+    public PageResult<SearchResult<Author>> query(QueryState state) throws Exception {
+        return state.search.search(state.request);
+    }
+
+    @Benchmark
+    public PageResult<SearchResult<Author>> paging(PagingState state) throws Exception {
+        return state.search.search(state.request);
+    }
+
+    @Benchmark
+    public PageResult<SearchResult<Author>> highlight(HighlightState state) throws Exception {
+        return state.search.search(state.request);
+    }
+}
@@ -0,0 +1,196 @@
+package com.whh.springboot3.lucene.benchmark;
+
+import com.alibaba.fastjson2.JSON;
+import com.whh.springboot3.lucene.Cons;
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.index.IndexAuthor;
+import com.whh.springboot3.lucene.index.IndexWriterService;
+import com.whh.springboot3.lucene.index.VectorCodec;
+import com.whh.springboot3.lucene.schema.SchemaRegistry;
+import com.whh.springboot3.lucene.schema.VectorFieldSchema;
+import com.whh.springboot3.lucene.search.IndexSearcherManager;
+import com.whh.springboot3.lucene.search.base.LuceneQueryBuilder;
+import org.apache.lucene.index.FloatVectorValues;
+import org.apache.lucene.index.KnnVectorValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.util.Bits;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author wanghonghui
+ * @Description 向量检索基准：不同量化方式下 HNSW 近似检索和暴力精确检索的延迟，建好索引后先输出近似检索的召回率。
+ * 向量是随机生成的，随机高维向量没有聚类结构，召回率比真实模型生成的向量偏低，只用于比较不同配置
+ * @Date 2026/10/17 23:40
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class VectorBenchmark {
+
+    private static final int K = 10;
+
+    private static final int QUERIES = 100;
+
+    @State(Scope.Benchmark)
+    public static class VectorState {
+
+        @Param({"10"})
+        public int multiplier;
+
+        @Param({"128"})
+        public int dimension;
+
+        @Param({"NONE", "INT8", "INT4"})
+        public String quantization;
+
+        Path dir;
+
+        IndexWriterService writerService;
+
+        LuceneQueryBuilder builder;
+
+        VectorFieldSchema<Author> field;
+
+        float[][] queries;
+
+        int next;
+
+        @Setup(Level.Trial)
+        public void open() throws IOException {
+            dir = Files.createTempDirectory("lucene-bench-vector");
+            Random random = new Random(42);
+            List<Author> authors = BenchmarkData.authors(multiplier);
+            for (Author author : authors) {
+                author.setDescVector(randomVector(random, dimension));
+            }
+            LuceneProperties properties = BenchmarkData.properties();
+            properties.getWriter().getVector().setQuantization(VectorCodec.Quantization.valueOf(quantization));
+            writerService = BenchmarkData.openWriter(dir, properties);
+            new IndexAuthor(writerService).indexAuthors(new ByteArrayInputStream(JSON.toJSONBytes(authors)), true);
+            writerService.getSearcherManager().maybeRefreshBlocking();
+
+            builder = new LuceneQueryBuilder(SchemaRegistry.of(Author.class));
+            field = SchemaRegistry.of(Author.class).vectorField(Cons.AUTHOR_DESC_VECTOR);
+            queries = new float[QUERIES][];
+            for (int i = 0; i < QUERIES; i++) {
+                queries[i] = randomVector(random, dimension);
+            }
+            System.out.printf("%nquantization=%s recall@%d=%.4f%n", quantization, K, recall());
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            writerService.close();
+            BenchmarkData.delete(dir);
+        }
+
+        float[] nextQuery() {
+            return queries[next++ % QUERIES];
+        }
+
+        /**
+         * 近似检索前 K 条中也在精确前 K 条里的比例，对所有查询取平均
+         */
+        private double recall() throws IOException {
+            IndexSearcherManager searcherManager = writerService.getSearcherManager();
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                long found = 0;
+                for (float[] query : queries) {
+                    Set<Integer> expected = new HashSet<>();
+                    for (ScoreDoc scoreDoc : exact(searcher, this, query).scoreDocs) {
+                        expected.add(scoreDoc.doc);
+                    }
+                    for (ScoreDoc scoreDoc : approximate(searcher, this, query).scoreDocs) {
+                        if (expected.contains(scoreDoc.doc)) {
+                            found++;
+                        }
+                    }
+                }
+                return (double) found / ((long) QUERIES * K);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        }
+    }
+
+    private static float[] randomVector(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static TopDocs approximate(IndexSearcher searcher, VectorState state, float[] query) throws IOException {
+        return searcher.search(state.builder.knnQuery(Cons.AUTHOR_DESC_VECTOR, query, K, null), K);
+    }
+
+    /**
+     * 暴力计算和每个文档原始向量的相似度，量化格式也保留了原始向量
+     */
+    private static TopDocs exact(IndexSearcher searcher, VectorState state, float[] query) throws IOException {
+        float[] target = state.field.prepare(query);
+        PriorityQueue<ScoreDoc> heap = new PriorityQueue<>(K + 1, Comparator.comparingDouble((ScoreDoc scoreDoc) -> scoreDoc.score));
+        for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+            FloatVectorValues values = leaf.reader().getFloatVectorValues(Cons.AUTHOR_DESC_VECTOR);
+            if (values == null) {
+                continue;
+            }
+            Bits liveDocs = leaf.reader().getLiveDocs();
+            KnnVectorValues.DocIndexIterator iterator = values.iterator();
+            for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+                if (liveDocs != null && !liveDocs.get(doc)) {
+                    continue;
+                }
+                float score = state.field.getSimilarity().compare(target, values.vectorValue(iterator.index()));
+                heap.offer(new ScoreDoc(leaf.docBase + doc, score));
+                if (heap.size() > K) {
+                    heap.poll();
+                }
+            }
+        }
+        ScoreDoc[] top = new ScoreDoc[heap.size()];
+        for (int i = top.length - 1; i >= 0; i--) {
+            top[i] = heap.poll();
+        }
+        return new TopDocs(new TotalHits(top.length, TotalHits.Relation.EQUAL_TO), top);
+    }
+
+    @Benchmark
+    public TopDocs approximate(VectorState state) throws IOException {
+        IndexSearcherManager searcherManager = state.writerService.getSearcherManager();
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            return approximate(searcher, state, state.nextQuery());
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    @Benchmark
+    public TopDocs exact(VectorState state) throws IOException {
+        IndexSearcherManager searcherManager = state.writerService.getSearcherManager();
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            return exact(searcher, state, state.nextQuery());
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+}
@@ -10,7 +10,10 @@ public class Cons {
 
     public static final int PAGE_SIZE = 15;
 
+    public static final int TOTAL_HITS_THRESHOLD = 10000;
+
     public static final String AUTHOR_ID = "id";
     public static final String AUTHOR_NAME = "name";
     public static final String AUTHOR_DESC = "desc";
+    public static final String AUTHOR_DESC_VECTOR = "desc_vector";
 }
@@ -0,0 +1,122 @@
+package com.whh.springboot3.lucene.config;
+
+import com.whh.springboot3.lucene.Cons;
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.index.IndexWriterService;
+import com.whh.springboot3.lucene.replication.IndexReplicator;
+import com.whh.springboot3.lucene.replication.ReplicaMonitor;
+import com.whh.springboot3.lucene.search.IndexSearcherManager;
+import com.whh.springboot3.lucene.search.QueryCacheMetrics;
+import com.whh.springboot3.lucene.schema.SchemaRegistry;
+import com.whh.springboot3.lucene.search.SearchAdmission;
+import com.whh.springboot3.lucene.search.SearchMetrics;
+import com.whh.springboot3.lucene.search.SearchResultCache;
+import com.whh.springboot3.lucene.suggest.FieldSuggester;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * @Author wanghonghui
+ * @Description lucene 组件装配
+ * @Date 2026/10/17 10:15
+ */
+@Configuration
+@EnableConfigurationProperties(LuceneProperties.class)
+public class LuceneConfig {
+
+    /**
+     * 应用级单例 writer，随应用关闭时做最后一次提交；只读副本上不创建
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "lucene.replication", name = "role", havingValue = "primary", matchIfMissing = true)
+    public IndexWriterService indexWriterService(LuceneProperties properties, MeterRegistry meterRegistry) throws IOException {
+        return new IndexWriterService(Paths.get(properties.getIndex().getPath()), SchemaRegistry.of(Author.class), properties, meterRegistry);
+    }
+
+    /**
+     * 全局共享的 NRT 搜索器管理器，由 writer 负责关闭
+     */
+    @Bean(destroyMethod = "")
+    @ConditionalOnProperty(prefix = "lucene.replication", name = "role", havingValue = "primary", matchIfMissing = true)
+    public IndexSearcherManager indexSearcherManager(IndexWriterService indexWriterService) {
+        return indexWriterService.getSearcherManager();
+    }
+
+    /**
+     * 只读副本的搜索器，只读打开由主实例复制过来的索引目录，按 refresh-interval-ms 定时切换到新提交
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "lucene.replication", name = "role", havingValue = "replica")
+    public IndexSearcherManager replicaSearcherManager(LuceneProperties properties) throws IOException {
+        return new IndexSearcherManager(Paths.get(properties.getIndex().getPath()), properties.getSearcher(),
+                Math.max(1, properties.getIndex().getShards()), properties.getIndex().getPreloadExtensions());
+    }
+
+    /**
+     * 把新段推送到配置的副本目录，没有配置副本时不启动
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "lucene.replication", name = "role", havingValue = "primary", matchIfMissing = true)
+    public IndexReplicator indexReplicator(IndexWriterService indexWriterService, LuceneProperties properties,
+                                           MeterRegistry meterRegistry) throws IOException {
+        return new IndexReplicator(indexWriterService, properties, meterRegistry);
+    }
+
+    /**
+     * 只读副本正在使用的提交，由 actuator 自动注册指标
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "lucene.replication", name = "role", havingValue = "replica")
+    public ReplicaMonitor replicaMonitor(IndexSearcherManager indexSearcherManager) {
+        return new ReplicaMonitor(indexSearcherManager);
+    }
+
+    /**
+     * 搜索结果缓存
+     */
+    @Bean
+    public SearchResultCache searchResultCache(IndexSearcherManager indexSearcherManager, LuceneProperties properties,
+                                               MeterRegistry meterRegistry) {
+        SearchResultCache cache = new SearchResultCache(indexSearcherManager, properties.getSearcher().getResultCache());
+        cache.bindTo(meterRegistry);
+        return cache;
+    }
+
+    /**
+     * 作者名前缀补全
+     */
+    @Bean(destroyMethod = "close")
+    public FieldSuggester authorNameSuggester(IndexSearcherManager indexSearcherManager, LuceneProperties properties) throws IOException {
+        return new FieldSuggester(indexSearcherManager, Cons.AUTHOR_NAME, properties.getSuggest());
+    }
+
+    /**
+     * 搜索各阶段耗时和慢查询日志
+     */
+    @Bean
+    public SearchMetrics searchMetrics(LuceneProperties properties, MeterRegistry meterRegistry) {
+        return new SearchMetrics(meterRegistry, properties.getSearcher().getSlowLog());
+    }
+
+    /**
+     * 搜索准入控制，所有搜索共享同一组许可
+     */
+    @Bean
+    public SearchAdmission searchAdmission(LuceneProperties properties, MeterRegistry meterRegistry) {
+        return new SearchAdmission(properties.getSearcher().getAdmission(), meterRegistry);
+    }
+
+    /**
+     * 查询缓存统计，由 actuator 自动注册
+     */
+    @Bean
+    public QueryCacheMetrics queryCacheMetrics(IndexSearcherManager indexSearcherManager) {
+        return new QueryCacheMetrics(indexSearcherManager.getQueryCache());
+    }
+}
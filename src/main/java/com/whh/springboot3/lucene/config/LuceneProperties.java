@@ -0,0 +1,450 @@
+package com.whh.springboot3.lucene.config;
+
+import com.whh.springboot3.lucene.Cons;
+import com.whh.springboot3.lucene.index.VectorCodec;
+import com.whh.springboot3.lucene.replication.IndexReplicator;
+import com.whh.springboot3.lucene.search.ConcurrentSearcherFactory;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @Author wanghonghui
+ * @Description lucene 相关配置，对应 application.yml 中的 lucene.*
+ * @Date 2026/10/17 10:12
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "lucene")
+public class LuceneProperties {
+
+    /**
+     * 索引目录配置
+     */
+    private Index index = new Index();
+
+    /**
+     * 启动预热配置
+     */
+    private Warmup warmup = new Warmup();
+
+    /**
+     * 搜索器配置
+     */
+    private Searcher searcher = new Searcher();
+
+    /**
+     * 补全配置
+     */
+    private Suggest suggest = new Suggest();
+
+    /**
+     * 写入配置
+     */
+    private Writer writer = new Writer();
+
+    /**
+     * 段复制配置
+     */
+    private Replication replication = new Replication();
+
+    @Getter
+    @Setter
+    public static class Replication {
+        /**
+         * 实例角色：primary 负责写入并把新段推送到副本目录，replica 只读打开 index.path，
+         * 不创建 writer，也不提供写入接口
+         */
+        private IndexReplicator.Role role = IndexReplicator.Role.PRIMARY;
+
+        /**
+         * 副本索引目录，只在 primary 上生效，为空时不复制；多分片时副本目录下同样按 shard-N 分子目录
+         */
+        private List<String> targets = new ArrayList<>();
+
+        /**
+         * 检查新提交并复制的间隔（毫秒）
+         */
+        private long intervalMs = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class Index {
+        /**
+         * 索引目录
+         */
+        private String path = Cons.INDEX_PATH;
+
+        /**
+         * 分片数，大于 1 时每个分片一个子目录（shard-0、shard-1 ...）和一个 writer，
+         * 文档按主键哈希路由，搜索并发访问所有分片；修改后需要重建索引
+         */
+        private int shards = 1;
+
+        /**
+         * 打开时预读进页缓存的文件扩展名，如 tim、tip、doc、dvd；为空时不预读
+         */
+        private List<String> preloadExtensions = new ArrayList<>();
+    }
+
+    @Getter
+    @Setter
+    public static class Warmup {
+        /**
+         * 是否在接收流量前预热
+         */
+        private boolean enabled = true;
+
+        /**
+         * 预热查询，格式为 "字段:搜索词"，没有字段时使用 defaultField
+         */
+        private List<String> queries = new ArrayList<>();
+
+        /**
+         * 预热查询文件，每行一条，格式同 queries，为空时不读取
+         */
+        private String queriesFile;
+
+        /**
+         * 没有指定字段时的搜索字段
+         */
+        private String defaultField = Cons.AUTHOR_DESC;
+
+        /**
+         * 所有查询重复执行的轮数，轮数越多热点代码越可能被 JIT 编译
+         */
+        private int rounds = 3;
+    }
+
+    @Getter
+    @Setter
+    public static class Suggest {
+        /**
+         * 最多收录的取值数，超过时只保留出现次数最多的，限制补全器的内存占用
+         */
+        private int maxEntries = 1_000_000;
+
+        /**
+         * reader 刷新后重建补全器的检查间隔（毫秒）
+         */
+        private long rebuildIntervalMs = 5000;
+    }
+
+    @Getter
+    @Setter
+    public static class Searcher {
+        /**
+         * 定时刷新间隔（毫秒），小于等于 0 时不定时刷新
+         */
+        private long refreshIntervalMs = 1000;
+
+        /**
+         * 有调用方等待写入可见时，两次 NRT 刷新之间的最小间隔（毫秒）
+         */
+        private long nrtMinStaleMs = 20;
+
+        /**
+         * 单个查询内的并行配置
+         */
+        private Concurrency concurrency = new Concurrency();
+
+        /**
+         * 搜索结果缓存配置
+         */
+        private ResultCache resultCache = new ResultCache();
+
+        /**
+         * 过滤条件的查询缓存配置
+         */
+        private QueryCache queryCache = new QueryCache();
+
+        /**
+         * 慢查询日志配置
+         */
+        private SlowLog slowLog = new SlowLog();
+
+        /**
+         * 单次查询的时间和开销限制
+         */
+        private Limits limits = new Limits();
+
+        /**
+         * 并发搜索数限制（准入控制）
+         */
+        private Admission admission = new Admission();
+    }
+
+    @Getter
+    @Setter
+    public static class Limits {
+        /**
+         * 收集命中的时间预算（毫秒），超时后返回已收集到的部分结果并标记 partial，小于等于 0 时不限制
+         */
+        private long timeoutMs = 2000;
+
+        /**
+         * 按页码翻页时 页码 * 每页大小 的上限，超过后要求改用游标翻页，小于等于 0 时不限制
+         */
+        private int maxResultWindow = 10000;
+
+        /**
+         * 是否允许以通配符开头的查询，这类查询要遍历字段的全部词项
+         */
+        private boolean allowLeadingWildcard = false;
+
+        /**
+         * 前缀、通配符查询最多展开的词项数，超出时按字典序保留前面的词项
+         */
+        private int maxExpansions = 1024;
+
+        /**
+         * 模糊查询最多展开的词项数
+         */
+        private int fuzzyMaxExpansions = 50;
+
+        /**
+         * 模糊查询必须完全匹配的前缀长度，越长需要遍历的词项越少
+         */
+        private int fuzzyPrefixLength = 1;
+
+        /**
+         * 词长小于该值时模糊查询的编辑距离最多为 1，短词编辑距离为 2 时几乎能匹配所有词项
+         */
+        private int fuzzyMinLengthForTwoEdits = 5;
+
+        /**
+         * 一次批量搜索最多包含的查询数，小于等于 0 不限制
+         */
+        private int maxMultiSearch = 50;
+    }
+
+    @Getter
+    @Setter
+    public static class Admission {
+        /**
+         * 同时执行的搜索数上限，小于等于 0 时不限制
+         */
+        private int maxConcurrent = Runtime.getRuntime().availableProcessors() * 2;
+
+        /**
+         * 排队等待的搜索数上限，超过后直接拒绝
+         */
+        private int maxQueued = 100;
+
+        /**
+         * 排队等待的最长时间（毫秒），超过后拒绝
+         */
+        private long maxWaitMs = 200;
+    }
+
+    @Getter
+    @Setter
+    public static class QueryCache {
+        /**
+         * 是否缓存，关闭后所有搜索器都不使用查询缓存
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最多缓存的查询数
+         */
+        private int maxQueries = 1000;
+
+        /**
+         * 缓存的位图最多占用的内存（MB）
+         */
+        private long maxSizeMb = 64;
+
+        /**
+         * 文档数小于该值的段不缓存，小段重新计算的代价很低
+         */
+        private int minSegmentDocs = 10000;
+
+        /**
+         * 过滤条件的代价超过主查询的该倍数时不缓存，避免为了缓存而遍历整个过滤条件
+         */
+        private float skipCacheFactor = 10;
+
+        /**
+         * 缓存策略
+         */
+        private ConcurrentSearcherFactory.CachingPolicy policy = ConcurrentSearcherFactory.CachingPolicy.USAGE_TRACKING;
+    }
+
+    @Getter
+    @Setter
+    public static class SlowLog {
+        /**
+         * 总耗时超过该值（毫秒）的查询记录改写后的查询和各阶段耗时，小于等于 0 时不记录
+         */
+        private long thresholdMs = 500;
+    }
+
+    @Getter
+    @Setter
+    public static class ResultCache {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+
+        /**
+         * 缓存占用内存上限（MB，按结果内容估算）
+         */
+        private long maxSizeMb = 64;
+
+        /**
+         * 写入后多久过期（秒），小于等于 0 时只在 reader 刷新时失效
+         */
+        private long expireAfterWriteSeconds = 0;
+    }
+
+    @Getter
+    @Setter
+    public static class Concurrency {
+        /**
+         * 执行器类型，NONE 时所有段顺序搜索
+         */
+        private ConcurrentSearcherFactory.ExecutorType executor = ConcurrentSearcherFactory.ExecutorType.NONE;
+
+        /**
+         * FORK_JOIN 的并行度
+         */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * 每个 slice 最多包含的文档数
+         */
+        private int maxDocsPerSlice = 250_000;
+
+        /**
+         * 每个 slice 最多包含的段数
+         */
+        private int maxSegmentsPerSlice = 5;
+    }
+
+    @Getter
+    @Setter
+    public static class Writer {
+        /**
+         * 内存缓冲大小（MB）
+         */
+        private double ramBufferSizeMb = 256.0;
+
+        /**
+         * 分组提交的时间间隔（毫秒）
+         */
+        private long commitIntervalMs = 1000;
+
+        /**
+         * 未提交文档数达到该值时立即提交
+         */
+        private int maxPendingDocs = 10000;
+
+        /**
+         * 索引排序字段（需要 doc values），为空时不排序；修改后需要重建索引
+         */
+        private String indexSortField;
+
+        /**
+         * 索引排序是否降序
+         */
+        private boolean indexSortReverse = false;
+
+        /**
+         * 段合并配置
+         */
+        private Merge merge = new Merge();
+
+        /**
+         * 批量导入模式配置
+         */
+        private BulkLoad bulkLoad = new BulkLoad();
+
+        /**
+         * 向量字段的建图和量化配置
+         */
+        private Vector vector = new Vector();
+    }
+
+    @Getter
+    @Setter
+    public static class Vector {
+        /**
+         * HNSW 每个节点的最大邻居数，越大召回率越高、图越大
+         */
+        private int maxConn = 16;
+
+        /**
+         * 建图时的候选队列大小，越大图质量越好、写入越慢
+         */
+        private int beamWidth = 100;
+
+        /**
+         * 量化方式，量化后检索使用量化向量，原始向量仍保留在磁盘上用于合并
+         */
+        private VectorCodec.Quantization quantization = VectorCodec.Quantization.NONE;
+    }
+
+    @Getter
+    @Setter
+    public static class Merge {
+        /**
+         * 每层允许的段数，越大合并越少、段越多
+         */
+        private double segmentsPerTier = 10;
+
+        /**
+         * 合并产生的最大段（MB）
+         */
+        private double maxMergedSegmentMb = 5 * 1024;
+
+        /**
+         * 小于该值（MB）的段按该值计算，避免大量极小的段
+         */
+        private double floorSegmentMb = 16;
+
+        /**
+         * 允许的已删除文档比例（%），超过后优先合并删除多的段
+         */
+        private double deletesPctAllowed = 20;
+
+        /**
+         * 合并线程数，小于等于 0 时按 CPU 核数和磁盘类型自动决定
+         */
+        private int maxThreads = 0;
+
+        /**
+         * 允许排队的合并数，超过后写入线程会被阻塞，需要不小于 maxThreads；小于等于 0 时自动决定
+         */
+        private int maxMerges = 0;
+
+        /**
+         * 是否按合并积压情况自动限制合并的写盘速度
+         */
+        private boolean autoIoThrottle = true;
+    }
+
+    @Getter
+    @Setter
+    public static class BulkLoad {
+        /**
+         * 批量导入期间的内存缓冲大小（MB），各分片平分
+         */
+        private double ramBufferSizeMb = 1024.0;
+
+        /**
+         * 批量导入期间是否暂停合并，结束后再统一合并
+         */
+        private boolean deferMerges = true;
+
+        /**
+         * 结束后强制合并到的段数，小于等于 0 时不强制合并，只按合并策略合并
+         */
+        private int forceMergeSegments = 0;
+    }
+}
@@ -0,0 +1,88 @@
+package com.whh.springboot3.lucene.controller;
+
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.index.IndexAuthor;
+import com.whh.springboot3.lucene.index.SyncResult;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Author wanghonghui
+ * @Description 作者写入接口
+ * @Date 2026/10/17 17:40
+ */
+@RestController
+@ConditionalOnProperty(prefix = "lucene.replication", name = "role", havingValue = "primary", matchIfMissing = true)
+@RequestMapping("/api/authors")
+public class AuthorIndexController {
+
+    private final IndexAuthor indexAuthor;
+
+    public AuthorIndexController(IndexAuthor indexAuthor) {
+        this.indexAuthor = indexAuthor;
+    }
+
+    /**
+     * 按主键写入单个作者，已存在时覆盖，按 IndexAuthor 的持久化等级等待后返回
+     */
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> index(@RequestBody Author author) throws IOException {
+        if (author.getId() == null || author.getId().isEmpty()) {
+            throw new IllegalArgumentException("作者 id 不能为空");
+        }
+        indexAuthor.indexAuthor(author);
+        return ResponseEntity.ok(Map.of("id", author.getId()));
+    }
+
+    /**
+     * 批量导入作者 JSON 数组，直接从请求体流式解析，不把整个请求体读进内存
+     *
+     * @param create   是否先清空索引
+     * @param bulkLoad 是否在批量导入模式下执行（大内存缓冲、暂停合并，结束后统一合并）
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> bulk(HttpServletRequest request,
+                                                    @RequestParam(defaultValue = "false") boolean create,
+                                                    @RequestParam(defaultValue = "false") boolean bulkLoad) throws IOException {
+        long start = System.currentTimeMillis();
+        try (InputStream in = request.getInputStream()) {
+            indexAuthor.indexAuthors(in, create, bulkLoad);
+        }
+        return ResponseEntity.ok(Map.of("took", System.currentTimeMillis() - start));
+    }
+
+    /**
+     * 按主键删除作者
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> delete(@PathVariable String id) throws IOException {
+        indexAuthor.deleteAuthors(List.of(id));
+        return ResponseEntity.ok(Map.of("id", id));
+    }
+
+    /**
+     * 增量同步作者 JSON 数组，只重写内容有变化的作者
+     *
+     * @param deleteMissing 是否删除请求体中不存在的作者，请求体是全量数据时才能打开
+     */
+    @PostMapping(value = "/sync", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<SyncResult> sync(HttpServletRequest request,
+                                           @RequestParam(defaultValue = "false") boolean deleteMissing) throws IOException {
+        try (InputStream in = request.getInputStream()) {
+            return ResponseEntity.ok(indexAuthor.syncAuthors(in, deleteMissing));
+        }
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", String.valueOf(e.getMessage())));
+    }
+}
@@ -0,0 +1,297 @@
+package com.whh.springboot3.lucene.controller;
+
+import com.whh.springboot3.lucene.Cons;
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.search.SearchRejectedException;
+import com.whh.springboot3.lucene.search.SearchTest;
+import com.whh.springboot3.lucene.search.base.MultiSearchResult;
+import com.whh.springboot3.lucene.search.base.PageResult;
+import com.whh.springboot3.lucene.search.base.SearchRequest;
+import com.whh.springboot3.lucene.search.base.SearchResult;
+import com.whh.springboot3.lucene.suggest.FieldSuggester;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author wanghonghui
+ * @Description 作者搜索接口
+ * @Date 2026/10/17 17:30
+ */
+@RestController
+@RequestMapping("/api/authors")
+public class AuthorSearchController {
+
+    private final SearchTest search;
+
+    private final FieldSuggester nameSuggester;
+
+    public AuthorSearchController(SearchTest search, FieldSuggester nameSuggester) {
+        this.search = search;
+        this.nameSuggester = nameSuggester;
+    }
+
+    /**
+     * 分页搜索，传 after 时按游标翻页（第一页传空字符串），否则按页码翻页
+     *
+     * @param q      搜索词
+     * @param field  搜索字段
+     * @param page   页码（从1开始）
+     * @param size   每页大小
+     * @param after  游标
+     * @param sort   排序字段，为空时按相关度排序
+     * @param asc    是否升序
+     * @param fields 需要返回的字段
+     * @param idsOnly 只返回主键和得分
+     * @param filter  精确过滤条件，格式为 字段:值，可以传多个
+     */
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> search(@RequestParam String q,
+                                                        @RequestParam(defaultValue = Cons.AUTHOR_DESC) String field,
+                                                        @RequestParam(defaultValue = "1") int page,
+                                                        @RequestParam(defaultValue = "" + Cons.PAGE_SIZE) int size,
+                                                        @RequestParam(required = false) String after,
+                                                        @RequestParam(required = false) String sort,
+                                                        @RequestParam(required = false) Boolean asc,
+                                                        @RequestParam(required = false) String[] fields,
+                                                        @RequestParam(defaultValue = "false") boolean idsOnly,
+                                                        @RequestParam(required = false) String[] filter) throws Exception {
+        SearchRequest request = new SearchRequest()
+                .setSearchContent(q)
+                .setSearchField(field)
+                .setPageNumber(page)
+                .setPageSize(size)
+                .setAfter(after)
+                .setSortField(sort)
+                .setSortOrder(asc)
+                .setFields(fields)
+                .setIdsOnly(idsOnly)
+                .setFilters(parseFilters(filter));
+        // 搜索在请求线程上完成，出错时还能返回错误码；只把序列化放到响应流里
+        PageResult<SearchResult<Author>> result = search.search(request);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(PageResultWriter.of(result));
+    }
+
+    /**
+     * 向量检索请求体
+     *
+     * @param q       搜索词，为空时只做向量检索，不为空时和关键词检索按 RRF 融合
+     * @param field   关键词搜索字段
+     * @param vector  查询向量，需要和索引时使用同一个模型生成
+     * @param k       两路各取的候选数
+     * @param page    页码（从1开始）
+     * @param size    每页大小
+     * @param filters 精确过滤条件（字段 -> 值），同时作为近邻检索的前置过滤
+     * @param fields  需要返回的字段
+     */
+    public record VectorSearchBody(String q, String field, float[] vector, Integer k, Integer page, Integer size,
+                                   Map<String, String> filters, String[] fields) {
+    }
+
+    /**
+     * 向量检索和混合检索，向量较长，用 POST 请求体传入
+     */
+    @PostMapping(value = "/search/vector", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> vectorSearch(@RequestBody VectorSearchBody body) throws Exception {
+        if (body.vector() == null) {
+            throw new IllegalArgumentException("查询向量不能为空");
+        }
+        SearchRequest request = new SearchRequest()
+                .setSearchContent(body.q())
+                .setSearchField(body.field() != null ? body.field() : Cons.AUTHOR_DESC)
+                .setVector(body.vector())
+                .setVectorField(Cons.AUTHOR_DESC_VECTOR)
+                .setPageNumber(body.page() != null ? body.page() : 1)
+                .setPageSize(body.size() != null ? body.size() : Cons.PAGE_SIZE)
+                .setFilters(body.filters())
+                .setFields(body.fields());
+        if (body.k() != null) {
+            request.setK(body.k());
+        }
+        PageResult<SearchResult<Author>> result = search.search(request);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(PageResultWriter.of(result));
+    }
+
+    /**
+     * 批量搜索中的单个查询
+     *
+     * @param id      调用方自定义的标识，原样返回
+     * @param type    search 分页搜索（默认） / count 只统计命中数 / suggest 作者名前缀补全（q 为前缀）
+     * @param q       搜索词
+     * @param field   搜索字段
+     * @param page    页码（从1开始）
+     * @param size    每页大小，suggest 时为返回条数
+     * @param after   游标
+     * @param sort    排序字段
+     * @param asc     是否升序
+     * @param fields  需要返回的字段
+     * @param idsOnly 只返回主键和得分
+     * @param filters 精确过滤条件（字段 -> 值）
+     */
+    public record SearchSpec(String id, String type, String q, String field, Integer page, Integer size, String after,
+                             String sort, Boolean asc, String[] fields, Boolean idsOnly, Map<String, String> filters) {
+    }
+
+    public record MultiSearchBody(List<SearchSpec> searches) {
+    }
+
+    /**
+     * 批量搜索：结果页一次要发起的多个独立查询合成一个请求，共用同一个时间点的搜索器并发执行，
+     * 各查询的结果、耗时和错误按顺序返回，单个查询失败不影响其它查询
+     */
+    @PostMapping(value = "/search/multi", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> multiSearch(@RequestBody MultiSearchBody body) throws Exception {
+        if (body.searches() == null || body.searches().isEmpty()) {
+            throw new IllegalArgumentException("查询列表不能为空");
+        }
+        long start = System.nanoTime();
+        List<SearchSpec> specs = body.searches();
+        List<SearchRequest> requests = new ArrayList<>();
+        for (SearchSpec spec : specs) {
+            String type = type(spec);
+            if ("search".equals(type) || "count".equals(type)) {
+                requests.add(new SearchRequest()
+                        .setSearchContent(spec.q())
+                        .setSearchField(spec.field() != null ? spec.field() : Cons.AUTHOR_DESC)
+                        .setPageNumber(spec.page() != null ? spec.page() : 1)
+                        .setPageSize(spec.size() != null ? spec.size() : Cons.PAGE_SIZE)
+                        .setAfter(spec.after())
+                        .setSortField(spec.sort())
+                        .setSortOrder(spec.asc())
+                        .setFields(spec.fields())
+                        .setIdsOnly(Boolean.TRUE.equals(spec.idsOnly()))
+                        .setFilters(spec.filters())
+                        .setCountOnly("count".equals(type))
+                        // 批量内的查询之间已经并发，单个查询不再按 slice 并行
+                        .setConcurrent(false));
+            }
+        }
+        List<MultiSearchResult<Author>> results = search.multiSearch(requests);
+
+        Object[] responses = new Object[specs.size()];
+        int next = 0;
+        for (int i = 0; i < specs.size(); i++) {
+            SearchSpec spec = specs.get(i);
+            String type = type(spec);
+            switch (type) {
+                case "search", "count" -> {
+                    MultiSearchResult<Author> result = results.get(next++);
+                    responses[i] = result.isSuccess()
+                            ? response(spec, type, result.getTookMicros(), result.getResult(), null, null)
+                            : response(spec, type, result.getTookMicros(), null, result.getError(), result.getErrorType());
+                }
+                case "suggest" -> responses[i] = suggest(spec);
+                default -> responses[i] = response(spec, type, 0, null, "未知的查询类型: " + type, IllegalArgumentException.class.getSimpleName());
+            }
+        }
+        long took = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(PageResultWriter.ofMulti(took, Arrays.asList(responses)));
+    }
+
+    private static String type(SearchSpec spec) {
+        return spec.type() == null ? "search" : spec.type();
+    }
+
+    /**
+     * 前缀补全走常驻内存的 FST，很快，直接在请求线程上执行
+     */
+    private Map<String, Object> suggest(SearchSpec spec) {
+        long start = System.nanoTime();
+        try {
+            int size = spec.size() != null ? Math.min(spec.size(), 50) : 10;
+            List<FieldSuggester.Suggestion> suggestions = nameSuggester.suggest(spec.q(), size);
+            return response(spec, "suggest", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start), suggestions, null, null);
+        } catch (Exception e) {
+            return response(spec, "suggest", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start), null,
+                    String.valueOf(e.getMessage()), e.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * 单个查询的响应，result 为分页结果时由 PageResultWriter 流式输出
+     */
+    private static Map<String, Object> response(SearchSpec spec, String type, long tookMicros, Object result, String error, String errorType) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("id", spec.id());
+        response.put("type", type);
+        response.put("tookMicros", tookMicros);
+        if (error == null) {
+            response.put("result", result);
+        } else {
+            response.put("error", error);
+            response.put("errorType", errorType);
+        }
+        return response;
+    }
+
+    /**
+     * 解析 字段:值 形式的过滤条件
+     */
+    private static Map<String, String> parseFilters(String[] filters) {
+        if (filters == null || filters.length == 0) {
+            return null;
+        }
+        Map<String, String> parsed = new LinkedHashMap<>();
+        for (String filter : filters) {
+            int colon = filter.indexOf(':');
+            if (colon <= 0 || colon == filter.length() - 1) {
+                throw new IllegalArgumentException("过滤条件格式应为 字段:值，实际为 " + filter);
+            }
+            parsed.put(filter.substring(0, colon), filter.substring(colon + 1));
+        }
+        return parsed;
+    }
+
+    /**
+     * 只统计命中数
+     */
+    @GetMapping("/count")
+    public Map<String, Object> count(@RequestParam String q,
+                                     @RequestParam(defaultValue = Cons.AUTHOR_DESC) String field) throws Exception {
+        return Map.of("total", search.count(q, field));
+    }
+
+    /**
+     * 作者名前缀补全，走常驻内存的 FST，不访问倒排索引
+     *
+     * @param prefix 已输入的前缀
+     * @param size   最多返回的条数
+     */
+    @GetMapping("/suggest")
+    public List<FieldSuggester.Suggestion> suggest(@RequestParam String prefix,
+                                                   @RequestParam(defaultValue = "10") int size) throws IOException {
+        return nameSuggester.suggest(prefix, Math.min(size, 50));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", String.valueOf(e.getMessage())));
+    }
+
+    /**
+     * 过载时拒绝的搜索返回 503，提示客户端稍后重试
+     */
+    @ExceptionHandler(SearchRejectedException.class)
+    public ResponseEntity<Map<String, String>> rejected(SearchRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("message", String.valueOf(e.getMessage()), "reason", e.getReason()));
+    }
+}
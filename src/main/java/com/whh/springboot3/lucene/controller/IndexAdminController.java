@@ -0,0 +1,57 @@
+package com.whh.springboot3.lucene.controller;
+
+import com.whh.springboot3.lucene.index.IndexStats;
+import com.whh.springboot3.lucene.index.IndexWriterService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * @Author wanghonghui
+ * @Description 索引运维接口：段统计和强制合并
+ * @Date 2026/10/17 22:45
+ */
+@RestController
+@ConditionalOnProperty(prefix = "lucene.replication", name = "role", havingValue = "primary", matchIfMissing = true)
+@RequestMapping("/api/index")
+public class IndexAdminController {
+
+    private final IndexWriterService writerService;
+
+    public IndexAdminController(IndexWriterService writerService) {
+        this.writerService = writerService;
+    }
+
+    /**
+     * 段数、大小和删除比例，用来观察合并是否跟得上写入
+     *
+     * @param details 是否返回每个段的明细
+     */
+    @GetMapping("/segments")
+    public IndexStats segments(@RequestParam(defaultValue = "true") boolean details) throws IOException {
+        IndexStats stats = writerService.segmentStats();
+        if (details) {
+            return stats;
+        }
+        return new IndexStats(stats.segmentCount(), stats.sizeBytes(), stats.maxDoc(), stats.deletedDocs(), stats.deletedRatio(),
+                stats.pendingMerges(), stats.bulkLoading(), null);
+    }
+
+    /**
+     * 强制合并到指定段数，阻塞到合并完成；会重写整个索引，只在低峰时调用
+     */
+    @PostMapping("/force-merge")
+    public ResponseEntity<Map<String, Object>> forceMerge(@RequestParam(defaultValue = "1") int maxSegments) throws IOException {
+        long start = System.currentTimeMillis();
+        writerService.forceMerge(maxSegments);
+        return ResponseEntity.ok(Map.of("took", System.currentTimeMillis() - start));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", String.valueOf(e.getMessage())));
+    }
+}
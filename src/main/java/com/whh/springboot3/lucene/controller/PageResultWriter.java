@@ -0,0 +1,96 @@
+package com.whh.springboot3.lucene.controller;
+
+import com.alibaba.fastjson2.JSON;
+import com.whh.springboot3.lucene.search.base.PageResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Author wanghonghui
+ * @Description 流式输出分页结果：先写分页信息，再逐条序列化结果，不在内存中拼出整个响应体
+ * @Date 2026/10/17 17:20
+ */
+public final class PageResultWriter {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private PageResultWriter() {
+    }
+
+    public static StreamingResponseBody of(PageResult<?> page) {
+        return out -> write(page, out);
+    }
+
+    public static void write(PageResult<?> page, OutputStream out) throws IOException {
+        BufferedOutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+        StringBuilder head = new StringBuilder(160)
+                .append("{\"total\":").append(page.getTotal())
+                .append(",\"totalRelation\":").append(JSON.toJSONString(page.getTotalRelation()))
+                .append(",\"pageNumber\":").append(page.getPageNumber())
+                .append(",\"pageSize\":").append(page.getPageSize())
+                .append(",\"totalPages\":").append(page.getTotalPages())
+                .append(",\"after\":").append(JSON.toJSONString(page.getAfter()))
+                .append(",\"partial\":").append(page.isPartial())
+                .append(",\"content\":[");
+        buffered.write(head.toString().getBytes(StandardCharsets.UTF_8));
+        boolean first = true;
+        for (Object item : page.getContent()) {
+            if (!first) {
+                buffered.write(',');
+            }
+            JSON.writeTo(buffered, item);
+            first = false;
+        }
+        buffered.write(']');
+        buffered.write('}');
+        buffered.flush();
+    }
+
+    /**
+     * 流式输出批量搜索结果，各查询的响应中分页结果按 write 的格式输出，其它值直接序列化
+     *
+     * @param took      整批耗时（毫秒）
+     * @param responses 各查询的响应，值为 PageResult 的字段流式输出
+     */
+    public static StreamingResponseBody ofMulti(long took, List<?> responses) {
+        return out -> {
+            BufferedOutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+            buffered.write(("{\"took\":" + took + ",\"responses\":[").getBytes(StandardCharsets.UTF_8));
+            boolean first = true;
+            for (Object response : responses) {
+                if (!first) {
+                    buffered.write(',');
+                }
+                writeEntries((Map<?, ?>) response, buffered);
+                first = false;
+            }
+            buffered.write(']');
+            buffered.write('}');
+            buffered.flush();
+        };
+    }
+
+    private static void writeEntries(Map<?, ?> response, OutputStream out) throws IOException {
+        out.write('{');
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : response.entrySet()) {
+            if (!first) {
+                out.write(',');
+            }
+            out.write((JSON.toJSONString(String.valueOf(entry.getKey())) + ":").getBytes(StandardCharsets.UTF_8));
+            if (entry.getValue() instanceof PageResult<?> page) {
+                write(page, out);
+            } else {
+                JSON.writeTo(out, entry.getValue());
+            }
+            first = false;
+        }
+        out.write('}');
+    }
+}
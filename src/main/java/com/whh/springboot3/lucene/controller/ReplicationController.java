@@ -0,0 +1,62 @@
+package com.whh.springboot3.lucene.controller;
+
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.replication.IndexReplicator;
+import com.whh.springboot3.lucene.replication.ReplicaMonitor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * @Author wanghonghui
+ * @Description 段复制状态：主实例返回各副本目录的复制进度和延迟，副本实例返回正在搜索的提交
+ * @Date 2026/10/18 00:40
+ */
+@RestController
+@RequestMapping("/api/replication")
+public class ReplicationController {
+
+    private final LuceneProperties properties;
+
+    private final ObjectProvider<IndexReplicator> replicator;
+
+    private final ObjectProvider<ReplicaMonitor> replicaMonitor;
+
+    public ReplicationController(LuceneProperties properties, ObjectProvider<IndexReplicator> replicator,
+                                 ObjectProvider<ReplicaMonitor> replicaMonitor) {
+        this.properties = properties;
+        this.replicator = replicator;
+        this.replicaMonitor = replicaMonitor;
+    }
+
+    @GetMapping("/status")
+    public Map<String, Object> status() throws IOException {
+        IndexReplicator.Role role = properties.getReplication().getRole();
+        if (role == IndexReplicator.Role.REPLICA) {
+            return Map.of("role", role, "shards", replicaMonitor.getObject().status());
+        }
+        return Map.of("role", role, "targets", replicator.getObject().status());
+    }
+
+    /**
+     * 立即复制一轮，不等下一次定时复制，只能在主实例上调用
+     */
+    @PostMapping("/sync")
+    public Map<String, Object> sync() throws IOException {
+        IndexReplicator indexReplicator = replicator.getIfAvailable();
+        if (indexReplicator == null) {
+            throw new IllegalStateException("只读副本不能发起复制");
+        }
+        long start = System.currentTimeMillis();
+        indexReplicator.replicate();
+        return Map.of("took", System.currentTimeMillis() - start, "targets", indexReplicator.status());
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Map<String, String>> conflict(IllegalStateException e) {
+        return ResponseEntity.status(409).body(Map.of("message", String.valueOf(e.getMessage())));
+    }
+}
@@ -14,4 +14,8 @@ public class Author {
     private String id;
     private String name;
     private String desc;
+    /**
+     * desc 的向量，由调用方用自己的模型生成后随实体传入，只用于检索，不存储
+     */
+    private float[] descVector;
 }
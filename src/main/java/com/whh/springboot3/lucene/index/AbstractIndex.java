@@ -1,21 +1,22 @@
 package com.whh.springboot3.lucene.index;
 
+import com.alibaba.fastjson2.JSONReader;
 import com.google.common.collect.Lists;
-import com.whh.springboot3.lucene.Cons;
+import com.whh.springboot3.lucene.index.IndexWriterService.Durability;
+import com.whh.springboot3.lucene.schema.EntitySchema;
+import com.whh.springboot3.lucene.search.IndexSearcherManager;
 import lombok.Getter;
 import lombok.Setter;
-import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.*;
-import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.IndexWriterConfig;
-import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.*;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.IOSupplier;
 
 import java.io.IOException;
-import java.nio.file.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
 
 /**
  * @Author wanghonghui
@@ -26,64 +27,307 @@ import java.util.List;
 @Setter
 public abstract class AbstractIndex<T>{
 
-    private double ramBufferSizeMB = 256.0;
-
+    /**
+     * 批量写入时是否全量重建：按主键覆盖写入，全部成功后删除这次没有重写的旧文档；
+     * 重建失败时旧文档保留，重建过程中搜索始终能查到完整的数据
+     */
     private boolean create = true;
 
-    private IndexWriter indexWriter;
+    /**
+     * 批量写入（indexMulti / indexStream）时是否进入批量导入模式：大内存缓冲、暂停分组提交和合并，
+     * 适合全量重建；导入期间其它写入也会受影响
+     */
+    private boolean bulkLoad = false;
+
+    /**
+     * 每批写入的文档数
+     */
+    private int batchSize = 500;
+
+    /**
+     * 写入返回前等待的持久化等级
+     */
+    private Durability durability = Durability.COMMIT;
+
+    /**
+     * 流式导入的工作线程数
+     */
+    private int ingestThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 流式导入时最多积压的批数
+     */
+    private int ingestQueueCapacity = 16;
+
+    private final IndexWriterService writerService;
 
-    private Directory indexDir;
+    /**
+     * 索引结构，字段类型和分词器都从这里取
+     */
+    private final EntitySchema<T> schema;
+
+    protected AbstractIndex(IndexWriterService writerService, EntitySchema<T> schema) {
+        this.writerService = writerService;
+        this.schema = schema;
+    }
 
     protected final void indexMulti(List<T> list) throws IOException {
-        IndexWriter writer = getWriter();
-        try {
-            List<Document> authorDocs = new ArrayList<>();
-            for (T t : list) {
-                Document doc = addDoc(t);
-                authorDocs.add(doc);
+        afterBulk(bulk(isBulkLoad(), () -> {
+            long generation = writerService.nextGeneration();
+            long seqNo = -1;
+            for (List<T> batch : Lists.partition(list, getBatchSize())) {
+                List<Term> idTerms = new ArrayList<>(batch.size());
+                List<Document> documents = new ArrayList<>(batch.size());
+                for (T t : batch) {
+                    idTerms.add(new Term(schema.getIdField(), requireId(t)));
+                    documents.add(toDocument(t));
+                }
+                seqNo = writerService.updateDocuments(idTerms, documents, Durability.NONE);
             }
-            List<List<Document>> partition = Lists.partition(authorDocs, 500);
-            for (List<Document> documents : partition) {
-                writer.addDocuments(documents);
-                writer.commit();
+            if (isCreate()) {
+                seqNo = Math.max(seqNo, deleteGenerationsBefore(generation));
             }
+            return seqNo;
+        }));
+    }
+
+    /**
+     * 删除写入代数小于 generation 的文档，也就是全量重建中没有被重写的旧文档；没有代数字段的
+     * 旧索引文档同样会被删除
+     */
+    private long deleteGenerationsBefore(long generation) throws IOException {
+        Query stale = new BooleanQuery.Builder()
+                .add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST)
+                .add(LongPoint.newRangeQuery(EntitySchema.GENERATION_FIELD, generation, Long.MAX_VALUE), BooleanClause.Occur.MUST_NOT)
+                .build();
+        return writerService.deleteByQuery(Durability.NONE, stale);
+    }
+
+    /**
+     * bulkLoad 为 true 时在批量导入模式下执行写入，结束后恢复（其中包含一次提交）
+     */
+    private long bulk(boolean bulkLoad, IOSupplier<Long> writes) throws IOException {
+        if (!bulkLoad) {
+            return writes.get();
+        }
+        writerService.beginBulkLoad();
+        try {
+            return writes.get();
         } finally {
-            close();
+            writerService.endBulkLoad();
         }
     }
 
-    protected final void indexSingle(T t) throws IOException {
-        IndexWriter writer = getWriter();
+    /**
+     * 流式导入 JSON 数组，边解析边写入，不把整个文件读进内存
+     *
+     * @param in   JSON 数组输入流，由调用方关闭
+     * @param type 数组元素类型
+     */
+    protected final void indexStream(InputStream in, Class<T> type) throws IOException {
+        indexStream(in, type, isCreate());
+    }
+
+    /**
+     * 流式导入 JSON 数组
+     *
+     * @param in     JSON 数组输入流，由调用方关闭
+     * @param type   数组元素类型
+     * @param create 是否全量重建，单例组件上并发调用时用它代替修改 create 属性
+     */
+    protected final void indexStream(InputStream in, Class<T> type, boolean create) throws IOException {
+        indexStream(in, type, create, isBulkLoad());
+    }
+
+    /**
+     * 流式导入 JSON 数组
+     *
+     * @param in       JSON 数组输入流，由调用方关闭
+     * @param type     数组元素类型
+     * @param create   是否全量重建
+     * @param bulkLoad 是否在批量导入模式下执行
+     */
+    protected final void indexStream(InputStream in, Class<T> type, boolean create, boolean bulkLoad) throws IOException {
+        afterBulk(bulk(bulkLoad, () -> {
+            long generation = writerService.nextGeneration();
+            // 始终按主键覆盖，重复导入不会产生重复文档；全量重建时旧文档等导入成功后再删除
+            BulkIngestPipeline<T> pipeline = new BulkIngestPipeline<>(writerService, this::toDocument, schema.getIdField(), this::requireId,
+                    getIngestThreads(), getBatchSize(), getIngestQueueCapacity());
+            long seqNo = pipeline.run(in, type);
+            if (create) {
+                seqNo = Math.max(seqNo, deleteGenerationsBefore(generation));
+            }
+            return seqNo;
+        }));
+    }
+
+    /**
+     * 增量同步 JSON 数组：和索引中每个文档的内容哈希比较，只重写新增和变化的实体，
+     * 未变化的实体不产生任何写入；输入中重复出现的主键和它上一次出现时比较
+     *
+     * @param in            JSON 数组输入流，由调用方关闭
+     * @param type          数组元素类型
+     * @param deleteMissing 是否删除源数据中已不存在的文档，只有输入是全量数据时才能打开
+     */
+    protected final SyncResult syncStream(InputStream in, Class<T> type, boolean deleteMissing) throws IOException {
+        Map<String, String> existing = loadHashes();
+        // 本次输入中已经出现过的主键和内容哈希
+        Map<String, String> seen = new HashMap<>();
+        long added = 0;
+        long updated = 0;
+        long unchanged = 0;
+        long seqNo = -1;
+        List<Term> idTerms = new ArrayList<>(getBatchSize());
+        List<Document> documents = new ArrayList<>(getBatchSize());
+        try (JSONReader reader = JSONReader.of(in, StandardCharsets.UTF_8)) {
+            if (!reader.nextIfArrayStart()) {
+                throw new IOException("导入数据必须是 JSON 数组");
+            }
+            while (!reader.nextIfArrayEnd()) {
+                T t = reader.read(type);
+                String id = requireId(t);
+                String hash = schema.hash(t);
+                String oldHash = seen.put(id, hash);
+                if (oldHash == null) {
+                    oldHash = existing.remove(id);
+                }
+                if (hash.equals(oldHash)) {
+                    unchanged++;
+                    continue;
+                }
+                if (oldHash == null) {
+                    added++;
+                } else {
+                    updated++;
+                }
+                idTerms.add(new Term(schema.getIdField(), id));
+                documents.add(toDocument(t));
+                if (documents.size() >= getBatchSize()) {
+                    seqNo = Math.max(seqNo, writerService.updateDocuments(idTerms, documents, Durability.NONE));
+                    idTerms = new ArrayList<>(getBatchSize());
+                    documents = new ArrayList<>(getBatchSize());
+                }
+            }
+        }
+        if (!documents.isEmpty()) {
+            seqNo = Math.max(seqNo, writerService.updateDocuments(idTerms, documents, Durability.NONE));
+        }
+        long deleted = 0;
+        if (deleteMissing && !existing.isEmpty()) {
+            for (List<String> ids : Lists.partition(new ArrayList<>(existing.keySet()), getBatchSize())) {
+                seqNo = Math.max(seqNo, deleteIds(ids, Durability.NONE));
+            }
+            deleted = existing.size();
+        }
+        afterBulk(seqNo);
+        return new SyncResult(added, updated, unchanged, deleted);
+    }
+
+    /**
+     * 读取索引中每个存活文档的主键和内容哈希，没有哈希的旧文档值为空字符串
+     */
+    private Map<String, String> loadHashes() throws IOException {
+        String idField = schema.getIdField();
+        if (!schema.field(idField).isDocValues()) {
+            throw new IllegalArgumentException("增量同步要求主键字段有 doc values: " + idField);
+        }
+        IndexSearcherManager searcherManager = writerService.getSearcherManager();
+        // 先刷新，之前未提交的写入也要参与比较
+        searcherManager.maybeRefreshBlocking();
+        IndexSearcher searcher = searcherManager.acquire();
         try {
-            Document document = addDoc(t);
-            writer.addDocument(document);
-            writer.commit();
+            Map<String, String> hashes = new HashMap<>();
+            for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                LeafReader reader = leaf.reader();
+                Bits liveDocs = reader.getLiveDocs();
+                SortedDocValues ids = DocValues.getSorted(reader, idField);
+                SortedDocValues contentHashes = DocValues.getSorted(reader, EntitySchema.HASH_FIELD);
+                for (int doc = ids.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = ids.nextDoc()) {
+                    if (liveDocs != null && !liveDocs.get(doc)) {
+                        continue;
+                    }
+                    String hash = contentHashes.advanceExact(doc) ? contentHashes.lookupOrd(contentHashes.ordValue()).utf8ToString() : "";
+                    hashes.put(ids.lookupOrd(ids.ordValue()).utf8ToString(), hash);
+                }
+            }
+            return hashes;
         } finally {
-            close();
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * 整批写完后只提交一次
+     */
+    private void afterBulk(long seqNo) throws IOException {
+        if (getDurability() == Durability.COMMIT) {
+            writerService.commit();
+        } else if (seqNo >= 0) {
+            writerService.await(seqNo, getDurability());
         }
     }
 
-    private IndexWriter getWriter() throws IOException {
-        if(indexWriter == null) {
-            indexDir = FSDirectory.open(Paths.get(Cons.INDEX_PATH));
-            Analyzer analyzer = new StandardAnalyzer();
-            IndexWriterConfig iwc = new IndexWriterConfig(analyzer);
-            iwc.setOpenMode(isCreate() ? IndexWriterConfig.OpenMode.CREATE : IndexWriterConfig.OpenMode.APPEND);
-            iwc.setRAMBufferSizeMB(getRamBufferSizeMB());
-            indexWriter = new IndexWriter(indexDir, iwc);
+    protected final void indexSingle(T t) throws IOException {
+        Document document = toDocument(t);
+        writerService.addDocument(document, getDurability());
+    }
+
+    /**
+     * 按主键覆盖写入单个实体，主键不存在时相当于新增
+     */
+    protected final void upsertSingle(T t) throws IOException {
+        Term idTerm = new Term(schema.getIdField(), requireId(t));
+        writerService.updateDocument(idTerm, toDocument(t), getDurability());
+    }
+
+    /**
+     * 按主键删除
+     */
+    protected final void deleteByIds(Collection<String> ids) throws IOException {
+        if (ids.isEmpty()) {
+            return;
         }
-        return indexWriter;
+        writerService.await(deleteIds(ids, Durability.NONE), getDurability());
     }
 
-    public void close() throws IOException {
-        if (indexWriter != null) {
-            indexWriter.close();
+    private long deleteIds(Collection<String> ids, Durability durability) throws IOException {
+        Term[] terms = new Term[ids.size()];
+        int i = 0;
+        for (String id : ids) {
+            terms[i++] = new Term(schema.getIdField(), id);
         }
-        if(indexDir != null) {
-            indexDir.close();
+        return writerService.deleteDocuments(durability, terms);
+    }
+
+    private String requireId(T t) {
+        String id = schema.id(t);
+        if (id == null || id.isEmpty()) {
+            throw new IllegalArgumentException("主键不能为空");
         }
+        return id;
+    }
+
+    /**
+     * 给最后一次提交打快照，用于在线备份或复制到副本，写入不需要暂停；使用完后必须关闭
+     */
+    public IndexSnapshot snapshot() throws IOException {
+        return writerService.snapshot();
     }
 
-    public abstract Document addDoc(T t);
+    /**
+     * 转换后追加写入代数，所有写入都经过这里
+     */
+    private Document toDocument(T t) {
+        Document document = addDoc(t);
+        document.add(new LongPoint(EntitySchema.GENERATION_FIELD, writerService.generation()));
+        return document;
+    }
+
+    /**
+     * 实体转文档，默认按索引结构转换
+     */
+    public Document addDoc(T t) {
+        return schema.toDocument(t);
+    }
 
 }
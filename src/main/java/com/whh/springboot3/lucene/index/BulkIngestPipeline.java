@@ -0,0 +1,176 @@
+package com.whh.springboot3.lucene.index;
+
+import com.alibaba.fastjson2.JSONReader;
+import com.whh.springboot3.lucene.index.IndexWriterService.Durability;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * @Author wanghonghui
+ * @Description 流式批量导入：单线程增量解析 JSON 数组，有界队列分批交给工作线程转换并写入，
+ * 内存占用只和 队列容量 * 批大小 有关，和文件大小无关
+ * @Date 2026/10/17 13:40
+ */
+@Slf4j
+public class BulkIngestPipeline<T> {
+
+    /**
+     * 结束标记，工作线程取到后退出
+     */
+    private final List<T> poison = Collections.emptyList();
+
+    private final IndexWriterService writerService;
+
+    private final Function<T, Document> converter;
+
+    /**
+     * 取主键，不为 null 时按主键覆盖写入，为 null 时直接追加
+     */
+    private final Function<T, String> idGetter;
+
+    private final String idField;
+
+    private final int threads;
+
+    private final int batchSize;
+
+    private final int queueCapacity;
+
+    /**
+     * @param writerService 共享的 writer
+     * @param converter     实体转文档
+     * @param threads       工作线程数
+     * @param batchSize     每批文档数
+     * @param queueCapacity 队列中最多积压的批数，满了之后解析线程阻塞（背压）
+     */
+    public BulkIngestPipeline(IndexWriterService writerService, Function<T, Document> converter,
+                              int threads, int batchSize, int queueCapacity) {
+        this(writerService, converter, null, null, threads, batchSize, queueCapacity);
+    }
+
+    /**
+     * @param idField  主键字段，按主键覆盖写入时使用
+     * @param idGetter 取主键，为 null 时直接追加
+     */
+    public BulkIngestPipeline(IndexWriterService writerService, Function<T, Document> converter,
+                              String idField, Function<T, String> idGetter,
+                              int threads, int batchSize, int queueCapacity) {
+        this.writerService = writerService;
+        this.converter = converter;
+        this.idField = idField;
+        this.idGetter = idGetter;
+        this.threads = Math.max(1, threads);
+        this.batchSize = Math.max(1, batchSize);
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    /**
+     * 导入 JSON 数组
+     *
+     * @param in   JSON 数组输入流，由调用方关闭
+     * @param type 数组元素类型
+     * @return 最后一次写入的序列号，没有写入时返回 -1
+     */
+    public long run(InputStream in, Class<T> type) throws IOException {
+        BlockingQueue<List<T>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicLong maxSeqNo = new AtomicLong(-1);
+        AtomicLong docs = new AtomicLong();
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "lucene-ingest-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<?>> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.add(pool.submit(() -> consume(queue, maxSeqNo, docs)));
+        }
+        long start = System.currentTimeMillis();
+        try {
+            try (JSONReader reader = JSONReader.of(in, StandardCharsets.UTF_8)) {
+                if (!reader.nextIfArrayStart()) {
+                    throw new IOException("导入数据必须是 JSON 数组");
+                }
+                List<T> batch = new ArrayList<>(batchSize);
+                while (!reader.nextIfArrayEnd()) {
+                    batch.add(reader.read(type));
+                    if (batch.size() >= batchSize) {
+                        enqueue(queue, batch, workers);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    enqueue(queue, batch, workers);
+                }
+            }
+            for (int i = 0; i < threads; i++) {
+                enqueue(queue, poison, workers);
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("导入被中断");
+        } catch (ExecutionException e) {
+            throw new IOException("导入失败", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        log.info("导入完成，共 {} 条，耗时 {} ms", docs.get(), System.currentTimeMillis() - start);
+        return maxSeqNo.get();
+    }
+
+    private Void consume(BlockingQueue<List<T>> queue, AtomicLong maxSeqNo, AtomicLong docs) throws Exception {
+        while (true) {
+            List<T> batch = queue.take();
+            if (batch == poison) {
+                return null;
+            }
+            List<Document> documents = new ArrayList<>(batch.size());
+            for (T t : batch) {
+                documents.add(converter.apply(t));
+            }
+            long seqNo;
+            if (idGetter == null) {
+                seqNo = writerService.addDocuments(documents, Durability.NONE);
+            } else {
+                List<Term> idTerms = new ArrayList<>(batch.size());
+                for (T t : batch) {
+                    idTerms.add(new Term(idField, idGetter.apply(t)));
+                }
+                seqNo = writerService.updateDocuments(idTerms, documents, Durability.NONE);
+            }
+            maxSeqNo.accumulateAndGet(seqNo, Math::max);
+            docs.addAndGet(documents.size());
+        }
+    }
+
+    /**
+     * 队列满时阻塞等待；工作线程异常退出时不再等待，直接抛出其异常
+     */
+    private void enqueue(BlockingQueue<List<T>> queue, List<T> batch, List<Future<?>> workers)
+            throws InterruptedException, ExecutionException {
+        while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            for (Future<?> worker : workers) {
+                if (worker.isDone()) {
+                    worker.get();
+                    throw new IllegalStateException("导入线程已提前退出");
+                }
+            }
+        }
+    }
+}
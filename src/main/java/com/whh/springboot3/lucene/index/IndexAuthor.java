@@ -1,20 +1,18 @@
 package com.whh.springboot3.lucene.index;
 
-import com.alibaba.fastjson2.JSON;
-import com.whh.springboot3.lucene.Cons;
+import com.whh.springboot3.lucene.config.LuceneProperties;
 import com.whh.springboot3.lucene.entity.Author;
-import org.apache.lucene.document.Document;
-import org.apache.lucene.document.Field;
-import org.apache.lucene.document.StringField;
-import org.apache.lucene.document.TextField;
+import com.whh.springboot3.lucene.schema.SchemaRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
 import org.springframework.util.FileCopyUtils;
 
 import java.io.IOException;
-import java.net.URISyntaxException;
-import java.nio.file.Files;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
+import java.util.Collection;
 import java.util.Objects;
 
 /**
@@ -22,27 +20,85 @@ import java.util.Objects;
  * @Description
  * @Date 2024/11/23 22:52
  */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "lucene.replication", name = "role", havingValue = "primary", matchIfMissing = true)
 public class IndexAuthor extends AbstractIndex<Author> {
 
+    public IndexAuthor(IndexWriterService writerService) {
+        super(writerService, SchemaRegistry.of(Author.class));
+    }
+
     public static void main(String[] args) throws Exception {
-        IndexAuthor indexAuthor = new IndexAuthor();
-        indexAuthor.indexTangAuthors();
+        LuceneProperties properties = new LuceneProperties();
+        Path indexPath = Paths.get(properties.getIndex().getPath());
+        try (IndexWriterService writerService = new IndexWriterService(indexPath, SchemaRegistry.of(Author.class), properties)) {
+            IndexAuthor indexAuthor = new IndexAuthor(writerService);
+            log.info("同步完成，索引目录 {}: {}", indexPath, indexAuthor.syncTangAuthors());
+        }
+    }
+
+    /**
+     * 全量导入唐代作者，在批量导入模式下执行
+     */
+    public void indexTangAuthors() throws IOException {
+        try (InputStream in = Objects.requireNonNull(this.getClass().getResourceAsStream("/data/authors.tang.json"))) {
+            indexStream(in, Author.class, isCreate(), true);
+        }
+    }
+
+    /**
+     * 增量同步唐代作者，只重写有变化的作者，并删除数据中已不存在的作者
+     */
+    public SyncResult syncTangAuthors() throws IOException {
+        try (InputStream in = Objects.requireNonNull(this.getClass().getResourceAsStream("/data/authors.tang.json"))) {
+            return syncStream(in, Author.class, true);
+        }
     }
 
-    public void indexTangAuthors() throws IOException, URISyntaxException {
-        String content = Files.readString(Paths.get(Objects.requireNonNull(this.getClass().getResource("/data/authors.tang.json")).toURI()));
-        List<Author> authors = JSON.parseArray(content, Author.class);
-        indexMulti(authors);
+    /**
+     * 按主键写入单个作者，已存在时覆盖
+     */
+    public void indexAuthor(Author author) throws IOException {
+        upsertSingle(author);
     }
 
-    @Override
-    public Document addDoc(Author author) {
-        Document document = new Document();
-        document.add(new StringField(Cons.AUTHOR_ID, author.getId(), Field.Store.YES));
-        document.add(new StringField(Cons.AUTHOR_NAME, author.getName(), Field.Store.YES));
-        document.add(new TextField(Cons.AUTHOR_DESC, author.getDesc(), Field.Store.YES));
-        return document;
+    /**
+     * 按主键删除作者
+     */
+    public void deleteAuthors(Collection<String> ids) throws IOException {
+        deleteByIds(ids);
     }
 
+    /**
+     * 增量同步作者 JSON 数组
+     *
+     * @param in            JSON 数组输入流，由调用方关闭
+     * @param deleteMissing 是否删除输入中不存在的作者，只有输入是全量数据时才能打开
+     */
+    public SyncResult syncAuthors(InputStream in, boolean deleteMissing) throws IOException {
+        return syncStream(in, Author.class, deleteMissing);
+    }
+
+    /**
+     * 流式导入作者 JSON 数组
+     *
+     * @param in     JSON 数组输入流，由调用方关闭
+     * @param create 是否全量重建，成功后删除这次没有写入的旧文档
+     */
+    public void indexAuthors(InputStream in, boolean create) throws IOException {
+        indexStream(in, Author.class, create);
+    }
+
+    /**
+     * 流式导入作者 JSON 数组
+     *
+     * @param in       JSON 数组输入流，由调用方关闭
+     * @param create   是否全量重建，成功后删除这次没有写入的旧文档
+     * @param bulkLoad 是否在批量导入模式下执行，适合大批量的全量导入
+     */
+    public void indexAuthors(InputStream in, boolean create, boolean bulkLoad) throws IOException {
+        indexStream(in, Author.class, create, bulkLoad);
+    }
 
 }
@@ -0,0 +1,92 @@
+package com.whh.springboot3.lucene.index;
+
+import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.store.Directory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @Author wanghonghui
+ * @Description 索引快照，固定各分片某一次提交的文件集合，关闭前这些文件不会被删除
+ * @Date 2026/10/17 23:55
+ */
+public final class IndexSnapshot implements Closeable {
+
+    private final IndexWriterService writerService;
+
+    /**
+     * 各分片被快照的提交，顺序即分片序号
+     */
+    private final List<IndexCommit> commits;
+
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    IndexSnapshot(IndexWriterService writerService, List<IndexCommit> commits) {
+        this.writerService = writerService;
+        this.commits = List.copyOf(commits);
+    }
+
+    /**
+     * 分片数
+     */
+    public int getShardCount() {
+        return commits.size();
+    }
+
+    /**
+     * 分片被快照的提交
+     */
+    public IndexCommit commit(int shard) {
+        return commits.get(shard);
+    }
+
+    /**
+     * 提交所在的目录，快照中的文件从这里读取
+     */
+    public Directory directory(int shard) {
+        return commits.get(shard).getDirectory();
+    }
+
+    /**
+     * 提交代数，每次提交加一
+     */
+    public long generation(int shard) {
+        return commits.get(shard).getGeneration();
+    }
+
+    /**
+     * 提交引用的所有文件，包含 segments_N
+     */
+    public Collection<String> files(int shard) throws IOException {
+        return commits.get(shard).getFileNames();
+    }
+
+    /**
+     * 提交文件 segments_N 的文件名，复制时最后复制它
+     */
+    public String segmentsFileName(int shard) {
+        return commits.get(shard).getSegmentsFileName();
+    }
+
+    /**
+     * 提交时间（毫秒时间戳），没有记录时返回 -1
+     */
+    public long commitTimeMs(int shard) throws IOException {
+        String value = commits.get(shard).getUserData().get(IndexWriterService.COMMIT_TIME_KEY);
+        return value == null ? -1 : Long.parseLong(value);
+    }
+
+    /**
+     * 释放快照，重复关闭没有影响
+     */
+    @Override
+    public void close() throws IOException {
+        if (released.compareAndSet(false, true)) {
+            writerService.release(commits);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.whh.springboot3.lucene.index;
+
+import java.util.List;
+
+/**
+ * @Author wanghonghui
+ * @Description 索引的段统计，段数多或删除比例高说明合并跟不上（合并债务）
+ * @Date 2026/10/17 22:40
+ *
+ * @param segmentCount  段数
+ * @param sizeBytes     所有段的大小
+ * @param maxDoc        文档总数，包含已删除的文档
+ * @param deletedDocs   已删除但还没有被合并清理的文档数
+ * @param deletedRatio  已删除文档比例
+ * @param pendingMerges 是否有等待执行的合并
+ * @param bulkLoading   是否处于批量导入模式
+ * @param segments      各段明细
+ */
+public record IndexStats(int segmentCount, long sizeBytes, long maxDoc, long deletedDocs, double deletedRatio,
+                         boolean pendingMerges, boolean bulkLoading, List<SegmentStats> segments) {
+
+    /**
+     * 单个段的统计
+     *
+     * @param shard        所在分片
+     * @param name         段名
+     * @param maxDoc       文档数，包含已删除的文档
+     * @param deletedDocs  已删除的文档数
+     * @param sizeBytes    段文件大小
+     * @param compound     是否是复合文件
+     * @param source       段的来源：flush 为内存缓冲刷新，merge 为合并产生
+     */
+    public record SegmentStats(int shard, String name, int maxDoc, int deletedDocs, long sizeBytes,
+                               boolean compound, String source) {
+
+        public double deletedRatio() {
+            return maxDoc == 0 ? 0 : (double) deletedDocs / maxDoc;
+        }
+    }
+
+    static IndexStats of(List<SegmentStats> segments, boolean pendingMerges, boolean bulkLoading) {
+        long sizeBytes = 0;
+        long maxDoc = 0;
+        long deletedDocs = 0;
+        for (SegmentStats segment : segments) {
+            sizeBytes += segment.sizeBytes();
+            maxDoc += segment.maxDoc();
+            deletedDocs += segment.deletedDocs();
+        }
+        double deletedRatio = maxDoc == 0 ? 0 : (double) deletedDocs / maxDoc;
+        return new IndexStats(segments.size(), sizeBytes, maxDoc, deletedDocs, deletedRatio, pendingMerges, bulkLoading, segments);
+    }
+}
@@ -0,0 +1,149 @@
+package com.whh.springboot3.lucene.index;
+
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.Directory;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Author wanghonghui
+ * @Description 写入相关的统计：写入文档数、提交耗时、内存缓冲占用、刷新次数和合并耗时
+ * @Date 2026/10/17 18:55
+ */
+public class IndexWriterMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Counter docs;
+
+    private final Timer commits;
+
+    private final Timer merges;
+
+    private final Counter flushes;
+
+    public IndexWriterMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        // 单调递增的计数器，写入速率在监控端按 rate 计算
+        this.docs = Counter.builder("lucene.index.docs.written").description("累计写入的文档数").register(registry);
+        this.flushes = Counter.builder("lucene.index.flushes")
+                .description("内存缓冲刷新出的段数")
+                .register(registry);
+        this.commits = Timer.builder("lucene.index.commit").description("提交耗时").register(registry);
+        this.merges = Timer.builder("lucene.index.merge").description("段合并耗时").register(registry);
+    }
+
+    /**
+     * 在创建 writer 之前挂上合并计时，需要在设置合并线程之前调用
+     */
+    void configure(IndexWriterConfig iwc) {
+        iwc.setMergeScheduler(new TimedMergeScheduler());
+    }
+
+    /**
+     * 包装已经设置好的合并策略，统计刷新出的段数，需要在设置合并策略之后调用；
+     * 目录中已有的段不计数
+     */
+    void countFlushes(IndexWriterConfig iwc, Directory directory) throws IOException {
+        FlushCountingMergePolicy policy = new FlushCountingMergePolicy(iwc.getMergePolicy());
+        if (DirectoryReader.indexExists(directory)) {
+            for (SegmentCommitInfo info : SegmentInfos.readLatestCommit(directory)) {
+                policy.seen.add(info.info.name);
+            }
+        }
+        iwc.setMergePolicy(policy);
+    }
+
+    /**
+     * writer 创建后注册按需读取的指标，多分片时按 shard 标签区分
+     */
+    void bind(IndexWriter writer, int shard) {
+        Gauge.builder("lucene.index.ram", writer, IndexWriter::ramBytesUsed)
+                .description("内存缓冲占用")
+                .tag("shard", String.valueOf(shard))
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        Gauge.builder("lucene.index.deleted.ratio", writer, IndexWriterMetrics::deletedRatio)
+                .description("已删除但还没有被合并清理的文档比例")
+                .tag("shard", String.valueOf(shard))
+                .register(registry);
+    }
+
+    private static double deletedRatio(IndexWriter writer) {
+        IndexWriter.DocStats stats = writer.getDocStats();
+        return stats.maxDoc == 0 ? 0 : 1 - (double) stats.numDocs / stats.maxDoc;
+    }
+
+    void bindPending(AtomicLong pendingDocs) {
+        Gauge.builder("lucene.index.pending", pendingDocs, AtomicLong::get)
+                .description("上次提交以来写入的文档数")
+                .register(registry);
+    }
+
+    void docs(int count) {
+        docs.increment(count);
+    }
+
+    void commit(long nanos) {
+        commits.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * writer 发布新段后会向合并策略查询合并，此时比较段列表，来源为 flush 且第一次出现的段
+     * 就是新刷新出的段；批量导入期间合并策略被替换，这些段在恢复后的第一次查询时补记
+     */
+    private class FlushCountingMergePolicy extends FilterMergePolicy {
+
+        /**
+         * 已经计过数的刷新段
+         */
+        private final Set<String> seen = new HashSet<>();
+
+        FlushCountingMergePolicy(MergePolicy in) {
+            super(in);
+        }
+
+        @Override
+        public MergeSpecification findMerges(MergeTrigger mergeTrigger, SegmentInfos segmentInfos, MergeContext mergeContext) throws IOException {
+            count(segmentInfos);
+            return super.findMerges(mergeTrigger, segmentInfos, mergeContext);
+        }
+
+        private synchronized void count(SegmentInfos segmentInfos) {
+            Set<String> current = new HashSet<>();
+            for (SegmentCommitInfo info : segmentInfos) {
+                if (IndexWriter.SOURCE_FLUSH.equals(info.info.getDiagnostics().get(IndexWriter.SOURCE))) {
+                    current.add(info.info.name);
+                    if (!seen.contains(info.info.name)) {
+                        flushes.increment();
+                    }
+                }
+            }
+            // 已经被合并掉的段不再记录
+            seen.clear();
+            seen.addAll(current);
+        }
+    }
+
+    /**
+     * 给每次合并计时，其它行为和 ConcurrentMergeScheduler 一致
+     */
+    private class TimedMergeScheduler extends ConcurrentMergeScheduler {
+
+        @Override
+        protected void doMerge(MergeSource mergeSource, MergePolicy.OneMerge merge) throws IOException {
+            long start = System.nanoTime();
+            try {
+                super.doMerge(mergeSource, merge);
+            } finally {
+                merges.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,808 @@
+package com.whh.springboot3.lucene.index;
+
+import com.google.common.hash.Hashing;
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.schema.EntitySchema;
+import com.whh.springboot3.lucene.search.IndexSearcherManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+/**
+ * @Author wanghonghui
+ * @Description 应用级单例 IndexWriter，按时间或数量分组提交（group commit），并提供 NRT 搜索器；
+ * 配置多个分片时每个分片一个目录和一个 writer（各自的合并线程），文档按主键哈希路由到分片
+ * @Date 2026/10/17 11:05
+ */
+@Slf4j
+public class IndexWriterService implements Closeable {
+
+    /**
+     * 写入后的持久化等级
+     */
+    public enum Durability {
+        /**
+         * 写入内存缓冲后立即返回
+         */
+        NONE,
+        /**
+         * 等到 NRT 搜索器可以查到这次写入后返回
+         */
+        VISIBLE,
+        /**
+         * 等到这次写入随下一次分组提交落盘后返回
+         */
+        COMMIT
+    }
+
+    /**
+     * 提交元数据中记录提交时间（毫秒时间戳）的键，副本用它计算复制延迟
+     */
+    public static final String COMMIT_TIME_KEY = "commitTimeMs";
+
+    private final List<Directory> directories;
+
+    /**
+     * 各分片的 writer，顺序即分片序号
+     */
+    @Getter
+    private final List<IndexWriter> writers;
+
+    @Getter
+    private final IndexSearcherManager searcherManager;
+
+    private final List<ControlledRealTimeReopenThread<IndexSearcher>> reopenThreads;
+
+    /**
+     * 主键字段，多分片时按它路由
+     */
+    private final String idField;
+
+    private final ScheduledExecutorService committer;
+
+    private final int maxPendingDocs;
+
+    /**
+     * 上次提交以来的写入文档数
+     */
+    private final AtomicLong pendingDocs = new AtomicLong();
+
+    private final AtomicBoolean commitScheduled = new AtomicBoolean();
+
+    private final Object commitLock = new Object();
+
+    /**
+     * 下一次提交完成时结束，等待 COMMIT 的调用方都挂在它上面
+     */
+    private CompletableFuture<Void> nextCommit = new CompletableFuture<>();
+
+    /**
+     * 正在进行的提交，没有时为 null
+     */
+    private CompletableFuture<Void> inFlightCommit;
+
+    /**
+     * 各分片已经落盘的最大序列号，由 commitLock 保护
+     */
+    private final long[] committedSeqNos;
+
+    private final IndexWriterMetrics metrics;
+
+    /**
+     * 各分片平时的内存缓冲大小（MB）
+     */
+    private final double ramBufferSizeMb;
+
+    private final LuceneProperties.BulkLoad bulkLoadConfig;
+
+    private final int shardCount;
+
+    /**
+     * 正在进行的批量导入数，第一个开始时切换到批量导入配置，最后一个结束时恢复
+     */
+    private int bulkLoads;
+
+    /**
+     * 批量导入期间暂停分组提交，避免频繁提交刷出大量小段
+     */
+    private volatile boolean bulkLoading;
+
+    /**
+     * 平时使用的合并策略，批量导入暂停合并后恢复
+     */
+    private final List<MergePolicy> mergePolicies;
+
+    /**
+     * 各分片的快照删除策略，被快照引用的提交在释放前不会被删除
+     */
+    private final List<SnapshotDeletionPolicy> snapshotPolicies;
+
+    /**
+     * 写入代数：每次全量重建开始时加一，写入的文档都带上当前代数；启动时从索引中的最大值继续
+     */
+    private final AtomicLong generation;
+
+    public IndexWriterService(Path indexPath, EntitySchema<?> schema, LuceneProperties properties) throws IOException {
+        this(indexPath, schema, properties, Metrics.globalRegistry);
+    }
+
+    public IndexWriterService(Path indexPath, EntitySchema<?> schema, LuceneProperties properties, MeterRegistry registry) throws IOException {
+        LuceneProperties.Writer config = properties.getWriter();
+        this.metrics = new IndexWriterMetrics(registry);
+        this.idField = schema.getIdField();
+        int shards = Math.max(1, properties.getIndex().getShards());
+        this.shardCount = shards;
+        this.ramBufferSizeMb = config.getRamBufferSizeMb() / shards;
+        this.bulkLoadConfig = config.getBulkLoad();
+        Sort indexSort = indexSort(schema, config);
+        List<Directory> directories = new ArrayList<>(shards);
+        List<IndexWriter> writers = new ArrayList<>(shards);
+        List<SnapshotDeletionPolicy> snapshotPolicies = new ArrayList<>(shards);
+        try {
+            for (int i = 0; i < shards; i++) {
+                // 单分片时沿用原来的目录，多分片时每个分片一个子目录
+                Path shardPath = shards == 1 ? indexPath : indexPath.resolve("shard-" + i);
+                Directory directory = openDirectory(shardPath, properties.getIndex().getPreloadExtensions());
+                directories.add(directory);
+                IndexWriterConfig iwc = new IndexWriterConfig(schema.getAnalyzer());
+                iwc.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+                // 内存缓冲总量在各分片间平分
+                iwc.setRAMBufferSizeMB(ramBufferSizeMb);
+                checkIndexSort(directory, indexSort);
+                if (indexSort != null) {
+                    iwc.setIndexSort(indexSort);
+                }
+                metrics.configure(iwc);
+                configureMerges(iwc, config.getMerge());
+                metrics.countFlushes(iwc, directory);
+                if (!schema.getVectorFields().isEmpty()) {
+                    iwc.setCodec(VectorCodec.create(config.getVector()));
+                }
+                // 平时只保留最后一次提交，备份和复制期间快照引用的提交不会被删除
+                SnapshotDeletionPolicy snapshotPolicy = new SnapshotDeletionPolicy(new KeepOnlyLastCommitDeletionPolicy());
+                iwc.setIndexDeletionPolicy(snapshotPolicy);
+                IndexWriter writer = new IndexWriter(directory, iwc);
+                writers.add(writer);
+                snapshotPolicies.add(snapshotPolicy);
+                if (!DirectoryReader.indexExists(directory)) {
+                    // 新索引先提交一次，保证随时都有可以快照的提交
+                    commit(writer);
+                }
+                metrics.bind(writer, i);
+            }
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeWhileHandlingException(writers);
+            IOUtils.closeWhileHandlingException(directories);
+            throw e;
+        }
+        this.directories = List.copyOf(directories);
+        this.writers = List.copyOf(writers);
+        this.snapshotPolicies = List.copyOf(snapshotPolicies);
+        List<MergePolicy> mergePolicies = new ArrayList<>(shards);
+        for (IndexWriter writer : this.writers) {
+            mergePolicies.add(writer.getConfig().getMergePolicy());
+        }
+        this.mergePolicies = List.copyOf(mergePolicies);
+        metrics.bindPending(pendingDocs);
+        this.maxPendingDocs = config.getMaxPendingDocs();
+        this.committedSeqNos = new long[shards];
+        Arrays.fill(committedSeqNos, -1);
+
+        // 刷新交给 reopenThread 控制，这里不再单独定时刷新
+        LuceneProperties.Searcher searcher = properties.getSearcher();
+        this.searcherManager = new IndexSearcherManager(this.writers, searcher, false);
+        this.generation = new AtomicLong(maxGeneration());
+        List<ControlledRealTimeReopenThread<IndexSearcher>> reopenThreads = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            ControlledRealTimeReopenThread<IndexSearcher> reopenThread = new ControlledRealTimeReopenThread<>(
+                    this.writers.get(i), searcherManager.getSearcherManagers().get(i),
+                    Math.max(searcher.getRefreshIntervalMs(), searcher.getNrtMinStaleMs()) / 1000.0, searcher.getNrtMinStaleMs() / 1000.0);
+            reopenThread.setName(shards == 1 ? "lucene-nrt-reopen" : "lucene-nrt-reopen-" + i);
+            reopenThread.setDaemon(true);
+            reopenThread.start();
+            reopenThreads.add(reopenThread);
+        }
+        this.reopenThreads = List.copyOf(reopenThreads);
+
+        this.committer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "lucene-group-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = config.getCommitIntervalMs();
+        this.committer.scheduleWithFixedDelay(this::commitQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 索引中已有文档的最大写入代数，没有时为 0
+     */
+    private long maxGeneration() throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            byte[] max = PointValues.getMaxPackedValue(searcher.getIndexReader(), EntitySchema.GENERATION_FIELD);
+            return max == null ? 0 : LongPoint.decodeDimension(max, 0);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * 当前写入代数，写入的文档带上它
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * 开始一次全量重建：代数加一并返回新代数，之后写入的文档代数都不小于它
+     */
+    public long nextGeneration() {
+        return generation.incrementAndGet();
+    }
+
+    /**
+     * 打开索引目录，配置了预读扩展名时使用 MMapDirectory，打开这些文件时立即读入页缓存，
+     * 避免冷启动后的首批查询触发大量缺页；只读副本也用它打开目录，和写入方保持一致
+     */
+    public static Directory openDirectory(Path indexPath, List<String> preloadExtensions) throws IOException {
+        if (preloadExtensions == null || preloadExtensions.isEmpty()) {
+            return FSDirectory.open(indexPath);
+        }
+        Set<String> extensions = Set.copyOf(preloadExtensions);
+        MMapDirectory directory = new MMapDirectory(indexPath);
+        directory.setPreload((name, context) -> extensions.contains(IndexFileNames.getExtension(name)));
+        return directory;
+    }
+
+    /**
+     * 合并策略和合并线程配置
+     */
+    private static void configureMerges(IndexWriterConfig iwc, LuceneProperties.Merge merge) {
+        TieredMergePolicy mergePolicy = new TieredMergePolicy();
+        mergePolicy.setSegmentsPerTier(merge.getSegmentsPerTier());
+        mergePolicy.setMaxMergedSegmentMB(merge.getMaxMergedSegmentMb());
+        mergePolicy.setFloorSegmentMB(merge.getFloorSegmentMb());
+        mergePolicy.setDeletesPctAllowed(merge.getDeletesPctAllowed());
+        iwc.setMergePolicy(mergePolicy);
+        ConcurrentMergeScheduler scheduler = (ConcurrentMergeScheduler) iwc.getMergeScheduler();
+        if (merge.getMaxThreads() > 0) {
+            int maxMerges = merge.getMaxMerges() > 0 ? Math.max(merge.getMaxMerges(), merge.getMaxThreads()) : merge.getMaxThreads() + 5;
+            scheduler.setMaxMergesAndThreads(maxMerges, merge.getMaxThreads());
+        }
+        if (!merge.isAutoIoThrottle()) {
+            scheduler.disableAutoIOThrottle();
+        }
+    }
+
+    /**
+     * 进入批量导入模式：加大内存缓冲、暂停分组提交，按配置暂停合并，刷出的段更少更大；
+     * 必须和 endBulkLoad 成对调用，可以嵌套或多个导入同时进行，最后一个结束时恢复。
+     * 期间以 COMMIT 等级写入的调用方要等到导入结束后的提交才返回
+     */
+    public synchronized void beginBulkLoad() {
+        if (bulkLoads++ > 0) {
+            return;
+        }
+        bulkLoading = true;
+        for (IndexWriter writer : writers) {
+            LiveIndexWriterConfig config = writer.getConfig();
+            config.setRAMBufferSizeMB(bulkLoadConfig.getRamBufferSizeMb() / shardCount);
+            if (bulkLoadConfig.isDeferMerges()) {
+                config.setMergePolicy(NoMergePolicy.INSTANCE);
+            }
+        }
+        log.info("进入批量导入模式");
+    }
+
+    /**
+     * 结束批量导入，按配置的段数强制合并
+     */
+    public void endBulkLoad() throws IOException {
+        endBulkLoad(bulkLoadConfig.getForceMergeSegments());
+    }
+
+    /**
+     * 结束批量导入：恢复平时的配置，合并后提交
+     *
+     * @param forceMergeSegments 强制合并到的段数，小于等于 0 时只按合并策略合并；强制合并会阻塞到合并完成
+     */
+    public void endBulkLoad(int forceMergeSegments) throws IOException {
+        synchronized (this) {
+            if (bulkLoads == 0) {
+                throw new IllegalStateException("没有进行中的批量导入");
+            }
+            if (--bulkLoads > 0) {
+                return;
+            }
+            for (int i = 0; i < writers.size(); i++) {
+                LiveIndexWriterConfig config = writers.get(i).getConfig();
+                config.setRAMBufferSizeMB(ramBufferSizeMb);
+                config.setMergePolicy(mergePolicies.get(i));
+            }
+            bulkLoading = false;
+        }
+        long start = System.currentTimeMillis();
+        for (IndexWriter writer : writers) {
+            if (forceMergeSegments > 0) {
+                writer.forceMerge(forceMergeSegments);
+            } else {
+                // 导入期间暂停的合并在后台补上
+                writer.maybeMerge();
+            }
+        }
+        commit();
+        log.info("退出批量导入模式，合并耗时 {} ms", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 是否处于批量导入模式
+     */
+    public boolean isBulkLoading() {
+        return bulkLoading;
+    }
+
+    /**
+     * 各分片的段统计，读取当前 NRT reader 上的段，不包含还在内存缓冲中的文档
+     */
+    public IndexStats segmentStats() throws IOException {
+        List<IndexStats.SegmentStats> segments = new ArrayList<>();
+        boolean pendingMerges = false;
+        List<SearcherManager> managers = searcherManager.getSearcherManagers();
+        for (int shard = 0; shard < managers.size(); shard++) {
+            pendingMerges |= writers.get(shard).hasPendingMerges();
+            IndexSearcher searcher = managers.get(shard).acquire();
+            try {
+                for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                    if (FilterLeafReader.unwrap(leaf.reader()) instanceof SegmentReader segmentReader) {
+                        SegmentCommitInfo info = segmentReader.getSegmentInfo();
+                        segments.add(new IndexStats.SegmentStats(shard, info.info.name, info.info.maxDoc(),
+                                info.info.maxDoc() - segmentReader.numDocs(), info.sizeInBytes(),
+                                info.info.getUseCompoundFile(), info.info.getDiagnostics().get("source")));
+                    }
+                }
+            } finally {
+                managers.get(shard).release(searcher);
+            }
+        }
+        return IndexStats.of(segments, pendingMerges, bulkLoading);
+    }
+
+    /**
+     * 强制合并到指定段数，阻塞到合并完成后提交；会重写整个索引，只在离线或低峰时调用
+     */
+    public void forceMerge(int maxSegments) throws IOException {
+        if (maxSegments < 1) {
+            throw new IllegalArgumentException("段数至少为 1");
+        }
+        for (IndexWriter writer : writers) {
+            writer.forceMerge(maxSegments);
+        }
+        commit();
+    }
+
+    /**
+     * 给各分片最后一次提交打快照，快照释放前其中的文件不会被删除，可以在写入继续进行的同时
+     * 复制出去做备份或复制到副本；使用完后必须关闭快照
+     */
+    public IndexSnapshot snapshot() throws IOException {
+        List<IndexCommit> commits = new ArrayList<>(writers.size());
+        try {
+            for (SnapshotDeletionPolicy snapshotPolicy : snapshotPolicies) {
+                commits.add(snapshotPolicy.snapshot());
+            }
+        } catch (IOException | RuntimeException e) {
+            release(commits);
+            throw e;
+        }
+        return new IndexSnapshot(this, commits);
+    }
+
+    /**
+     * 释放快照，删除已经不被任何提交引用的文件
+     */
+    void release(List<IndexCommit> commits) throws IOException {
+        for (int i = 0; i < commits.size(); i++) {
+            snapshotPolicies.get(i).release(commits.get(i));
+            writers.get(i).deleteUnusedFiles();
+        }
+    }
+
+    /**
+     * 索引内按主要排序字段存放文档，按同一字段排序的查询收集够结果后可以提前结束；
+     * 已有索引的排序方式不能修改，修改后需要重建索引
+     */
+    private static Sort indexSort(EntitySchema<?> schema, LuceneProperties.Writer config) {
+        String field = config.getIndexSortField();
+        if (field == null || field.isEmpty()) {
+            return null;
+        }
+        if (!schema.field(field).isDocValues()) {
+            throw new IllegalArgumentException("索引排序字段必须有 doc values: " + field);
+        }
+        return new Sort(new SortField(field, SortField.Type.STRING, config.isIndexSortReverse()));
+    }
+
+    /**
+     * 已有索引的段排序方式必须和配置一致，不一致时打开 writer 会失败或者新旧段排序混杂，
+     * 这里提前给出明确的提示
+     */
+    private static void checkIndexSort(Directory directory, Sort indexSort) throws IOException {
+        if (!DirectoryReader.indexExists(directory)) {
+            return;
+        }
+        for (SegmentCommitInfo info : SegmentInfos.readLatestCommit(directory)) {
+            Sort segmentSort = info.info.getIndexSort();
+            if (!Objects.equals(segmentSort, indexSort)) {
+                throw new IllegalStateException("已有索引的排序方式 " + (segmentSort == null ? "<不排序>" : segmentSort)
+                        + " 和配置的 " + (indexSort == null ? "<不排序>" : indexSort)
+                        + " 不一致，请删除索引目录后重建索引，或者改回原来的 index-sort-field 配置: " + directory);
+            }
+        }
+    }
+
+    /**
+     * 添加单个文档
+     *
+     * @return 本次写入的序列号
+     */
+    public long addDocument(Document document, Durability durability) throws IOException {
+        int shard = shardOf(document);
+        long seqNo = writers.get(shard).addDocument(document);
+        metrics.docs(1);
+        afterWrite(1);
+        await(shard, seqNo, durability);
+        return seqNo;
+    }
+
+    /**
+     * 批量添加文档，IndexWriter 本身线程安全，多个线程可以同时调用
+     *
+     * @return 本次写入的序列号，多分片时为各分片序列号的最大值，只能传回 await
+     */
+    public long addDocuments(List<Document> documents, Durability durability) throws IOException {
+        long seqNo = -1;
+        if (writers.size() == 1) {
+            seqNo = writers.get(0).addDocuments(documents);
+        } else {
+            List<List<Document>> routed = route(documents, this::shardOf);
+            for (int shard = 0; shard < routed.size(); shard++) {
+                if (!routed.get(shard).isEmpty()) {
+                    seqNo = Math.max(seqNo, writers.get(shard).addDocuments(routed.get(shard)));
+                }
+            }
+        }
+        metrics.docs(documents.size());
+        afterWrite(documents.size());
+        await(seqNo, durability);
+        return seqNo;
+    }
+
+    /**
+     * 按主键覆盖写入：先删除匹配 idTerm 的旧文档再添加，两步是原子的
+     *
+     * @return 本次写入的序列号
+     */
+    public long updateDocument(Term idTerm, Document document, Durability durability) throws IOException {
+        int shard = shardOf(idTerm);
+        long seqNo = writers.get(shard).updateDocument(idTerm, document);
+        metrics.docs(1);
+        afterWrite(1);
+        await(shard, seqNo, durability);
+        return seqNo;
+    }
+
+    /**
+     * 批量按主键覆盖写入，idTerms 和 documents 一一对应
+     *
+     * @return 最后一次写入的序列号
+     */
+    public long updateDocuments(List<Term> idTerms, List<Document> documents, Durability durability) throws IOException {
+        if (idTerms.size() != documents.size()) {
+            throw new IllegalArgumentException("主键和文档数量不一致");
+        }
+        long seqNo = -1;
+        for (int i = 0; i < documents.size(); i++) {
+            Term idTerm = idTerms.get(i);
+            seqNo = Math.max(seqNo, writers.get(shardOf(idTerm)).updateDocument(idTerm, documents.get(i)));
+        }
+        metrics.docs(documents.size());
+        afterWrite(documents.size());
+        await(seqNo, durability);
+        return seqNo;
+    }
+
+    /**
+     * 按词项删除，主键词项只发到所在分片，其它词项发到所有分片
+     *
+     * @return 本次删除的序列号
+     */
+    public long deleteDocuments(Durability durability, Term... terms) throws IOException {
+        long seqNo = -1;
+        if (writers.size() == 1) {
+            seqNo = writers.get(0).deleteDocuments(terms);
+        } else {
+            List<List<Term>> routed = route(Arrays.asList(terms), t -> idField.equals(t.field()) ? shardOf(t) : -1);
+            for (int shard = 0; shard < routed.size(); shard++) {
+                if (!routed.get(shard).isEmpty()) {
+                    seqNo = Math.max(seqNo, writers.get(shard).deleteDocuments(routed.get(shard).toArray(new Term[0])));
+                }
+            }
+        }
+        afterWrite(terms.length);
+        await(seqNo, durability);
+        return seqNo;
+    }
+
+    /**
+     * 按查询删除，发到所有分片
+     *
+     * @return 本次删除的序列号，多分片时为各分片序列号的最大值，只能传回 await
+     */
+    public long deleteByQuery(Durability durability, Query query) throws IOException {
+        long seqNo = -1;
+        for (IndexWriter writer : writers) {
+            seqNo = Math.max(seqNo, writer.deleteDocuments(query));
+        }
+        afterWrite(1);
+        await(seqNo, durability);
+        return seqNo;
+    }
+
+    /**
+     * 删除全部文档，在下一次提交前对已提交的数据没有影响
+     */
+    public long deleteAll(Durability durability) throws IOException {
+        long seqNo = -1;
+        for (IndexWriter writer : writers) {
+            seqNo = Math.max(seqNo, writer.deleteAll());
+        }
+        afterWrite(1);
+        await(seqNo, durability);
+        return seqNo;
+    }
+
+    /**
+     * 按持久化等级等待某次写入；多分片时各分片的序列号互不相关，VISIBLE 会等到各分片上
+     * 已完成的写入全部可见
+     *
+     * @param seqNo      写入返回的序列号
+     * @param durability 持久化等级
+     */
+    public void await(long seqNo, Durability durability) throws IOException {
+        await(writers.size() == 1 ? 0 : -1, seqNo, durability);
+    }
+
+    /**
+     * @param shard 写入所在的分片，-1 表示所有分片
+     */
+    private void await(int shard, long seqNo, Durability durability) throws IOException {
+        switch (durability) {
+            case VISIBLE -> {
+                try {
+                    if (shard >= 0) {
+                        reopenThreads.get(shard).waitForGeneration(seqNo);
+                    } else {
+                        for (int i = 0; i < writers.size(); i++) {
+                            reopenThreads.get(i).waitForGeneration(writers.get(i).getMaxCompletedSequenceNumber());
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("等待索引刷新被中断");
+                }
+            }
+            case COMMIT -> {
+                long[] targets = new long[writers.size()];
+                Arrays.fill(targets, -1);
+                if (shard >= 0) {
+                    targets[shard] = seqNo;
+                } else {
+                    for (int i = 0; i < writers.size(); i++) {
+                        targets[i] = writers.get(i).getMaxCompletedSequenceNumber();
+                    }
+                }
+                awaitCommitted(targets);
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * 等到各分片落盘的序列号都不小于目标序列号；写入可能在一次提交已经开始后才完成，
+     * 不能只等当前的 future，提交完成后按序列号重新判断，没有落盘就继续等下一次提交
+     *
+     * @param targets 各分片要等待的序列号，-1 表示不等待该分片
+     */
+    private void awaitCommitted(long[] targets) throws IOException {
+        while (true) {
+            CompletableFuture<Void> commit;
+            synchronized (commitLock) {
+                boolean committed = true;
+                for (int i = 0; i < targets.length && committed; i++) {
+                    committed = committedSeqNos[i] >= targets[i];
+                }
+                if (committed) {
+                    return;
+                }
+                commit = inFlightCommit != null ? inFlightCommit : nextCommit;
+            }
+            try {
+                commit.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待索引提交被中断");
+            } catch (ExecutionException e) {
+                throw new IOException("索引提交失败", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * 立即提交，并唤醒所有等待这次提交的调用方
+     */
+    public synchronized void commit() throws IOException {
+        CompletableFuture<Void> waiting;
+        synchronized (commitLock) {
+            waiting = nextCommit;
+            nextCommit = new CompletableFuture<>();
+            inFlightCommit = waiting;
+            pendingDocs.set(0);
+        }
+        try {
+            long start = System.nanoTime();
+            long[] seqNos = new long[writers.size()];
+            for (int i = 0; i < writers.size(); i++) {
+                IndexWriter writer = writers.get(i);
+                // 提交开始前已经完成的写入一定包含在这次提交里
+                long completed = writer.getMaxCompletedSequenceNumber();
+                seqNos[i] = Math.max(completed, commit(writer));
+            }
+            synchronized (commitLock) {
+                for (int i = 0; i < seqNos.length; i++) {
+                    committedSeqNos[i] = Math.max(committedSeqNos[i], seqNos[i]);
+                }
+            }
+            metrics.commit(System.nanoTime() - start);
+            waiting.complete(null);
+        } catch (IOException | RuntimeException e) {
+            waiting.completeExceptionally(e);
+            throw e;
+        } finally {
+            synchronized (commitLock) {
+                if (inFlightCommit == waiting) {
+                    inFlightCommit = null;
+                }
+            }
+        }
+        searcherManager.maybeRefresh();
+    }
+
+    /**
+     * 提交时记录提交时间；没有变化时不产生新的提交
+     *
+     * @return 这次提交包含的最后一个操作的序列号
+     */
+    private static long commit(IndexWriter writer) throws IOException {
+        writer.setLiveCommitData(Map.of(COMMIT_TIME_KEY, String.valueOf(System.currentTimeMillis())).entrySet(), false);
+        return writer.commit();
+    }
+
+    /**
+     * 按主键哈希选择分片，同一个主键总是落在同一个分片上
+     */
+    private int shardOf(String id) {
+        if (writers.size() == 1) {
+            return 0;
+        }
+        return Math.floorMod(Hashing.murmur3_32_fixed().hashString(id, StandardCharsets.UTF_8).asInt(), writers.size());
+    }
+
+    private int shardOf(Term idTerm) {
+        return writers.size() == 1 ? 0 : shardOf(idTerm.text());
+    }
+
+    private int shardOf(Document document) {
+        if (writers.size() == 1) {
+            return 0;
+        }
+        String id = document.get(idField);
+        if (id == null) {
+            throw new IllegalArgumentException("文档缺少主键，无法路由到分片: " + idField);
+        }
+        return shardOf(id);
+    }
+
+    /**
+     * 按分片分组，shardOf 返回 -1 的元素发到所有分片
+     */
+    private <E> List<List<E>> route(List<E> items, ToIntFunction<E> shardOf) {
+        List<List<E>> routed = new ArrayList<>(writers.size());
+        for (int i = 0; i < writers.size(); i++) {
+            routed.add(new ArrayList<>());
+        }
+        for (E item : items) {
+            int shard = shardOf.applyAsInt(item);
+            if (shard < 0) {
+                routed.forEach(list -> list.add(item));
+            } else {
+                routed.get(shard).add(item);
+            }
+        }
+        return routed;
+    }
+
+    private void afterWrite(int docs) {
+        if (pendingDocs.addAndGet(docs) >= maxPendingDocs && !bulkLoading && commitScheduled.compareAndSet(false, true)) {
+            committer.execute(() -> {
+                try {
+                    commitQuietly();
+                } finally {
+                    commitScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    private void commitQuietly() {
+        if (pendingDocs.get() == 0 || bulkLoading) {
+            return;
+        }
+        try {
+            commit();
+        } catch (Exception e) {
+            log.error("分组提交失败", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        committer.shutdown();
+        try {
+            committer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        IOUtils.close(reopenThreads);
+        try {
+            commit();
+            searcherManager.close();
+        } finally {
+            try {
+                IOUtils.close(writers);
+            } finally {
+                IOUtils.close(directories);
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.whh.springboot3.lucene.index;
+
+/**
+ * @Author wanghonghui
+ * @Description 增量同步的结果
+ * @Date 2026/10/17 20:10
+ *
+ * @param added     新增的文档数
+ * @param updated   内容变化后重写的文档数
+ * @param unchanged 内容没有变化、跳过的文档数
+ * @param deleted   源数据中已不存在、被删除的文档数
+ */
+public record SyncResult(long added, long updated, long unchanged, long deleted) {
+}
@@ -0,0 +1,60 @@
+package com.whh.springboot3.lucene.index;
+
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.KnnVectorsFormat;
+import org.apache.lucene.codecs.lucene100.Lucene100Codec;
+import org.apache.lucene.codecs.lucene99.Lucene99HnswScalarQuantizedVectorsFormat;
+import org.apache.lucene.codecs.lucene99.Lucene99HnswVectorsFormat;
+
+/**
+ * @Author wanghonghui
+ * @Description 按配置的 HNSW 参数和量化方式写向量字段的编解码器；各字段使用的格式记录在段里，
+ * 读取时不需要这个编解码器，修改配置后新写入的段按新格式，旧段合并时转换
+ * @Date 2026/10/17 23:20
+ */
+public final class VectorCodec {
+
+    /**
+     * 向量量化方式
+     */
+    public enum Quantization {
+        /**
+         * 不量化，float32
+         */
+        NONE,
+        /**
+         * 每维 1 字节，内存约为 float32 的 1/4，召回率损失很小
+         */
+        INT8,
+        /**
+         * 每维半字节，内存约为 float32 的 1/8，召回率损失稍大
+         */
+        INT4
+    }
+
+    private VectorCodec() {
+    }
+
+    public static Codec create(LuceneProperties.Vector config) {
+        KnnVectorsFormat format = format(config);
+        return new Lucene100Codec() {
+            @Override
+            public KnnVectorsFormat getKnnVectorsFormatForField(String field) {
+                return format;
+            }
+        };
+    }
+
+    private static KnnVectorsFormat format(LuceneProperties.Vector config) {
+        int maxConn = config.getMaxConn();
+        int beamWidth = config.getBeamWidth();
+        return switch (config.getQuantization()) {
+            case NONE -> new Lucene99HnswVectorsFormat(maxConn, beamWidth);
+            // 7 位即 int8，置信区间为 null 时按维度自动计算
+            case INT8 -> new Lucene99HnswScalarQuantizedVectorsFormat(maxConn, beamWidth, 1, 7, false, null, null);
+            // 4 位压缩存储，置信区间为 0 时动态计算，4 位量化推荐这样设置
+            case INT4 -> new Lucene99HnswScalarQuantizedVectorsFormat(maxConn, beamWidth, 1, 4, true, 0f, null);
+        };
+    }
+}
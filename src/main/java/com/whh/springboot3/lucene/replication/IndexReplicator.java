@@ -0,0 +1,348 @@
+package com.whh.springboot3.lucene.replication;
+
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.index.IndexSnapshot;
+import com.whh.springboot3.lucene.index.IndexWriterService;
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author wanghonghui
+ * @Description 段复制：定时给主索引的最后一次提交打快照，只把副本目录里还没有的段文件复制过去，
+ * segments_N 最后以改名的方式原子发布；副本实例定时刷新时要么还是旧提交，要么切到完整的新提交
+ * @Date 2026/10/18 00:10
+ */
+@Slf4j
+public class IndexReplicator implements Closeable {
+
+    /**
+     * 实例角色
+     */
+    public enum Role {
+        /**
+         * 写入并推送新段
+         */
+        PRIMARY,
+        /**
+         * 只读副本
+         */
+        REPLICA
+    }
+
+    /**
+     * 复制中的 segments_N 先写成这个前缀的临时文件，lucene 不会把它当成提交
+     */
+    private static final String PENDING_PREFIX = "pending_";
+
+    private final IndexWriterService writerService;
+
+    /**
+     * 每个副本目录的每个分片一个
+     */
+    private final List<Target> targets;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Timer syncs;
+
+    public IndexReplicator(IndexWriterService writerService, LuceneProperties properties, MeterRegistry registry) throws IOException {
+        this.writerService = writerService;
+        int shards = writerService.getWriters().size();
+        Path indexPath = Paths.get(properties.getIndex().getPath()).toAbsolutePath().normalize();
+        List<Target> targets = new ArrayList<>();
+        try {
+            for (String name : properties.getReplication().getTargets()) {
+                Path root = Paths.get(name).toAbsolutePath().normalize();
+                if (root.equals(indexPath)) {
+                    throw new IllegalArgumentException("副本目录不能和主索引目录相同: " + name);
+                }
+                for (int shard = 0; shard < shards; shard++) {
+                    Path path = shards == 1 ? root : root.resolve("shard-" + shard);
+                    Files.createDirectories(path);
+                    targets.add(new Target(name, shard, FSDirectory.open(path)));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeWhileHandlingException(targets);
+            throw e;
+        }
+        this.targets = List.copyOf(targets);
+        this.syncs = Timer.builder("lucene.replication.sync").description("一轮复制的耗时").register(registry);
+        for (Target target : this.targets) {
+            target.bind(registry);
+        }
+        if (this.targets.isEmpty()) {
+            this.scheduler = null;
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "lucene-replicator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getReplication().getIntervalMs();
+        this.scheduler.scheduleWithFixedDelay(this::replicateQuietly, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 把最后一次提交复制到所有副本目录，单个副本失败不影响其它副本，失败原因记录在状态里
+     */
+    public synchronized void replicate() throws IOException {
+        if (targets.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (IndexSnapshot snapshot = writerService.snapshot()) {
+            for (Target target : targets) {
+                try {
+                    sync(snapshot, target);
+                    target.lastError = null;
+                } catch (IOException | RuntimeException e) {
+                    target.lastError = e.toString();
+                    target.failures.increment();
+                    log.warn("复制到副本失败: {} shard {}", target.name, target.shard, e);
+                }
+            }
+        } finally {
+            syncs.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void sync(IndexSnapshot snapshot, Target target) throws IOException {
+        int shard = target.shard;
+        long generation = snapshot.generation(shard);
+        long commitTimeMs = snapshot.commitTimeMs(shard);
+        Directory source = snapshot.directory(shard);
+        Directory replica = target.directory;
+        target.primaryGeneration = generation;
+
+        String[] existingFiles = replica.listAll();
+        long replicaGeneration = SegmentInfos.getLastCommitGeneration(existingFiles);
+        target.generation = replicaGeneration;
+        if (replicaGeneration == generation) {
+            target.pendingSinceMs = 0;
+            return;
+        }
+        if (target.pendingSinceMs == 0) {
+            target.pendingSinceMs = commitTimeMs > 0 ? commitTimeMs : System.currentTimeMillis();
+        }
+        Set<String> existing = new HashSet<>(Arrays.asList(existingFiles));
+        // 副本正在使用的提交的文件这一轮先保留，副本刷新到新提交后下一轮再删
+        Set<String> keep = new HashSet<>(snapshot.files(shard));
+        if (replicaGeneration > 0) {
+            try {
+                String replicaSegments = IndexFileNames.fileNameFromGeneration(IndexFileNames.SEGMENTS, "", replicaGeneration);
+                keep.addAll(SegmentInfos.readCommit(replica, replicaSegments).files(true));
+            } catch (IOException e) {
+                log.debug("读取副本当前提交失败: {} shard {}", target.name, shard, e);
+            }
+        }
+        if (replicaGeneration > generation) {
+            // 主索引重建过，代数比副本小；副本总是打开代数最大的提交，先删掉更新的 segments_N
+            log.warn("副本提交代数 {} 大于主索引 {}，删除副本上更新的提交: {} shard {}", replicaGeneration, generation, target.name, shard);
+            for (String file : existingFiles) {
+                if (file.startsWith(IndexFileNames.SEGMENTS + "_") && SegmentInfos.generationFromSegmentsFileName(file) > generation) {
+                    replica.deleteFile(file);
+                }
+            }
+        }
+
+        String segmentsFile = snapshot.segmentsFileName(shard);
+        List<String> copied = new ArrayList<>();
+        long bytes = 0;
+        for (String file : snapshot.files(shard)) {
+            if (file.equals(segmentsFile)) {
+                continue;
+            }
+            long length = source.fileLength(file);
+            if (existing.contains(file)) {
+                // 段文件写入后不再修改，同名同长度就是同一个文件
+                if (replica.fileLength(file) == length) {
+                    continue;
+                }
+                replica.deleteFile(file);
+            }
+            replica.copyFrom(source, file, file, IOContext.DEFAULT);
+            copied.add(file);
+            bytes += length;
+        }
+        replica.sync(copied);
+
+        // 段文件都落盘后再发布 segments_N，先写临时文件再改名，副本不会读到写了一半的提交
+        String pending = PENDING_PREFIX + segmentsFile;
+        if (existing.contains(pending)) {
+            replica.deleteFile(pending);
+        }
+        replica.copyFrom(source, segmentsFile, pending, IOContext.DEFAULT);
+        replica.sync(List.of(pending));
+        replica.rename(pending, segmentsFile);
+        replica.syncMetaData();
+        bytes += source.fileLength(segmentsFile);
+
+        long now = System.currentTimeMillis();
+        target.generation = generation;
+        target.lastLagMs = commitTimeMs > 0 ? now - commitTimeMs : -1;
+        target.pendingSinceMs = 0;
+        target.lastFiles = copied.size() + 1;
+        target.lastBytes = bytes;
+        target.lastSyncMs = now;
+        target.bytes.increment(bytes);
+        log.debug("复制提交 {} 到 {} shard {}，{} 个文件 {} 字节", generation, target.name, shard, target.lastFiles, bytes);
+
+        deleteUnused(replica, keep);
+    }
+
+    /**
+     * 删除副本上不再被保留提交引用的索引文件，只删 lucene 的文件；
+     * 文件还被副本打开时（Windows）删除会失败，留到下一轮
+     */
+    private static void deleteUnused(Directory replica, Set<String> keep) throws IOException {
+        for (String file : replica.listAll()) {
+            if (keep.contains(file) || file.equals(IndexWriter.WRITE_LOCK_NAME)) {
+                continue;
+            }
+            if (!file.startsWith(IndexFileNames.SEGMENTS) && !file.startsWith(PENDING_PREFIX)
+                    && !IndexFileNames.CODEC_FILE_PATTERN.matcher(file).matches()) {
+                continue;
+            }
+            try {
+                replica.deleteFile(file);
+            } catch (IOException e) {
+                log.debug("删除副本文件失败，下一轮重试: {}", file, e);
+            }
+        }
+    }
+
+    private void replicateQuietly() {
+        try {
+            replicate();
+        } catch (Exception e) {
+            log.error("段复制失败", e);
+        }
+    }
+
+    /**
+     * 各副本的复制状态
+     */
+    public List<TargetStatus> status() {
+        List<TargetStatus> status = new ArrayList<>(targets.size());
+        for (Target target : targets) {
+            status.add(new TargetStatus(target.name, target.shard, target.generation, target.primaryGeneration,
+                    target.lagMs(), target.lastLagMs, target.lastFiles, target.lastBytes, target.lastSyncMs, target.lastError));
+        }
+        return status;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        IOUtils.close(targets);
+    }
+
+    /**
+     * 单个副本目录的复制状态
+     *
+     * @param target            副本目录
+     * @param shard             分片
+     * @param generation        副本上最新的提交代数，-1 表示还没有提交
+     * @param primaryGeneration 最近一轮看到的主索引提交代数
+     * @param lagMs             复制延迟：主索引上还没复制过去的最早提交距今的时间，已追上时为 0
+     * @param lastLagMs         上一次复制完成时，从主索引提交到副本落盘的时间
+     * @param lastFiles         上一次复制的文件数
+     * @param lastBytes         上一次复制的字节数
+     * @param lastSyncMs        上一次复制完成的时间
+     * @param lastError         最近一轮的失败原因，成功时为 null
+     */
+    public record TargetStatus(String target, int shard, long generation, long primaryGeneration, long lagMs,
+                               long lastLagMs, int lastFiles, long lastBytes, long lastSyncMs, String lastError) {
+    }
+
+    private static class Target implements Closeable {
+
+        final String name;
+
+        final int shard;
+
+        final Directory directory;
+
+        volatile long generation = -1;
+
+        volatile long primaryGeneration = -1;
+
+        /**
+         * 最早的未复制提交的时间，已追上时为 0
+         */
+        volatile long pendingSinceMs;
+
+        volatile long lastLagMs = -1;
+
+        volatile int lastFiles;
+
+        volatile long lastBytes;
+
+        volatile long lastSyncMs;
+
+        volatile String lastError;
+
+        Counter bytes;
+
+        Counter failures;
+
+        Target(String name, int shard, Directory directory) {
+            this.name = name;
+            this.shard = shard;
+            this.directory = directory;
+        }
+
+        long lagMs() {
+            long since = pendingSinceMs;
+            return since == 0 ? 0 : Math.max(0, System.currentTimeMillis() - since);
+        }
+
+        void bind(MeterRegistry registry) {
+            Tags tags = Tags.of("target", name, "shard", String.valueOf(shard));
+            Gauge.builder("lucene.replication.lag", this, Target::lagMs)
+                    .description("复制延迟：还没复制到副本的最早提交距今的时间")
+                    .tags(tags)
+                    .baseUnit("milliseconds")
+                    .register(registry);
+            Gauge.builder("lucene.replication.generation.lag", this, t -> Math.max(0, t.primaryGeneration - Math.max(0, t.generation)))
+                    .description("副本落后主索引的提交代数")
+                    .tags(tags)
+                    .register(registry);
+            bytes = Counter.builder("lucene.replication.bytes").description("复制的字节数").tags(tags)
+                    .baseUnit(BaseUnits.BYTES).register(registry);
+            failures = Counter.builder("lucene.replication.failures").description("复制失败次数").tags(tags).register(registry);
+        }
+
+        @Override
+        public void close() throws IOException {
+            directory.close();
+        }
+    }
+}
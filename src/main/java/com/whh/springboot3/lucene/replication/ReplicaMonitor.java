@@ -0,0 +1,99 @@
+package com.whh.springboot3.lucene.replication;
+
+import com.whh.springboot3.lucene.index.IndexWriterService;
+import com.whh.springboot3.lucene.search.IndexSearcherManager;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * @Author wanghonghui
+ * @Description 只读副本上正在提供搜索的提交：代数、主索引上的提交时间，以及目录里是否已有还没刷新到的新提交
+ * @Date 2026/10/18 00:30
+ */
+@Slf4j
+public class ReplicaMonitor implements MeterBinder {
+
+    private final IndexSearcherManager searcherManager;
+
+    public ReplicaMonitor(IndexSearcherManager searcherManager) {
+        this.searcherManager = searcherManager;
+    }
+
+    /**
+     * 各分片当前搜索使用的提交
+     */
+    public List<ServedCommit> status() throws IOException {
+        List<SearcherManager> managers = searcherManager.getSearcherManagers();
+        List<ServedCommit> status = new ArrayList<>(managers.size());
+        for (int shard = 0; shard < managers.size(); shard++) {
+            status.add(served(managers.get(shard), shard));
+        }
+        return status;
+    }
+
+    private static ServedCommit served(SearcherManager manager, int shard) throws IOException {
+        IndexSearcher searcher = manager.acquire();
+        try {
+            DirectoryReader reader = (DirectoryReader) searcher.getIndexReader();
+            IndexCommit commit = reader.getIndexCommit();
+            long latest = SegmentInfos.getLastCommitGeneration(reader.directory());
+            String value = commit.getUserData().get(IndexWriterService.COMMIT_TIME_KEY);
+            long commitTimeMs = value == null ? -1 : Long.parseLong(value);
+            long ageMs = commitTimeMs < 0 ? -1 : Math.max(0, System.currentTimeMillis() - commitTimeMs);
+            return new ServedCommit(shard, commit.getGeneration(), latest, commitTimeMs, ageMs);
+        } finally {
+            manager.release(searcher);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        List<SearcherManager> managers = searcherManager.getSearcherManagers();
+        for (int shard = 0; shard < managers.size(); shard++) {
+            SearcherManager manager = managers.get(shard);
+            int s = shard;
+            Gauge.builder("lucene.replica.commit.age", () -> gauge(manager, s, ServedCommit::ageMs))
+                    .description("正在搜索的提交在主索引上提交至今的时间，主索引持续写入时即端到端的复制延迟")
+                    .tag("shard", String.valueOf(shard))
+                    .baseUnit("milliseconds")
+                    .register(registry);
+            Gauge.builder("lucene.replica.refresh.pending", () -> gauge(manager, s, c -> Math.max(0, c.latestGeneration() - c.generation())))
+                    .description("已复制到目录但还没刷新到搜索器的提交代数")
+                    .tag("shard", String.valueOf(shard))
+                    .register(registry);
+        }
+    }
+
+    private static double gauge(SearcherManager manager, int shard, ToLongFunction<ServedCommit> value) {
+        try {
+            return value.applyAsLong(served(manager, shard));
+        } catch (IOException | RuntimeException e) {
+            log.debug("读取副本提交失败: shard {}", shard, e);
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * 副本单个分片正在使用的提交
+     *
+     * @param shard            分片
+     * @param generation       搜索器打开的提交代数
+     * @param latestGeneration 目录里最新的提交代数，大于 generation 时说明新提交已复制过来但还没刷新
+     * @param commitTimeMs     该提交在主索引上的提交时间，没有记录时为 -1
+     * @param ageMs            提交至今的时间；主索引空闲时会一直增长，此时以主索引上的复制状态为准
+     */
+    public record ServedCommit(int shard, long generation, long latestGeneration, long commitTimeMs, long ageMs) {
+    }
+}
@@ -0,0 +1,35 @@
+package com.whh.springboot3.lucene.schema;
+
+import com.whh.springboot3.lucene.Cons;
+import com.whh.springboot3.lucene.entity.Author;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.VectorSimilarityFunction;
+
+import java.util.List;
+
+/**
+ * @Author wanghonghui
+ * @Description 作者索引结构
+ * @Date 2026/10/17 17:45
+ */
+public final class AuthorSchema {
+
+    private AuthorSchema() {
+    }
+
+    static EntitySchema<Author> create() {
+        return new EntitySchema<>(Author.class, Author::new, Cons.AUTHOR_ID,
+                // desc 的向量由调用方传入，维度取决于调用方的模型
+                List.of(new VectorFieldSchema<>(Cons.AUTHOR_DESC_VECTOR, 0, VectorSimilarityFunction.DOT_PRODUCT, Author::getDescVector)),
+                // id 和 name 可排序，写 SortedDocValues
+                FieldSchema.builder(Cons.AUTHOR_ID, FieldSchema.Type.KEYWORD, Author::getId, Author::setId).docValues(true).build(),
+                // name 和 desc 额外建二元分词字段，中文短语查询查二元词项，倒排表短得多
+                FieldSchema.builder(Cons.AUTHOR_NAME, FieldSchema.Type.KEYWORD, Author::getName, Author::setName).docValues(true).bigram(true).build(),
+                // desc 在倒排中记录 offset，高亮时不需要重新分词
+                FieldSchema.builder(Cons.AUTHOR_DESC, FieldSchema.Type.TEXT, Author::getDesc, Author::setDesc)
+                        .indexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS)
+                        .bigram(true)
+                        .build()
+        );
+    }
+}
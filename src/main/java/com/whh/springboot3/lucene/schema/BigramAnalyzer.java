@@ -0,0 +1,46 @@
+package com.whh.springboot3.lucene.schema;
+
+import org.apache.lucene.analysis.*;
+import org.apache.lucene.analysis.cjk.CJKAnalyzer;
+import org.apache.lucene.analysis.cjk.CJKBigramFilter;
+import org.apache.lucene.analysis.cjk.CJKWidthCharFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+
+import java.io.Reader;
+
+/**
+ * @Author wanghonghui
+ * @Description 二元分词字段的分词器：和 CJKAnalyzer 相同，另外给每个字输出单字词项（和它开头的二元词项位置相同），
+ * 单个字的查询直接查单字词项，不需要展开二元词项
+ * @Date 2026/10/18 14:00
+ */
+public final class BigramAnalyzer extends StopwordAnalyzerBase {
+
+    public BigramAnalyzer() {
+        super(CJKAnalyzer.getDefaultStopSet());
+    }
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        Tokenizer source = new StandardTokenizer();
+        TokenStream result = new LowerCaseFilter(source);
+        result = new CJKBigramFilter(result, CJKBigramFilter.HAN | CJKBigramFilter.HIRAGANA
+                | CJKBigramFilter.KATAKANA | CJKBigramFilter.HANGUL, true);
+        return new TokenStreamComponents(source, new StopFilter(result, stopwords));
+    }
+
+    @Override
+    protected TokenStream normalize(String fieldName, TokenStream in) {
+        return new LowerCaseFilter(in);
+    }
+
+    @Override
+    protected Reader initReader(String fieldName, Reader reader) {
+        return new CJKWidthCharFilter(reader);
+    }
+
+    @Override
+    protected Reader initReaderForNormalization(String fieldName, Reader reader) {
+        return new CJKWidthCharFilter(reader);
+    }
+}
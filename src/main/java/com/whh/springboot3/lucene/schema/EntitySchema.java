@@ -0,0 +1,251 @@
+package com.whh.springboot3.lucene.schema;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import lombok.Getter;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * @Author wanghonghui
+ * @Description 一类实体的索引结构，建好后不可变，索引和搜索共用同一个实例，可以跨线程共享
+ * @Date 2026/10/17 17:35
+ */
+@Getter
+public class EntitySchema<T> {
+
+    /**
+     * 内容哈希字段，只写 doc values，增量同步时用来判断实体是否变化
+     */
+    public static final String HASH_FIELD = "_hash";
+
+    /**
+     * 写入代数字段，只写 LongPoint，由写入方在转换后追加；代数只增不减，不受系统时钟影响，
+     * 全量重建结束时按它删除本次没有重写的旧文档
+     */
+    public static final String GENERATION_FIELD = "_generation";
+
+    private final Class<T> type;
+
+    /**
+     * 创建空实体，读取命中时使用
+     */
+    private final Supplier<T> factory;
+
+    /**
+     * 主键字段
+     */
+    private final String idField;
+
+    private final Map<String, FieldSchema<T>> fields;
+
+    /**
+     * 定义时传入的字段，不含派生字段，内容哈希只按这些字段计算
+     */
+    private final List<FieldSchema<T>> sourceFields;
+
+    /**
+     * 向量字段，名字不能和普通字段重复
+     */
+    private final Map<String, VectorFieldSchema<T>> vectorFields;
+
+    /**
+     * 按字段分派的分词器，索引和查询解析都用它
+     */
+    private final Analyzer analyzer;
+
+    @SafeVarargs
+    public EntitySchema(Class<T> type, Supplier<T> factory, String idField, FieldSchema<T>... fields) {
+        this(type, factory, idField, List.of(), fields);
+    }
+
+    /**
+     * @param vectorFields 向量字段
+     */
+    @SafeVarargs
+    public EntitySchema(Class<T> type, Supplier<T> factory, String idField, List<VectorFieldSchema<T>> vectorFields, FieldSchema<T>... fields) {
+        this.type = type;
+        this.factory = factory;
+        this.idField = idField;
+        Map<String, FieldSchema<T>> map = new LinkedHashMap<>();
+        Map<String, Analyzer> analyzers = new HashMap<>();
+        this.sourceFields = List.of(fields);
+        List<FieldSchema<T>> all = new ArrayList<>(sourceFields);
+        for (FieldSchema<T> field : fields) {
+            if (field.isBigram()) {
+                all.add(field.bigramField());
+            }
+        }
+        all.add(FieldSchema.<T>builder(HASH_FIELD, FieldSchema.Type.STORED, this::hash, null)
+                .stored(false)
+                .docValues(true)
+                .build());
+        for (FieldSchema<T> field : all) {
+            if (map.put(field.getName(), field) != null) {
+                throw new IllegalArgumentException("字段重复定义: " + field.getName());
+            }
+            analyzers.put(field.getName(), field.getAnalyzer());
+        }
+        if (!map.containsKey(idField)) {
+            throw new IllegalArgumentException("主键字段未定义: " + idField);
+        }
+        Map<String, VectorFieldSchema<T>> vectors = new LinkedHashMap<>();
+        for (VectorFieldSchema<T> field : vectorFields) {
+            if (map.containsKey(field.getName()) || vectors.put(field.getName(), field) != null) {
+                throw new IllegalArgumentException("字段重复定义: " + field.getName());
+            }
+        }
+        this.vectorFields = Collections.unmodifiableMap(vectors);
+        this.fields = Collections.unmodifiableMap(map);
+        this.analyzer = new PerFieldAnalyzerWrapper(new StandardAnalyzer(), analyzers);
+    }
+
+    /**
+     * 获取字段定义，字段不存在时抛出异常
+     */
+    public FieldSchema<T> field(String name) {
+        FieldSchema<T> field = fields.get(name);
+        if (field == null) {
+            throw new IllegalArgumentException("未定义的字段: " + name);
+        }
+        return field;
+    }
+
+    public boolean hasField(String name) {
+        return fields.containsKey(name);
+    }
+
+    /**
+     * 获取向量字段定义，字段不存在时抛出异常
+     */
+    public VectorFieldSchema<T> vectorField(String name) {
+        VectorFieldSchema<T> field = vectorFields.get(name);
+        if (field == null) {
+            throw new IllegalArgumentException("未定义的向量字段: " + name);
+        }
+        return field;
+    }
+
+    /**
+     * 字段对应的二元分词字段名，没有时返回 null
+     */
+    public String bigramField(String name) {
+        return field(name).isBigram() ? name + FieldSchema.BIGRAM_SUFFIX : null;
+    }
+
+    /**
+     * 单个字段使用的分词器
+     */
+    public Analyzer getAnalyzer(String name) {
+        return field(name).getAnalyzer();
+    }
+
+    /**
+     * 按字段定义把实体转换成文档
+     */
+    public Document toDocument(T entity) {
+        Document document = new Document();
+        for (FieldSchema<T> field : fields.values()) {
+            field.addTo(document, entity);
+        }
+        for (VectorFieldSchema<T> field : vectorFields.values()) {
+            field.addTo(document, entity);
+        }
+        return document;
+    }
+
+    /**
+     * 实体内容的哈希，按定义的字段顺序对字段名和值做 murmur3_128；
+     * 向量只在有值时参与，没有向量的实体哈希和加向量字段之前一致
+     */
+    public String hash(T entity) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        for (FieldSchema<T> field : sourceFields) {
+            String value = field.getGetter().apply(entity);
+            hasher.putString(field.getName(), StandardCharsets.UTF_8).putByte((byte) 0);
+            if (value != null) {
+                hasher.putByte((byte) 1).putString(value, StandardCharsets.UTF_8);
+            }
+            hasher.putByte((byte) 0);
+        }
+        for (VectorFieldSchema<T> field : vectorFields.values()) {
+            float[] vector = field.getGetter().apply(entity);
+            if (vector != null) {
+                hasher.putString(field.getName(), StandardCharsets.UTF_8).putByte((byte) 0);
+                for (float v : vector) {
+                    hasher.putFloat(v);
+                }
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * 复制实体中可以写回的字段，和 toEntity 写入的字段一致
+     */
+    public T copy(T entity) {
+        if (entity == null) {
+            return null;
+        }
+        T copy = factory.get();
+        for (FieldSchema<T> field : sourceFields) {
+            if (field.getSetter() != null) {
+                String value = field.getGetter().apply(entity);
+                if (value != null) {
+                    field.getSetter().accept(copy, value);
+                }
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * 实体中各字段值的字符数之和，用来估算占用的内存
+     */
+    public long length(T entity) {
+        if (entity == null) {
+            return 0;
+        }
+        long length = 0;
+        for (FieldSchema<T> field : sourceFields) {
+            String value = field.getGetter().apply(entity);
+            if (value != null) {
+                length += value.length();
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 实体的主键值
+     */
+    public String id(T entity) {
+        return field(idField).getGetter().apply(entity);
+    }
+
+    /**
+     * 用存储的字段值创建实体
+     *
+     * @param values     字段名到存储值
+     * @param projection 只写入这些字段，为 null 时写入全部
+     */
+    public T toEntity(Map<String, String> values, Set<String> projection) {
+        T entity = factory.get();
+        for (FieldSchema<T> field : fields.values()) {
+            if (field.getSetter() == null || (projection != null && !projection.contains(field.getName()))) {
+                continue;
+            }
+            String value = values.get(field.getName());
+            if (value != null) {
+                field.getSetter().accept(entity, value);
+            }
+        }
+        return entity;
+    }
+}
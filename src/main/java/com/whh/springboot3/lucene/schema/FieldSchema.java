@@ -0,0 +1,191 @@
+package com.whh.springboot3.lucene.schema;
+
+import lombok.Getter;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.util.BytesRef;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * @Author wanghonghui
+ * @Description 单个字段的定义：类型、是否存储、是否有 doc values、倒排选项和分词器
+ * @Date 2026/10/17 17:20
+ */
+@Getter
+public class FieldSchema<T> {
+
+    /**
+     * 二元分词派生字段的后缀
+     */
+    public static final String BIGRAM_SUFFIX = "_bigram";
+
+    /**
+     * 字段类型
+     */
+    public enum Type {
+        /**
+         * 不分词，整体作为一个词项
+         */
+        KEYWORD,
+        /**
+         * 分词的全文字段
+         */
+        TEXT,
+        /**
+         * 只存储，不建索引
+         */
+        STORED
+    }
+
+    private final String name;
+
+    private final Type type;
+
+    private final boolean stored;
+
+    private final boolean docValues;
+
+    private final IndexOptions indexOptions;
+
+    private final Analyzer analyzer;
+
+    /**
+     * 是否额外建一个 CJK 二元分词字段（name + BIGRAM_SUFFIX），短语查询可以改写成查二元词项
+     */
+    private final boolean bigram;
+
+    /**
+     * 从实体中取字段值
+     */
+    private final Function<T, String> getter;
+
+    /**
+     * 把存储的字段值写回实体，只存储时可以为 null
+     */
+    private final BiConsumer<T, String> setter;
+
+    /**
+     * 冻结后的 FieldType，所有文档共用
+     */
+    private final FieldType fieldType;
+
+    private FieldSchema(Builder<T> builder) {
+        this.name = builder.name;
+        this.type = builder.type;
+        this.stored = builder.stored;
+        this.docValues = builder.docValues;
+        this.bigram = builder.bigram;
+        this.getter = builder.getter;
+        this.setter = builder.setter;
+        this.indexOptions = builder.indexOptions != null ? builder.indexOptions : switch (type) {
+            case KEYWORD -> IndexOptions.DOCS;
+            case TEXT -> IndexOptions.DOCS_AND_FREQS_AND_POSITIONS;
+            case STORED -> IndexOptions.NONE;
+        };
+        this.analyzer = type == Type.TEXT
+                ? (builder.analyzer != null ? builder.analyzer : new StandardAnalyzer())
+                : new KeywordAnalyzer();
+
+        FieldType fieldType = new FieldType();
+        fieldType.setStored(stored);
+        fieldType.setTokenized(type == Type.TEXT);
+        fieldType.setOmitNorms(type != Type.TEXT);
+        fieldType.setIndexOptions(indexOptions);
+        fieldType.freeze();
+        this.fieldType = fieldType;
+    }
+
+    public static <T> Builder<T> builder(String name, Type type, Function<T, String> getter, BiConsumer<T, String> setter) {
+        return new Builder<>(name, type, getter, setter);
+    }
+
+    /**
+     * 派生的二元分词字段：只索引不存储，取值和源字段相同，记录位置以便做精确短语匹配；
+     * 同时索引单字词项，单个字的查询是一个词项查询
+     */
+    FieldSchema<T> bigramField() {
+        return FieldSchema.<T>builder(name + BIGRAM_SUFFIX, Type.TEXT, getter, null)
+                .stored(false)
+                .indexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS)
+                .analyzer(new BigramAnalyzer())
+                .build();
+    }
+
+    /**
+     * 把实体上的字段值写入文档，值为 null 时跳过
+     */
+    public void addTo(Document document, T entity) {
+        String value = getter.apply(entity);
+        if (value == null) {
+            return;
+        }
+        if (stored || indexOptions != IndexOptions.NONE) {
+            document.add(new Field(name, value, fieldType));
+        }
+        if (docValues) {
+            document.add(new SortedDocValuesField(name, new BytesRef(value)));
+        }
+    }
+
+    public static class Builder<T> {
+        private final String name;
+        private final Type type;
+        private final Function<T, String> getter;
+        private final BiConsumer<T, String> setter;
+        private boolean stored = true;
+        private boolean docValues;
+        private IndexOptions indexOptions;
+        private Analyzer analyzer;
+        private boolean bigram;
+
+        private Builder(String name, Type type, Function<T, String> getter, BiConsumer<T, String> setter) {
+            this.name = name;
+            this.type = type;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        public Builder<T> stored(boolean stored) {
+            this.stored = stored;
+            return this;
+        }
+
+        public Builder<T> docValues(boolean docValues) {
+            this.docValues = docValues;
+            return this;
+        }
+
+        public Builder<T> indexOptions(IndexOptions indexOptions) {
+            this.indexOptions = indexOptions;
+            return this;
+        }
+
+        /**
+         * 只对 TEXT 字段生效，默认 StandardAnalyzer
+         */
+        public Builder<T> analyzer(Analyzer analyzer) {
+            this.analyzer = analyzer;
+            return this;
+        }
+
+        /**
+         * 额外建 CJK 二元分词字段，适合中文短语查询
+         */
+        public Builder<T> bigram(boolean bigram) {
+            this.bigram = bigram;
+            return this;
+        }
+
+        public FieldSchema<T> build() {
+            return new FieldSchema<>(this);
+        }
+    }
+}
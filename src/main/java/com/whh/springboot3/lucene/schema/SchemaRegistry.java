@@ -0,0 +1,29 @@
+package com.whh.springboot3.lucene.schema;
+
+import com.whh.springboot3.lucene.entity.Author;
+
+import java.util.Map;
+
+/**
+ * @Author wanghonghui
+ * @Description 各实体索引结构的注册表，每个实体一个单例
+ * @Date 2026/10/17 17:50
+ */
+public final class SchemaRegistry {
+
+    private static final Map<Class<?>, EntitySchema<?>> SCHEMAS = Map.of(
+            Author.class, AuthorSchema.create()
+    );
+
+    private SchemaRegistry() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> EntitySchema<T> of(Class<T> type) {
+        EntitySchema<T> schema = (EntitySchema<T>) SCHEMAS.get(type);
+        if (schema == null) {
+            throw new IllegalArgumentException("未注册的实体类型: " + type.getName());
+        }
+        return schema;
+    }
+}
@@ -0,0 +1,70 @@
+package com.whh.springboot3.lucene.schema;
+
+import lombok.Getter;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.KnnFloatVectorField;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.util.VectorUtil;
+
+import java.util.function.Function;
+
+/**
+ * @Author wanghonghui
+ * @Description 向量字段的定义：向量由调用方随实体一起传入，按 HNSW 建图做近似近邻检索，不存储
+ * @Date 2026/10/17 23:10
+ */
+@Getter
+public class VectorFieldSchema<T> {
+
+    private final String name;
+
+    /**
+     * 向量维度，小于等于 0 时不校验，由第一篇文档决定（同一字段的维度必须一致，Lucene 会校验）
+     */
+    private final int dimension;
+
+    /**
+     * 相似度，DOT_PRODUCT 要求单位向量，写入和查询时都会先归一化
+     */
+    private final VectorSimilarityFunction similarity;
+
+    /**
+     * 从实体中取向量，没有向量时返回 null
+     */
+    private final Function<T, float[]> getter;
+
+    public VectorFieldSchema(String name, int dimension, VectorSimilarityFunction similarity, Function<T, float[]> getter) {
+        this.name = name;
+        this.dimension = dimension;
+        this.similarity = similarity;
+        this.getter = getter;
+    }
+
+    /**
+     * 校验维度，需要时归一化，返回的是副本，不修改传入的数组
+     */
+    public float[] prepare(float[] vector) {
+        if (vector == null || vector.length == 0) {
+            throw new IllegalArgumentException("向量不能为空: " + name);
+        }
+        if (dimension > 0 && vector.length != dimension) {
+            throw new IllegalArgumentException("向量维度应为 " + dimension + "，实际为 " + vector.length + ": " + name);
+        }
+        float[] copy = vector.clone();
+        if (similarity == VectorSimilarityFunction.DOT_PRODUCT) {
+            VectorUtil.l2normalize(copy);
+        }
+        return copy;
+    }
+
+    /**
+     * 把实体上的向量写入文档，没有向量时跳过
+     */
+    public void addTo(Document document, T entity) {
+        float[] vector = getter.apply(entity);
+        if (vector == null) {
+            return;
+        }
+        document.add(new KnnFloatVectorField(name, prepare(vector), similarity));
+    }
+}
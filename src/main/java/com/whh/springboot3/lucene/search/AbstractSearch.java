@@ -1,26 +1,37 @@
 package com.whh.springboot3.lucene.search;
 
 import com.whh.springboot3.lucene.Cons;
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.schema.EntitySchema;
+import com.whh.springboot3.lucene.search.base.HighlightMode;
+import com.whh.springboot3.lucene.search.base.LuceneQueryBuilder;
+import com.whh.springboot3.lucene.search.base.MultiSearchResult;
 import com.whh.springboot3.lucene.search.base.PageResult;
+import com.whh.springboot3.lucene.search.base.ProjectionVisitor;
+import com.whh.springboot3.lucene.search.base.QueryLimitException;
+import com.whh.springboot3.lucene.search.base.SearchCursor;
+import com.whh.springboot3.lucene.search.base.SearchRequest;
 import com.whh.springboot3.lucene.search.base.SearchResult;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.document.Document;
-import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexReader;
-import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.*;
 import org.apache.lucene.search.*;
 import org.apache.lucene.search.highlight.Highlighter;
 import org.apache.lucene.search.highlight.QueryScorer;
 import org.apache.lucene.search.highlight.SimpleFragmenter;
 import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
-import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
 
-import java.nio.file.Paths;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 /**
  * @Author wanghonghui
@@ -39,6 +50,45 @@ public abstract class AbstractSearch<T> {
      * 高亮后缀
      */
     private String postTag = "</em>";
+    /**
+     * 高亮方式
+     */
+    private HighlightMode highlightMode = HighlightMode.PLAIN;
+
+    /**
+     * 共享的搜索器管理器
+     */
+    private final IndexSearcherManager searcherManager;
+
+    /**
+     * 结果缓存，为 null 时不缓存
+     */
+    private SearchResultCache resultCache;
+
+    /**
+     * 各阶段耗时统计，为 null 时不统计
+     */
+    private SearchMetrics metrics;
+
+    /**
+     * 单次查询的时间和开销限制，为 null 时不限制
+     */
+    private LuceneProperties.Limits limits;
+
+    /**
+     * 准入控制，为 null 时不限制并发搜索数
+     */
+    private SearchAdmission admission;
+
+    /**
+     * 索引结构，字段和分词器都从这里取
+     */
+    private final EntitySchema<T> schema;
+
+    protected AbstractSearch(IndexSearcherManager searcherManager, EntitySchema<T> schema) {
+        this.searcherManager = searcherManager;
+        this.schema = schema;
+    }
 
     /**
      * 创建查询对象
@@ -50,14 +100,28 @@ public abstract class AbstractSearch<T> {
     public abstract Query getQuery(String searchContent, String searchField) throws Exception;
 
     /**
-     * 设置高亮字段
+     * 设置高亮字段，返回空数组时不高亮
      */
     public abstract String[] getHighlightFields();
 
     /**
-     * 获取分词器
+     * 高亮用的查询，默认和搜索查询相同；搜索查询落在派生字段（如二元分词字段）上时，
+     * 需要返回落在高亮字段上的等价查询，否则高亮不到
+     *
+     * @param searchContent 查询字符串
+     * @param searchField   搜索字段
+     * @param query         搜索查询
      */
-    public abstract Analyzer getAnalyzer();
+    public Query getHighlightQuery(String searchContent, String searchField, Query query) throws Exception {
+        return query;
+    }
+
+    /**
+     * 获取分词器，默认使用索引结构中按字段分派的分词器，和索引时保持一致
+     */
+    public Analyzer getAnalyzer() {
+        return schema.getAnalyzer();
+    }
 
     /**
      * 执行分页搜索
@@ -70,65 +134,594 @@ public abstract class AbstractSearch<T> {
      * @param searchField   搜索字段
      * @return 分页搜索结果
      */
-    public PageResult<SearchResult> search(String searchContent, String searchField, int pageNumber, int pageSize, String sortField, Boolean sortOrder) throws Exception {
+    public PageResult<SearchResult<T>> search(String searchContent, String searchField, int pageNumber, int pageSize, String sortField, Boolean sortOrder) throws Exception {
+        return search(new SearchRequest()
+                .setSearchContent(searchContent)
+                .setSearchField(searchField)
+                .setPageNumber(pageNumber)
+                .setPageSize(pageSize)
+                .setSortField(sortField)
+                .setSortOrder(sortOrder));
+    }
+
+    /**
+     * 执行搜索，request.after 不为 null 时按游标翻页，每页的开销和翻到第几页无关
+     *
+     * @param request 搜索请求
+     * @return 分页搜索结果，after 为下一页游标
+     */
+    public PageResult<SearchResult<T>> search(SearchRequest request) throws Exception {
 
         // 验证分页参数
-        if (pageNumber < 1) {
-            pageNumber = 1;
+        int pageNumber = Math.max(request.getPageNumber(), 1);
+        int pageSize = request.getPageSize() < 1 ? Cons.PAGE_SIZE : request.getPageSize();
+
+        SearchMetrics.Trace trace = new SearchMetrics.Trace();
+        try {
+            if (request.getAfter() == null && !request.isCountOnly()) {
+                checkResultWindow(pageNumber, pageSize);
+            }
+            admit(trace);
+            try {
+                IndexSearcher acquired = searcherManager.acquire();
+                trace.mark(SearchMetrics.Phase.ACQUIRE);
+                try {
+                    return search(acquired, request, pageNumber, pageSize, trace, null);
+                } finally {
+                    searcherManager.release(acquired);
+                }
+            } finally {
+                if (admission != null) {
+                    admission.release();
+                }
+            }
+        } catch (QueryLimitException e) {
+            if (metrics != null) {
+                metrics.limited(getClass(), e.getReason());
+            }
+            throw e;
         }
-        if (pageSize < 1) {
-            pageSize = Cons.PAGE_SIZE;
+    }
+
+    /**
+     * 批量搜索：整批共用同一个时间点的搜索器（同一个 reader 和查询缓存），各查询在虚拟线程上并发执行，
+     * 同一批内相同的搜索词和字段只解析一次；每个查询单独做准入、限制检查和计时，
+     * 失败只记录在它自己的结果里，不影响其它查询
+     *
+     * @param requests 各个查询，countOnly 为 true 的只统计命中数
+     * @return 和 requests 一一对应的结果
+     */
+    public List<MultiSearchResult<T>> multiSearch(List<SearchRequest> requests) throws Exception {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+        if (limits != null && limits.getMaxMultiSearch() > 0 && requests.size() > limits.getMaxMultiSearch()) {
+            if (metrics != null) {
+                metrics.limited(getClass(), QueryLimitException.BATCH_SIZE);
+            }
+            throw new QueryLimitException(QueryLimitException.BATCH_SIZE, "一次最多执行 " + limits.getMaxMultiSearch() + " 个查询");
         }
+        Map<List<String>, Query> parsed = new ConcurrentHashMap<>();
+        IndexSearcher acquired = searcherManager.acquire();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<MultiSearchResult<T>>> futures = new ArrayList<>(requests.size());
+            for (SearchRequest request : requests) {
+                futures.add(executor.submit(() -> searchOne(acquired, request, parsed)));
+            }
+            List<MultiSearchResult<T>> results = new ArrayList<>(futures.size());
+            for (Future<MultiSearchResult<T>> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            searcherManager.release(acquired);
+        }
+    }
 
-        try (Directory directory = FSDirectory.open(Paths.get(Cons.INDEX_PATH));
-             IndexReader reader = DirectoryReader.open(directory)) {
+    /**
+     * 批量搜索中的单个查询，异常转成失败结果
+     */
+    private MultiSearchResult<T> searchOne(IndexSearcher acquired, SearchRequest request, Map<List<String>, Query> parsed) {
+        long start = System.nanoTime();
+        int pageNumber = Math.max(request.getPageNumber(), 1);
+        int pageSize = request.getPageSize() < 1 ? Cons.PAGE_SIZE : request.getPageSize();
+        SearchMetrics.Trace trace = new SearchMetrics.Trace();
+        try {
+            if (request.getAfter() == null && !request.isCountOnly()) {
+                checkResultWindow(pageNumber, pageSize);
+            }
+            admit(trace);
+            try {
+                return MultiSearchResult.of(search(acquired, request, pageNumber, pageSize, trace, parsed), System.nanoTime() - start);
+            } finally {
+                if (admission != null) {
+                    admission.release();
+                }
+            }
+        } catch (Exception e) {
+            if (e instanceof QueryLimitException limited && metrics != null) {
+                metrics.limited(getClass(), limited.getReason());
+            }
+            if (!(e instanceof IllegalArgumentException) && !(e instanceof SearchRejectedException)) {
+                log.warn("批量搜索中的查询失败: {}", request.getSearchContent(), e);
+            }
+            return MultiSearchResult.failed(e, System.nanoTime() - start);
+        }
+    }
 
-            IndexSearcher searcher = new IndexSearcher(reader);
-            Query query = getQuery(searchContent, searchField);
-            if (query == null) {
-                throw new IllegalArgumentException("请初始化 query 查询器");
+    /**
+     * 在已经获取的搜索器上执行一次搜索，由调用方归还搜索器
+     *
+     * @param parsed 同一批查询共享的解析结果，为 null 时不共享
+     */
+    private PageResult<SearchResult<T>> search(IndexSearcher acquired, SearchRequest request, int pageNumber, int pageSize,
+                                               SearchMetrics.Trace trace, Map<List<String>, Query> parsed) throws Exception {
+        Query query = null;
+        Query vectorQuery = null;
+        try {
+            if (request.isCountOnly()) {
+                if (request.getVector() != null) {
+                    throw new IllegalArgumentException("只统计命中数时不支持向量检索");
+                }
+                query = applyFilters(parse(request.getSearchContent(), request.getSearchField(), parsed), request.getFilters());
+                trace.mark(SearchMetrics.Phase.QUERY);
+                // 计数不能返回部分结果，和 count 一样不设置时间预算
+                int count = acquired.count(query);
+                trace.mark(SearchMetrics.Phase.COLLECT);
+                return new PageResult<>(Collections.emptyList(), count, TotalHits.Relation.EQUAL_TO, pageNumber, pageSize, null, false);
+            }
+            IndexSearcher searcher;
+            long timeoutMs = request.getTimeoutMs() > 0 ? request.getTimeoutMs() : limits == null ? 0 : limits.getTimeoutMs();
+            if (timeoutMs > 0) {
+                // 超时是搜索器上的状态，设置在只属于本次请求的搜索器上
+                searcher = searcherManager.view(acquired, request.isConcurrent());
+                searcher.setTimeout(new QueryTimeoutImpl(timeoutMs));
+            } else {
+                searcher = request.isConcurrent() ? acquired : searcherManager.sequential(acquired);
+            }
+            boolean hasVector = request.getVector() != null;
+            String searchContent = request.getSearchContent();
+            // 向量检索时搜索词可以为空，只做向量一路
+            if (!hasVector || (searchContent != null && !searchContent.isBlank())) {
+                query = applyFilters(parse(searchContent, request.getSearchField(), parsed), request.getFilters());
+            }
+            if (hasVector) {
+                if (request.getAfter() != null || (request.getSortField() != null && !request.getSortField().isEmpty())) {
+                    throw new IllegalArgumentException("向量检索只支持按相关度排序和按页码翻页");
+                }
+                // 过滤条件作为近邻检索的前置过滤，返回的近邻都满足过滤条件
+                vectorQuery = new LuceneQueryBuilder(schema).knnQuery(vectorField(request), request.getVector(),
+                        Math.max(request.getK(), pageNumber * pageSize), filterQuery(request.getFilters()));
             }
             // 创建排序器
-            Sort sort = null;
-            if (sortField != null && !sortField.isEmpty()) {
-                sort = new Sort(new SortField(sortField, SortField.Type.STRING, !sortOrder));
+            Sort sort = getSort(request.getSortField(), request.getSortOrder());
+
+            // 先查缓存，key 中带 reader 版本，reader 刷新后自动失效；向量检索不缓存
+            SearchResultCache.Key cacheKey = null;
+            if (resultCache != null && resultCache.isEnabled() && request.isCacheable() && !hasVector) {
+                String[] highlightFields = getHighlightFields();
+                cacheKey = new SearchResultCache.Key(getClass(), query, sort, pageNumber, pageSize, request.getAfter(), request.getTotalHitsThreshold(),
+                        request.getFields() == null ? null : Arrays.asList(request.getFields()), request.isIdsOnly(),
+                        highlightFields == null ? null : Arrays.asList(highlightFields), getPreTag(), getPostTag(),
+                        SearchResultCache.version(acquired));
+                @SuppressWarnings("unchecked")
+                PageResult<SearchResult<T>> cached = (PageResult<SearchResult<T>>) resultCache.get(cacheKey);
+                if (cached != null) {
+                    trace.cacheHit();
+                    trace.mark(SearchMetrics.Phase.QUERY);
+                    return copy(cached);
+                }
             }
+            trace.mark(SearchMetrics.Phase.QUERY);
 
-            // 计算起始位置
-            int start = (pageNumber - 1) * pageSize;
+            PageResult<SearchResult<T>> result = doSearch(searcher, query, vectorQuery, sort, request, pageNumber, pageSize, trace);
+            if (cacheKey != null && !result.isPartial()) {
+                resultCache.put(cacheKey, copy(result), weigh(result));
+            }
+            return result;
+        } finally {
+            if (metrics != null) {
+                // 近邻查询改写时会重新搜索一遍，只记录原始形式
+                metrics.record(getClass(), trace, query != null || vectorQuery == null ? rewritten(acquired, query) : vectorQuery::toString);
+            }
+        }
+    }
 
-            // 先获取总数
-            TopDocs topDocs;
-            if (sort != null) {
-                topDocs = searcher.search(query, start + pageSize, sort);
-            } else {
-                topDocs = searcher.search(query, start + pageSize);
+    /**
+     * 解析搜索词；parsed 不为 null 时同一批内相同的搜索词和字段只解析一次，查询对象不可变，可以在线程间共享
+     */
+    private Query parse(String searchContent, String searchField, Map<List<String>, Query> parsed) throws Exception {
+        List<String> key = Arrays.asList(searchContent, searchField);
+        Query query = parsed == null ? null : parsed.get(key);
+        if (query != null) {
+            return query;
+        }
+        query = getQuery(searchContent, searchField);
+        if (query == null) {
+            throw new IllegalArgumentException("请初始化 query 查询器");
+        }
+        if (parsed != null) {
+            parsed.putIfAbsent(key, query);
+        }
+        return query;
+    }
+
+    /**
+     * 把过滤条件作为 FILTER 子句加到查询上，只缩小结果集，不影响得分
+     */
+    private Query applyFilters(Query query, Map<String, String> filters) {
+        Query filter = filterQuery(filters);
+        if (filter == null) {
+            return query;
+        }
+        return new BooleanQuery.Builder()
+                .add(query, BooleanClause.Occur.MUST)
+                .add(filter, BooleanClause.Occur.FILTER)
+                .build();
+    }
+
+    /**
+     * 过滤条件组成的查询，没有过滤条件时返回 null
+     */
+    private Query filterQuery(Map<String, String> filters) {
+        if (filters == null || filters.isEmpty()) {
+            return null;
+        }
+        LuceneQueryBuilder builder = new LuceneQueryBuilder(schema);
+        for (Map.Entry<String, String> filter : filters.entrySet()) {
+            builder.filterTerm(filter.getKey(), filter.getValue());
+        }
+        return builder.queryBuilder.build();
+    }
+
+    /**
+     * 本次请求的向量字段，未指定时使用索引结构中唯一的向量字段
+     */
+    private String vectorField(SearchRequest request) {
+        if (request.getVectorField() != null) {
+            return request.getVectorField();
+        }
+        if (schema.getVectorFields().size() != 1) {
+            throw new IllegalArgumentException("请指定向量字段");
+        }
+        return schema.getVectorFields().keySet().iterator().next();
+    }
+
+    /**
+     * 按页码翻页时要收集 页码 * 每页大小 条命中，太深的翻页拒绝执行，改用游标
+     */
+    private void checkResultWindow(int pageNumber, int pageSize) {
+        if (limits != null && limits.getMaxResultWindow() > 0 && (long) pageNumber * pageSize > limits.getMaxResultWindow()) {
+            throw new QueryLimitException(QueryLimitException.RESULT_WINDOW,
+                    "翻页深度超过 " + limits.getMaxResultWindow() + " 条，请使用游标（after）翻页");
+        }
+    }
+
+    /**
+     * 等待准入许可，放行后必须归还
+     */
+    private void admit(SearchMetrics.Trace trace) {
+        if (admission != null) {
+            admission.acquire();
+        }
+        trace.mark(SearchMetrics.Phase.ADMISSION);
+    }
+
+    /**
+     * 改写后的查询，用于慢查询日志，多词项查询会展开成实际执行的形式
+     */
+    private static Supplier<String> rewritten(IndexSearcher searcher, Query query) {
+        return () -> {
+            if (query == null) {
+                return null;
+            }
+            try {
+                return searcher.rewrite(query).toString();
+            } catch (IOException | RuntimeException e) {
+                return query.toString();
+            }
+        };
+    }
+
+    private PageResult<SearchResult<T>> doSearch(IndexSearcher searcher, Query query, Query vectorQuery, Sort sort, SearchRequest request,
+                                                 int pageNumber, int pageSize, SearchMetrics.Trace trace) throws Exception {
+        // 计算起始位置，游标模式下只收集一页
+        int start;
+        ScoreDoc after = null;
+        if (request.getAfter() != null) {
+            start = 0;
+            after = SearchCursor.decode(request.getAfter(), sort);
+        } else {
+            start = (pageNumber - 1) * pageSize;
+        }
+        TopDocs topDocs = vectorQuery == null
+                ? collect(searcher, query, sort, after, start + pageSize, request.getTotalHitsThreshold())
+                : hybrid(searcher, query, vectorQuery, start + pageSize, request);
+        trace.mark(SearchMetrics.Phase.COLLECT);
+        // 超出时间预算时 topDocs 只包含超时前收集到的命中
+        boolean partial = searcher.timedOut();
+        if (partial) {
+            trace.timedOut();
+        }
+
+        // 获取总记录数，超过阈值后只是下限
+        long total = topDocs.totalHits.value();
+        TotalHits.Relation relation = topDocs.totalHits.relation();
+
+        // 如果起始位置超过总数，返回空结果
+        ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+        if (start >= scoreDocs.length) {
+            return new PageResult<>(Collections.emptyList(), total, relation, pageNumber, pageSize, null, partial);
+        }
+
+        // 获取当前页的数据，主键优先从 doc values 读取
+        int count = scoreDocs.length - start;
+        int[] docIds = new int[count];
+        for (int i = 0; i < count; i++) {
+            docIds[i] = scoreDocs[start + i].doc;
+        }
+        String[] ids = loadIds(searcher, docIds);
+
+        List<SearchResult<T>> pageContent = new ArrayList<>(count);
+        if (request.isIdsOnly()) {
+            // 只返回主键和得分，不读取存储字段
+            for (int i = 0; i < count; i++) {
+                pageContent.add(new SearchResult<>(ids[i], null, Collections.emptyMap(), scoreDocs[start + i].score));
+            }
+        } else {
+            Set<String> projection = request.getFields() == null ? null : new HashSet<>(Arrays.asList(request.getFields()));
+            List<Map<String, String>> values = loadStoredFields(searcher, docIds, projection, ids);
+            trace.mark(SearchMetrics.Phase.LOAD);
+
+            // 整页一起高亮
+            Query highlightQuery = query == null ? null : getHighlightQuery(request.getSearchContent(), request.getSearchField(), query);
+            List<Map<String, String>> highlights = highlight(searcher, highlightQuery, docIds, values);
+            trace.mark(SearchMetrics.Phase.HIGHLIGHT);
+            for (int i = 0; i < count; i++) {
+                String id = ids[i] != null ? ids[i] : values.get(i).get(schema.getIdField());
+                T source = schema.toEntity(values.get(i), projection);
+                pageContent.add(new SearchResult<>(id, source, highlights.get(i), scoreDocs[start + i].score));
+            }
+        }
+        trace.mark(SearchMetrics.Phase.LOAD);
+
+        // 当前页已满时返回下一页游标；部分结果之后可能漏掉了未收集到的命中，不返回游标
+        String next = null;
+        if (pageContent.size() == pageSize && !partial && vectorQuery == null) {
+            ScoreDoc last = scoreDocs[scoreDocs.length - 1];
+            // 多分片时游标记录分片序号和分片内 docId，下一页不受其它分片文档数变化的影响
+            next = SearchCursor.encode(searcher instanceof ShardedIndexSearcher sharded ? sharded.shardDoc(last) : last, sort);
+        }
+        return new PageResult<>(pageContent, total, relation, pageNumber, pageSize, next, partial);
+    }
+
+    /**
+     * 从主键字段的 doc values 读取主键，字段没有 doc values 时返回的数组元素都为 null
+     */
+    private String[] loadIds(IndexSearcher searcher, int[] docIds) throws IOException {
+        String[] ids = new String[docIds.length];
+        String idField = schema.getIdField();
+        if (!schema.field(idField).isDocValues()) {
+            return ids;
+        }
+        // 按 docId 升序读取，同一个段内的 doc values 迭代器只能向前移动
+        Integer[] order = new Integer[docIds.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> docIds[i]));
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        LeafReaderContext leaf = null;
+        SortedDocValues values = null;
+        for (int i : order) {
+            int leafIndex = ReaderUtil.subIndex(docIds[i], leaves);
+            if (leaf == null || leaf.ord != leafIndex) {
+                leaf = leaves.get(leafIndex);
+                values = DocValues.getSorted(leaf.reader(), idField);
+            }
+            if (values.advanceExact(docIds[i] - leaf.docBase)) {
+                ids[i] = values.lookupOrd(values.ordValue()).utf8ToString();
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 只解码需要的存储字段：投影字段、高亮字段，以及 doc values 中没有的主键
+     */
+    private List<Map<String, String>> loadStoredFields(IndexSearcher searcher, int[] docIds, Set<String> projection, String[] ids) throws IOException {
+        Set<String> toLoad = null;
+        if (projection != null) {
+            toLoad = new HashSet<>(projection);
+            String[] highlightFields = getHighlightFields();
+            if (highlightFields != null) {
+                toLoad.addAll(Arrays.asList(highlightFields));
+            }
+            if (ids.length > 0 && ids[0] == null) {
+                toLoad.add(schema.getIdField());
             }
+        }
+        StoredFields storedFields = searcher.storedFields();
+        List<Map<String, String>> values = new ArrayList<>(docIds.length);
+        for (int docId : docIds) {
+            ProjectionVisitor visitor = new ProjectionVisitor(toLoad);
+            storedFields.document(docId, visitor);
+            values.add(visitor.getValues());
+        }
+        return values;
+    }
+
+    /**
+     * 收集前 numHits 条命中，命中数超过 totalHitsThreshold 后不再精确计数，可以跳过不可能进入前列的文档
+     */
+    private TopDocs collect(IndexSearcher searcher, Query query, Sort sort, ScoreDoc after, int numHits, int totalHitsThreshold) throws IOException {
+        int limit = Math.max(1, searcher.getIndexReader().maxDoc());
+        numHits = Math.min(numHits, limit);
+        totalHitsThreshold = Math.max(totalHitsThreshold, 0);
+        if (sort != null && after != null && !(after instanceof FieldDoc)) {
+            throw new IllegalArgumentException("游标和当前排序方式不匹配");
+        }
+        if (sort != null && after instanceof FieldDoc fieldDoc && endsWithId(sort)) {
+            // 排序值相同的只有游标对应的文档自己，游标里的 docId 可能已经因为刷新或合并变了，不再参与比较
+            after = new FieldDoc(Integer.MAX_VALUE, fieldDoc.score, fieldDoc.fields, fieldDoc.shardIndex);
+        }
+        TopDocs topDocs;
+        if (searcher instanceof ShardedIndexSearcher sharded) {
+            // 多分片时各分片并发收集，再归并
+            topDocs = sharded.searchShards(query, sort, after, numHits, totalHitsThreshold);
+        } else if (sort != null) {
+            topDocs = searcher.search(query, new TopFieldCollectorManager(sort, numHits, (FieldDoc) after, totalHitsThreshold));
+        } else {
+            topDocs = searcher.search(query, new TopScoreDocCollectorManager(numHits, after, totalHitsThreshold));
+        }
+        if (sort != null && sort.getSort()[0].getType() == SortField.Type.SCORE) {
+            // 按字段排序收集时不填 ScoreDoc.score，相关度就是第一个排序值
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                scoreDoc.score = (Float) ((FieldDoc) scoreDoc).fields[0];
+            }
+        }
+        return topDocs;
+    }
+
+    /**
+     * 混合检索：关键词和向量近邻各取候选，按 RRF 融合；没有关键词查询时只有向量一路，直接按相似度返回
+     */
+    private TopDocs hybrid(IndexSearcher searcher, Query query, Query vectorQuery, int numHits, SearchRequest request) throws IOException {
+        int window = Math.max(request.getK(), numHits);
+        TopDocs vector = searcher.search(vectorQuery, window);
+        if (query == null) {
+            return new TopDocs(vector.totalHits, Arrays.copyOf(vector.scoreDocs, Math.min(numHits, vector.scoreDocs.length)));
+        }
+        TopDocs keyword = collect(searcher, query, null, null, window, request.getTotalHitsThreshold());
+        return ReciprocalRankFusion.fuse(numHits, request.getRankConstant(), keyword, vector);
+    }
 
-            // 获取总记录数
-            long total = topDocs.totalHits.value();
+    /**
+     * 只统计命中数，不收集文档，可以利用 Weight.count 的快速路径；
+     * 计数不能返回部分结果，不设置时间预算，只受准入控制
+     *
+     * @param searchContent 搜索词
+     * @param searchField   搜索字段
+     * @return 精确命中数
+     */
+    public long count(String searchContent, String searchField) throws Exception {
+        SearchMetrics.Trace trace = new SearchMetrics.Trace();
+        try {
+            admit(trace);
+            try {
+                return count(searchContent, searchField, trace);
+            } finally {
+                if (admission != null) {
+                    admission.release();
+                }
+            }
+        } catch (QueryLimitException e) {
+            if (metrics != null) {
+                metrics.limited(getClass(), e.getReason());
+            }
+            throw e;
+        }
+    }
 
-            // 如果起始位置超过总数，返回空结果
-            if (start >= total) {
-                return new PageResult<>(Collections.emptyList(), total, pageNumber, pageSize);
+    private long count(String searchContent, String searchField, SearchMetrics.Trace trace) throws Exception {
+        IndexSearcher searcher = searcherManager.acquire();
+        trace.mark(SearchMetrics.Phase.ACQUIRE);
+        Query query = null;
+        try {
+            query = getQuery(searchContent, searchField);
+            if (query == null) {
+                throw new IllegalArgumentException("请初始化 query 查询器");
+            }
+            trace.mark(SearchMetrics.Phase.QUERY);
+            int count = searcher.count(query);
+            trace.mark(SearchMetrics.Phase.COLLECT);
+            return count;
+        } finally {
+            if (metrics != null) {
+                metrics.record(getClass(), trace, rewritten(searcher, query));
             }
+            searcherManager.release(searcher);
+        }
+    }
 
-            // 设置高亮器
-            Highlighter highlighter = setupHighlighter(query);
+    /**
+     * 复制一页结果：放入缓存前复制一份，每次命中再复制一份，调用方修改返回的实体不会影响缓存
+     */
+    private PageResult<SearchResult<T>> copy(PageResult<SearchResult<T>> page) {
+        List<SearchResult<T>> content = new ArrayList<>(page.getContent().size());
+        for (SearchResult<T> result : page.getContent()) {
+            Map<String, String> highlights = result.getHighlightedFields() == null ? null
+                    : Collections.unmodifiableMap(new HashMap<>(result.getHighlightedFields()));
+            content.add(new SearchResult<>(result.getId(), schema.copy(result.getSource()), highlights, result.getScore()));
+        }
+        return new PageResult<>(Collections.unmodifiableList(content), page.getTotal(), page.getTotalRelation(),
+                page.getPageNumber(), page.getPageSize(), page.getAfter(), page.isPartial());
+    }
 
-            // 获取当前页的数据
-            List<SearchResult> pageContent = new ArrayList<>();
-            int end = Math.min(start + pageSize, (int) total);
-            StoredFields storedFields = searcher.storedFields();
-            for (int i = start; i < end; i++) {
-                ScoreDoc scoreDoc = topDocs.scoreDocs[i];
-                Document doc = storedFields.document(scoreDoc.doc);
-                Map<String, String> highlightedFields = getHighlightedFields(doc, highlighter);
-                pageContent.add(new SearchResult(doc, highlightedFields, scoreDoc.score));
+    /**
+     * 估算一页结果占用的内存（字节）：主键、字段值和高亮片段按每个字符 2 字节计，每条结果再加固定开销
+     */
+    private int weigh(PageResult<SearchResult<T>> page) {
+        long chars = 0;
+        for (SearchResult<T> result : page.getContent()) {
+            chars += result.getId() == null ? 0 : result.getId().length();
+            chars += schema.length(result.getSource());
+            if (result.getHighlightedFields() != null) {
+                for (String fragment : result.getHighlightedFields().values()) {
+                    chars += fragment == null ? 0 : fragment.length();
+                }
             }
+        }
+        long bytes = 2 * chars + 128L * (page.getContent().size() + 1);
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
 
-            return new PageResult<>(pageContent, total, pageNumber, pageSize);
+    /**
+     * 创建排序器，sortField 为空时按相关度排序；主键有 doc values 时总是以主键作为最后一个排序键，
+     * 排序值相同的文档顺序固定，游标里带着主键值，翻页过程中刷新或合并改变了 docId 也不会重复或遗漏
+     */
+    protected Sort getSort(String sortField, Boolean sortOrder) {
+        String idField = schema.getIdField();
+        SortField tiebreak = schema.field(idField).isDocValues() ? new SortField(idField, SortField.Type.STRING) : null;
+        if (sortField == null || sortField.isEmpty()) {
+            return tiebreak == null ? null : new Sort(SortField.FIELD_SCORE, tiebreak);
         }
+        if (!schema.field(sortField).isDocValues()) {
+            throw new IllegalArgumentException("排序字段必须有 doc values: " + sortField);
+        }
+        SortField field = new SortField(sortField, SortField.Type.STRING, Boolean.FALSE.equals(sortOrder));
+        return tiebreak == null || sortField.equals(idField) ? new Sort(field) : new Sort(field, tiebreak);
+    }
+
+    /**
+     * 最后一个排序键是否为主键，是时排序值完全相同的只有文档自己
+     */
+    private boolean endsWithId(Sort sort) {
+        SortField[] fields = sort.getSort();
+        return schema.getIdField().equals(fields[fields.length - 1].getField());
+    }
+
+    /**
+     * 对当前页的所有命中做高亮，返回结果和 docIds 一一对应；query 为 null（只有向量检索）时不高亮
+     */
+    private List<Map<String, String>> highlight(IndexSearcher searcher, Query query, int[] docIds, List<Map<String, String>> docs) throws IOException {
+        String[] highlightFields = getHighlightFields();
+        if (highlightFields == null) {
+            throw new IllegalArgumentException("高亮字段不可以为空，请调用 setHighlightFields 方法");
+        }
+        if (highlightFields.length == 0 || query == null) {
+            return Collections.nCopies(docs.size(), Collections.emptyMap());
+        }
+        Analyzer analyzer = getAnalyzer();
+        if (getHighlightMode() == HighlightMode.UNIFIED) {
+            return getUnifiedHighlightedFields(searcher, query, docIds, docs, highlightFields, analyzer);
+        }
+        Highlighter highlighter = setupHighlighter(query);
+        List<Map<String, String>> highlights = new ArrayList<>(docs.size());
+        for (Map<String, String> doc : docs) {
+            highlights.add(getHighlightedFields(doc, highlighter, highlightFields, analyzer));
+        }
+        return highlights;
     }
 
     /**
@@ -145,16 +738,13 @@ public abstract class AbstractSearch<T> {
     /**
      * 获取高亮字段
      */
-    private Map<String, String> getHighlightedFields(Document doc, Highlighter highlighter) {
+    private Map<String, String> getHighlightedFields(Map<String, String> doc, Highlighter highlighter, String[] highlightFields, Analyzer analyzer) {
         Map<String, String> highlightedFields = new HashMap<>();
-        if (getHighlightFields() == null || getHighlightFields().length == 0) {
-            throw new IllegalArgumentException("高亮字段不可以为空，请调用 setHighlightFields 方法");
-        }
-        for (String field : getHighlightFields()) {
+        for (String field : highlightFields) {
             String content = doc.get(field);
             if (content != null) {
                 try {
-                    String highlightedContent = highlighter.getBestFragment(getAnalyzer(), field, content);
+                    String highlightedContent = highlighter.getBestFragment(analyzer, field, content);
                     highlightedFields.put(field, highlightedContent != null ? highlightedContent : content);
                 } catch (Exception e) {
                     highlightedFields.put(field, content);
@@ -165,4 +755,32 @@ public abstract class AbstractSearch<T> {
         return highlightedFields;
     }
 
+    /**
+     * 使用 UnifiedHighlighter 批量高亮，字段索引了 offset 时不需要重新分词
+     */
+    private List<Map<String, String>> getUnifiedHighlightedFields(IndexSearcher searcher, Query query, int[] docIds, List<Map<String, String>> docs,
+                                                                 String[] highlightFields, Analyzer analyzer) throws IOException {
+        UnifiedHighlighter highlighter = UnifiedHighlighter.builder(searcher, analyzer)
+                .withFormatter(new DefaultPassageFormatter(getPreTag(), getPostTag(), "... ", false))
+                .build();
+        int[] maxPassages = new int[highlightFields.length];
+        Arrays.fill(maxPassages, 1);
+        Map<String, String[]> fragments = highlighter.highlightFields(highlightFields, query, docIds, maxPassages);
+
+        List<Map<String, String>> highlights = new ArrayList<>(docIds.length);
+        for (int i = 0; i < docIds.length; i++) {
+            Map<String, String> highlightedFields = new HashMap<>();
+            for (String field : highlightFields) {
+                String content = docs.get(i).get(field);
+                if (content != null) {
+                    String[] values = fragments.get(field);
+                    String highlightedContent = values == null ? null : values[i];
+                    highlightedFields.put(field, highlightedContent != null ? highlightedContent : content);
+                }
+            }
+            highlights.add(highlightedFields);
+        }
+        return highlights;
+    }
+
 }
@@ -0,0 +1,175 @@
+package com.whh.springboot3.lucene.search;
+
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @Author wanghonghui
+ * @Description 创建带执行器的搜索器，按 slice 并行搜索各个段；未配置执行器时退化为单线程搜索。
+ * 创建的搜索器共享同一个查询缓存
+ * @Date 2026/10/17 15:20
+ */
+public class ConcurrentSearcherFactory extends SearcherFactory implements Closeable {
+
+    /**
+     * 执行器类型
+     */
+    public enum ExecutorType {
+        /**
+         * 不并行，所有段在调用线程上顺序搜索
+         */
+        NONE,
+        /**
+         * 每个 slice 一个虚拟线程
+         */
+        VIRTUAL,
+        /**
+         * 有界的 ForkJoinPool
+         */
+        FORK_JOIN
+    }
+
+    /**
+     * 查询缓存策略
+     */
+    public enum CachingPolicy {
+        /**
+         * 按查询出现的频率和代价决定是否缓存，Lucene 的默认策略
+         */
+        USAGE_TRACKING,
+        /**
+         * 总是缓存，只适合过滤条件基本固定的场景
+         */
+        ALWAYS
+    }
+
+    private final ExecutorService executor;
+
+    /**
+     * 是否配置了查询缓存，未配置时使用 Lucene 默认的全局缓存
+     */
+    private final boolean cacheConfigured;
+
+    /**
+     * 共享的查询缓存，关闭缓存时为 null
+     */
+    private final LRUQueryCache queryCache;
+
+    private final QueryCachingPolicy cachingPolicy;
+
+    private final int maxDocsPerSlice;
+
+    private final int maxSegmentsPerSlice;
+
+    public ConcurrentSearcherFactory(LuceneProperties.Concurrency config) {
+        this(config, null);
+    }
+
+    /**
+     * @param config      并行配置
+     * @param cacheConfig 查询缓存配置，为 null 时使用 Lucene 默认的全局缓存
+     */
+    public ConcurrentSearcherFactory(LuceneProperties.Concurrency config, LuceneProperties.QueryCache cacheConfig) {
+        this.cacheConfigured = cacheConfig != null;
+        if (cacheConfig != null && cacheConfig.isEnabled()) {
+            int minSegmentDocs = cacheConfig.getMinSegmentDocs();
+            this.queryCache = new LRUQueryCache(cacheConfig.getMaxQueries(), cacheConfig.getMaxSizeMb() * 1024 * 1024,
+                    context -> context.reader().maxDoc() >= minSegmentDocs, cacheConfig.getSkipCacheFactor());
+            this.cachingPolicy = switch (cacheConfig.getPolicy()) {
+                case USAGE_TRACKING -> new UsageTrackingQueryCachingPolicy();
+                case ALWAYS -> QueryCachingPolicy.ALWAYS_CACHE;
+            };
+        } else {
+            this.queryCache = null;
+            this.cachingPolicy = IndexSearcher.getDefaultQueryCachingPolicy();
+        }
+        this.executor = switch (config.getExecutor()) {
+            case VIRTUAL -> Executors.newVirtualThreadPerTaskExecutor();
+            case FORK_JOIN -> new ForkJoinPool(config.getParallelism());
+            case NONE -> null;
+        };
+        this.maxDocsPerSlice = config.getMaxDocsPerSlice();
+        this.maxSegmentsPerSlice = config.getMaxSegmentsPerSlice();
+    }
+
+    @Override
+    public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) {
+        IndexSearcher searcher = executor == null
+                ? new IndexSearcher(reader)
+                : new SlicedIndexSearcher(reader, executor, maxDocsPerSlice, maxSegmentsPerSlice);
+        if (cacheConfigured) {
+            searcher.setQueryCache(queryCache);
+            searcher.setQueryCachingPolicy(cachingPolicy);
+        }
+        return searcher;
+    }
+
+    /**
+     * 共享的查询缓存，未配置或关闭缓存时为 null
+     */
+    public LRUQueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * 是否配置了执行器
+     */
+    public boolean isConcurrent() {
+        return executor != null;
+    }
+
+    /**
+     * 配置的执行器，没有配置时为 null；多分片时各分片的搜索器也在它上面按 slice 并行
+     */
+    ExecutorService getExecutor() {
+        return executor;
+    }
+
+    int getMaxDocsPerSlice() {
+        return maxDocsPerSlice;
+    }
+
+    int getMaxSegmentsPerSlice() {
+        return maxSegmentsPerSlice;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 按配置的大小切分 slice
+     */
+    private static class SlicedIndexSearcher extends IndexSearcher {
+
+        private final int maxDocsPerSlice;
+
+        private final int maxSegmentsPerSlice;
+
+        SlicedIndexSearcher(IndexReader reader, ExecutorService executor, int maxDocsPerSlice, int maxSegmentsPerSlice) {
+            super(reader, executor);
+            this.maxDocsPerSlice = maxDocsPerSlice;
+            this.maxSegmentsPerSlice = maxSegmentsPerSlice;
+        }
+
+        @Override
+        protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+            return slices(leaves, maxDocsPerSlice, maxSegmentsPerSlice, false);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.whh.springboot3.lucene.search;
+
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.index.IndexWriterService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author wanghonghui
+ * @Description 长生命周期的搜索器管理器，封装 SearcherManager，所有查询共享同一个已打开的 reader
+ * @Date 2026/10/17 10:20
+ */
+@Slf4j
+public class IndexSearcherManager implements Closeable {
+
+    /**
+     * 只读模式下打开的各分片目录，NRT 模式下为空
+     */
+    private final List<Directory> directories;
+
+    /**
+     * 每个分片一个，只有一个分片时就是普通的单索引
+     */
+    private final List<SearcherManager> searcherManagers;
+
+    /**
+     * 多分片时并发搜索各分片的执行器，单分片时为 null
+     */
+    private final ExecutorService fanOutExecutor;
+
+    private final ConcurrentSearcherFactory searcherFactory;
+
+    private final ScheduledExecutorService refresher;
+
+    /**
+     * 只读模式，直接打开索引目录，只能看到已提交的数据
+     *
+     * @param indexPath 索引目录
+     * @param config    搜索器配置
+     */
+    public IndexSearcherManager(Path indexPath, LuceneProperties.Searcher config) throws IOException {
+        this(indexPath, config, 1, List.of());
+    }
+
+    /**
+     * 多分片只读模式，用于只读副本：目录由主实例复制过来，定时刷新时切换到最新的完整提交
+     *
+     * @param indexPath         索引目录，多分片时各分片在 shard-N 子目录下
+     * @param config            搜索器配置
+     * @param shards            分片数，需要和写入方一致
+     * @param preloadExtensions 打开时预读进页缓存的文件扩展名，和写入方使用同一份配置
+     */
+    public IndexSearcherManager(Path indexPath, LuceneProperties.Searcher config, int shards, List<String> preloadExtensions) throws IOException {
+        this.searcherFactory = new ConcurrentSearcherFactory(config.getConcurrency(), config.getQueryCache());
+        List<Directory> directories = new ArrayList<>(shards);
+        List<SearcherManager> managers = new ArrayList<>(shards);
+        try {
+            for (int i = 0; i < shards; i++) {
+                Directory directory = IndexWriterService.openDirectory(shards == 1 ? indexPath : indexPath.resolve("shard-" + i), preloadExtensions);
+                directories.add(directory);
+                ensureIndex(directory);
+                managers.add(new SearcherManager(directory, searcherFactory));
+            }
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeWhileHandlingException(managers);
+            IOUtils.closeWhileHandlingException(directories);
+            searcherFactory.close();
+            throw e;
+        }
+        this.directories = List.copyOf(directories);
+        this.searcherManagers = List.copyOf(managers);
+        this.fanOutExecutor = shards > 1 ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        this.refresher = startRefresher(config.getRefreshIntervalMs());
+    }
+
+    /**
+     * NRT 模式，基于 writer 打开，未提交的数据刷新后即可见；目录由 writer 负责关闭
+     *
+     * @param writer           长生命周期的 writer
+     * @param config           搜索器配置
+     * @param scheduledRefresh 是否按 config 定时刷新，由外部控制刷新时传 false
+     */
+    public IndexSearcherManager(IndexWriter writer, LuceneProperties.Searcher config, boolean scheduledRefresh) throws IOException {
+        this(List.of(writer), config, scheduledRefresh);
+    }
+
+    /**
+     * 多分片 NRT 模式，每个分片一个 writer，acquire 得到的是覆盖所有分片的 ShardedIndexSearcher
+     *
+     * @param writers          各分片的 writer，顺序即分片序号
+     * @param config           搜索器配置
+     * @param scheduledRefresh 是否按 config 定时刷新，由外部控制刷新时传 false
+     */
+    public IndexSearcherManager(List<IndexWriter> writers, LuceneProperties.Searcher config, boolean scheduledRefresh) throws IOException {
+        this.directories = List.of();
+        this.searcherFactory = new ConcurrentSearcherFactory(config.getConcurrency(), config.getQueryCache());
+        List<SearcherManager> managers = new ArrayList<>(writers.size());
+        for (IndexWriter writer : writers) {
+            managers.add(new SearcherManager(writer, searcherFactory));
+        }
+        this.searcherManagers = List.copyOf(managers);
+        this.fanOutExecutor = writers.size() > 1 ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        this.refresher = startRefresher(scheduledRefresh ? config.getRefreshIntervalMs() : 0);
+    }
+
+    private ScheduledExecutorService startRefresher(long refreshIntervalMs) {
+        if (refreshIntervalMs <= 0) {
+            return null;
+        }
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "lucene-searcher-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::refreshQuietly, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        return executor;
+    }
+
+    /**
+     * 索引目录为空时先提交一个空索引，保证 reader 可以打开
+     */
+    private static void ensureIndex(Directory directory) throws IOException {
+        if (!DirectoryReader.indexExists(directory)) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                writer.commit();
+            }
+        }
+    }
+
+    /**
+     * 获取搜索器，使用完后必须调用 release 归还
+     */
+    public IndexSearcher acquire() throws IOException {
+        if (searcherManagers.size() == 1) {
+            return searcherManagers.get(0).acquire();
+        }
+        List<IndexSearcher> acquired = new ArrayList<>(searcherManagers.size());
+        try {
+            for (SearcherManager manager : searcherManagers) {
+                acquired.add(manager.acquire());
+            }
+            IndexReader[] readers = new IndexReader[acquired.size()];
+            for (int i = 0; i < readers.length; i++) {
+                readers[i] = acquired.get(i).getIndexReader();
+            }
+            // 不关闭子 reader，子 reader 由各分片的 SearcherManager 管理
+            return new ShardedIndexSearcher(new MultiReader(readers, false), acquired, fanOutExecutor, searcherFactory, true);
+        } catch (IOException | RuntimeException e) {
+            for (int i = 0; i < acquired.size(); i++) {
+                searcherManagers.get(i).release(acquired.get(i));
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 所有搜索器共享的查询缓存，关闭缓存时为 null
+     */
+    public LRUQueryCache getQueryCache() {
+        return searcherFactory.getQueryCache();
+    }
+
+    /**
+     * 分片数
+     */
+    public int getShardCount() {
+        return searcherManagers.size();
+    }
+
+    /**
+     * 返回同一个 reader 上不带执行器的搜索器，供开销小的查询顺序执行，避免并行调度的额外开销；
+     * 返回的搜索器不需要单独归还，随 acquire 得到的搜索器一起归还
+     */
+    public IndexSearcher sequential(IndexSearcher searcher) {
+        if (!searcherFactory.isConcurrent()) {
+            return searcher;
+        }
+        return view(searcher, false);
+    }
+
+    /**
+     * 返回同一个 reader 上只给当前请求使用的搜索器，可以设置超时等请求级的状态而不影响共享的搜索器；
+     * 返回的搜索器不需要单独归还，随 acquire 得到的搜索器一起归还
+     *
+     * @param concurrent 是否保留执行器按 slice 并行搜索
+     */
+    public IndexSearcher view(IndexSearcher searcher, boolean concurrent) {
+        if (searcher instanceof ShardedIndexSearcher sharded) {
+            // 批量搜索时同一个搜索器会被多个查询并发使用，超时状态不能设置在它上面
+            return sharded.view(concurrent);
+        }
+        IndexSearcher view = concurrent
+                ? searcherFactory.newSearcher(searcher.getIndexReader(), null)
+                : new IndexSearcher(searcher.getIndexReader());
+        view.setSimilarity(searcher.getSimilarity());
+        view.setQueryCache(searcher.getQueryCache());
+        view.setQueryCachingPolicy(searcher.getQueryCachingPolicy());
+        return view;
+    }
+
+    /**
+     * 归还搜索器
+     */
+    public void release(IndexSearcher searcher) throws IOException {
+        if (searcher == null) {
+            return;
+        }
+        if (searcher instanceof ShardedIndexSearcher sharded) {
+            try {
+                searcher.getIndexReader().close();
+            } finally {
+                List<IndexSearcher> shards = sharded.getShardSearchers();
+                for (int i = 0; i < shards.size(); i++) {
+                    searcherManagers.get(i).release(shards.get(i));
+                }
+            }
+            return;
+        }
+        searcherManagers.get(0).release(searcher);
+    }
+
+    /**
+     * 有新的提交时刷新 reader，正在刷新时直接返回
+     */
+    public boolean maybeRefresh() throws IOException {
+        boolean refreshed = true;
+        for (SearcherManager manager : searcherManagers) {
+            refreshed &= manager.maybeRefresh();
+        }
+        return refreshed;
+    }
+
+    /**
+     * 刷新 reader，正在刷新时等待其完成
+     */
+    public void maybeRefreshBlocking() throws IOException {
+        for (SearcherManager manager : searcherManagers) {
+            manager.maybeRefreshBlocking();
+        }
+    }
+
+    /**
+     * 底层的 SearcherManager，只有一个分片时使用
+     */
+    public SearcherManager getSearcherManager() {
+        if (searcherManagers.size() != 1) {
+            throw new IllegalStateException("多分片索引请使用 getSearcherManagers");
+        }
+        return searcherManagers.get(0);
+    }
+
+    /**
+     * 各分片的 SearcherManager，供 ControlledRealTimeReopenThread 等组件使用
+     */
+    public List<SearcherManager> getSearcherManagers() {
+        return searcherManagers;
+    }
+
+    /**
+     * 在所有分片上注册刷新监听
+     */
+    public void addListener(ReferenceManager.RefreshListener listener) {
+        for (SearcherManager manager : searcherManagers) {
+            manager.addListener(listener);
+        }
+    }
+
+    /**
+     * 在所有分片上移除刷新监听
+     */
+    public void removeListener(ReferenceManager.RefreshListener listener) {
+        for (SearcherManager manager : searcherManagers) {
+            manager.removeListener(listener);
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            maybeRefresh();
+        } catch (Exception e) {
+            log.warn("刷新搜索器失败", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+        try {
+            IOUtils.close(searcherManagers);
+        } finally {
+            if (fanOutExecutor != null) {
+                fanOutExecutor.shutdown();
+            }
+            searcherFactory.close();
+            IOUtils.close(directories);
+        }
+    }
+}
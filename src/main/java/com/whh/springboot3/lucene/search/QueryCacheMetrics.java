@@ -0,0 +1,58 @@
+package com.whh.springboot3.lucene.search;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.lucene.search.LRUQueryCache;
+
+/**
+ * @Author wanghonghui
+ * @Description 查询缓存的命中、淘汰和内存占用统计
+ * @Date 2026/10/17 22:10
+ */
+public class QueryCacheMetrics implements MeterBinder {
+
+    /**
+     * 共享的查询缓存，为 null 时不注册任何指标
+     */
+    private final LRUQueryCache cache;
+
+    public QueryCacheMetrics(LRUQueryCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (cache == null) {
+            return;
+        }
+        FunctionCounter.builder("lucene.search.query.cache.hits", cache, LRUQueryCache::getHitCount)
+                .description("查询缓存命中次数（按段计）")
+                .register(registry);
+        FunctionCounter.builder("lucene.search.query.cache.misses", cache, LRUQueryCache::getMissCount)
+                .description("查询缓存未命中次数（按段计）")
+                .register(registry);
+        FunctionCounter.builder("lucene.search.query.cache.puts", cache, LRUQueryCache::getCacheCount)
+                .description("写入缓存的位图数")
+                .register(registry);
+        FunctionCounter.builder("lucene.search.query.cache.evictions", cache, LRUQueryCache::getEvictionCount)
+                .description("被淘汰的位图数")
+                .register(registry);
+        Gauge.builder("lucene.search.query.cache.size", cache, LRUQueryCache::getCacheSize)
+                .description("当前缓存的位图数")
+                .register(registry);
+        Gauge.builder("lucene.search.query.cache.memory", cache, LRUQueryCache::ramBytesUsed)
+                .description("缓存占用的内存")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("lucene.search.query.cache.hit.ratio", cache, QueryCacheMetrics::hitRatio)
+                .description("查询缓存命中率")
+                .register(registry);
+    }
+
+    private static double hitRatio(LRUQueryCache cache) {
+        long total = cache.getTotalCount();
+        return total == 0 ? 0 : (double) cache.getHitCount() / total;
+    }
+}
@@ -0,0 +1,58 @@
+package com.whh.springboot3.lucene.search;
+
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Author wanghonghui
+ * @Description 倒数排名融合（RRF）：每个列表中排第 r 名的文档得 1 / (rankConstant + r) 分，各列表得分相加。
+ * 只看排名不看原始分数，BM25 和向量相似度的分数尺度不同也可以直接融合
+ * @Date 2026/10/17 23:30
+ */
+public final class ReciprocalRankFusion {
+
+    /**
+     * 常用的排名常数，越大排名靠后的文档权重衰减越慢
+     */
+    public static final int DEFAULT_RANK_CONSTANT = 60;
+
+    private ReciprocalRankFusion() {
+    }
+
+    /**
+     * 融合多个排好序的结果列表，docId 必须在同一个 reader 上
+     *
+     * @param topN         返回的条数
+     * @param rankConstant 排名常数
+     * @param lists        各路结果，元素为 null 时跳过
+     * @return 融合后的结果，total 为各路结果的并集大小，有任一路不完整时为下限
+     */
+    public static TopDocs fuse(int topN, int rankConstant, TopDocs... lists) {
+        Map<Integer, Float> scores = new HashMap<>();
+        boolean complete = true;
+        for (TopDocs list : lists) {
+            if (list == null) {
+                continue;
+            }
+            ScoreDoc[] scoreDocs = list.scoreDocs;
+            for (int rank = 0; rank < scoreDocs.length; rank++) {
+                scores.merge(scoreDocs[rank].doc, 1f / (rankConstant + rank + 1), Float::sum);
+            }
+            complete &= list.totalHits.relation() == TotalHits.Relation.EQUAL_TO && list.totalHits.value() <= scoreDocs.length;
+        }
+        List<ScoreDoc> fused = new ArrayList<>(scores.size());
+        scores.forEach((doc, score) -> fused.add(new ScoreDoc(doc, score)));
+        // 分数相同时按 docId 排，结果稳定
+        fused.sort((a, b) -> a.score != b.score ? Float.compare(b.score, a.score) : Integer.compare(a.doc, b.doc));
+        ScoreDoc[] top = fused.subList(0, Math.min(topN, fused.size())).toArray(new ScoreDoc[0]);
+        TotalHits totalHits = new TotalHits(fused.size(),
+                complete ? TotalHits.Relation.EQUAL_TO : TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO);
+        return new TopDocs(totalHits, top);
+    }
+}
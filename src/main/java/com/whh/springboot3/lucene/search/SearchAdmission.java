@@ -0,0 +1,107 @@
+package com.whh.springboot3.lucene.search;
+
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Author wanghonghui
+ * @Description 搜索准入控制：限制同时执行的搜索数，超出的请求短时间排队，排队已满或等待超时时直接拒绝，
+ * 避免过载时所有请求一起变慢
+ * @Date 2026/10/17 21:30
+ */
+public class SearchAdmission {
+
+    private final int maxConcurrent;
+
+    private final Semaphore permits;
+
+    private final int maxQueued;
+
+    private final long maxWaitMs;
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Timer waitTimer;
+
+    private final Counter queueFull;
+
+    private final Counter timeout;
+
+    private final Counter interrupted;
+
+    public SearchAdmission(LuceneProperties.Admission config, MeterRegistry registry) {
+        this.maxConcurrent = config.getMaxConcurrent();
+        this.permits = new Semaphore(Math.max(1, maxConcurrent), true);
+        this.maxQueued = Math.max(0, config.getMaxQueued());
+        this.maxWaitMs = Math.max(0, config.getMaxWaitMs());
+        this.waitTimer = Timer.builder("lucene.search.admission.wait")
+                .description("搜索排队等待耗时")
+                .register(registry);
+        this.queueFull = rejected(registry, "queue_full");
+        this.timeout = rejected(registry, "timeout");
+        this.interrupted = rejected(registry, "interrupted");
+        Gauge.builder("lucene.search.admission.active", this, SearchAdmission::active)
+                .description("正在执行的搜索数")
+                .register(registry);
+        Gauge.builder("lucene.search.admission.queued", queued, AtomicInteger::get)
+                .description("排队等待的搜索数")
+                .register(registry);
+    }
+
+    private static Counter rejected(MeterRegistry registry, String reason) {
+        return Counter.builder("lucene.search.admission.rejected")
+                .description("被拒绝的搜索数")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    /**
+     * 获取执行许可，成功后必须调用 release 归还
+     *
+     * @throws SearchRejectedException 排队已满、等待超时或被中断
+     */
+    public void acquire() {
+        if (maxConcurrent <= 0 || permits.tryAcquire()) {
+            return;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            queueFull.increment();
+            throw new SearchRejectedException("queue_full", "搜索请求过多，请稍后重试");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+                timeout.increment();
+                throw new SearchRejectedException("timeout", "搜索排队超时，请稍后重试");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            interrupted.increment();
+            throw new SearchRejectedException("interrupted", "搜索排队时被中断");
+        } finally {
+            queued.decrementAndGet();
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 归还执行许可
+     */
+    public void release() {
+        if (maxConcurrent > 0) {
+            permits.release();
+        }
+    }
+
+    private double active() {
+        return maxConcurrent <= 0 ? 0 : maxConcurrent - permits.availablePermits();
+    }
+}
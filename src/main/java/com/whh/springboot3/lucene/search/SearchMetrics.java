@@ -0,0 +1,179 @@
+package com.whh.springboot3.lucene.search;
+
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * @Author wanghonghui
+ * @Description 搜索各阶段耗时统计和慢查询日志
+ * @Date 2026/10/17 18:40
+ */
+@Slf4j
+public class SearchMetrics {
+
+    /**
+     * 搜索的各个阶段
+     */
+    public enum Phase {
+        /**
+         * 等待准入许可
+         */
+        ADMISSION,
+        /**
+         * 从 SearcherManager 获取 reader
+         */
+        ACQUIRE,
+        /**
+         * 构造查询、排序和缓存 key
+         */
+        QUERY,
+        /**
+         * 收集命中
+         */
+        COLLECT,
+        /**
+         * 读取主键和存储字段
+         */
+        LOAD,
+        /**
+         * 高亮
+         */
+        HIGHLIGHT
+    }
+
+    /**
+     * 单次搜索的计时，非线程安全，只在发起搜索的线程上使用
+     */
+    public static class Trace {
+
+        private final long start = System.nanoTime();
+
+        private final long[] nanos = new long[Phase.values().length];
+
+        private long last = start;
+
+        private boolean cacheHit;
+
+        private boolean timedOut;
+
+        /**
+         * 上一次标记到现在的耗时计入 phase
+         */
+        public void mark(Phase phase) {
+            long now = System.nanoTime();
+            nanos[phase.ordinal()] += now - last;
+            last = now;
+        }
+
+        public void cacheHit() {
+            this.cacheHit = true;
+        }
+
+        /**
+         * 收集命中超出时间预算，返回的是部分结果
+         */
+        public void timedOut() {
+            this.timedOut = true;
+        }
+    }
+
+    /**
+     * 按搜索类分开统计的计量器
+     */
+    private record Meters(Timer total, Timer[] phases, Counter cacheHits, Counter slow, Counter timeouts) {
+    }
+
+    private final MeterRegistry registry;
+
+    private final long slowThresholdNanos;
+
+    private final Map<Class<?>, Meters> meters = new ConcurrentHashMap<>();
+
+    public SearchMetrics(MeterRegistry registry, LuceneProperties.SlowLog slowLog) {
+        this.registry = registry;
+        this.slowThresholdNanos = slowLog.getThresholdMs() > 0 ? TimeUnit.MILLISECONDS.toNanos(slowLog.getThresholdMs()) : Long.MAX_VALUE;
+    }
+
+    /**
+     * 记录一次搜索，超过阈值时输出慢查询日志
+     *
+     * @param owner 搜索类
+     * @param trace 本次搜索的计时
+     * @param query 改写后的查询，只在需要记录慢查询时才计算
+     */
+    public void record(Class<?> owner, Trace trace, Supplier<String> query) {
+        long total = System.nanoTime() - trace.start;
+        Meters m = meters.computeIfAbsent(owner, this::register);
+        m.total().record(total, TimeUnit.NANOSECONDS);
+        if (trace.cacheHit) {
+            m.cacheHits().increment();
+        }
+        if (trace.timedOut) {
+            m.timeouts().increment();
+        }
+        for (Phase phase : Phase.values()) {
+            long nanos = trace.nanos[phase.ordinal()];
+            if (nanos > 0) {
+                m.phases()[phase.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (total >= slowThresholdNanos) {
+            m.slow().increment();
+            StringBuilder phases = new StringBuilder();
+            for (Phase phase : Phase.values()) {
+                phases.append(phase.name().toLowerCase()).append('=')
+                        .append(TimeUnit.NANOSECONDS.toMillis(trace.nanos[phase.ordinal()])).append("ms ");
+            }
+            log.warn("慢查询 {} ms, searcher={}, cacheHit={}, timedOut={}, {}query={}", TimeUnit.NANOSECONDS.toMillis(total),
+                    owner.getSimpleName(), trace.cacheHit, trace.timedOut, phases, query.get());
+        }
+    }
+
+    /**
+     * 记录一次因超出开销限制被拒绝的查询
+     *
+     * @param owner  搜索类
+     * @param reason 触发的限制
+     */
+    public void limited(Class<?> owner, String reason) {
+        Counter.builder("lucene.search.limited")
+                .description("超出开销限制被拒绝的查询数")
+                .tag("searcher", owner.getSimpleName())
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 指标注册的 registry，查询构造器的展开截断计数也注册在这里
+     */
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    private Meters register(Class<?> owner) {
+        String searcher = owner.getSimpleName();
+        Timer[] phases = new Timer[Phase.values().length];
+        for (Phase phase : Phase.values()) {
+            phases[phase.ordinal()] = Timer.builder("lucene.search.phase")
+                    .description("搜索各阶段耗时")
+                    .tag("searcher", searcher)
+                    .tag("phase", phase.name().toLowerCase())
+                    .register(registry);
+        }
+        return new Meters(
+                Timer.builder("lucene.search").description("搜索总耗时").tag("searcher", searcher).register(registry),
+                phases,
+                Counter.builder("lucene.search.cache.hits").description("命中结果缓存的搜索数").tag("searcher", searcher).register(registry),
+                Counter.builder("lucene.search.slow").description("慢查询数").tag("searcher", searcher).register(registry),
+                Counter.builder("lucene.search.timeouts").description("超出时间预算返回部分结果的搜索数").tag("searcher", searcher).register(registry));
+    }
+}
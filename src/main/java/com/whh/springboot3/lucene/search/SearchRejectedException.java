@@ -0,0 +1,22 @@
+package com.whh.springboot3.lucene.search;
+
+import lombok.Getter;
+
+/**
+ * @Author wanghonghui
+ * @Description 并发搜索数已满且排队超限或等待超时，搜索被拒绝，调用方应稍后重试
+ * @Date 2026/10/17 21:30
+ */
+@Getter
+public class SearchRejectedException extends RuntimeException {
+
+    /**
+     * 拒绝原因：queue_full 排队已满，timeout 等待超时，interrupted 等待时被中断
+     */
+    private final String reason;
+
+    public SearchRejectedException(String reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+}
@@ -0,0 +1,123 @@
+package com.whh.springboot3.lucene.search;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.search.base.PageResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.Sort;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author wanghonghui
+ * @Description 搜索结果缓存，按调用方估算的内存大小淘汰；reader 刷新到新版本时整体失效。
+ * 缓存中的结果由调用方复制后放入、取出后再复制，不和调用方共享可变对象
+ * @Date 2026/10/17 16:10
+ */
+public class SearchResultCache {
+
+    /**
+     * 缓存 key，version 为 reader 版本，保证不会命中旧 reader 上的结果
+     */
+    public record Key(Class<?> owner, Query query, Sort sort, int pageNumber, int pageSize, String after, int totalHitsThreshold,
+                      List<String> fields, boolean idsOnly, List<String> highlightFields, String preTag, String postTag, long version) {
+    }
+
+    private final boolean enabled;
+
+    /**
+     * 缓存的结果和放入时估算的大小（字节）
+     */
+    private record Entry(PageResult<?> value, int weight) {
+    }
+
+    private final Cache<Key, Entry> cache;
+
+    public SearchResultCache(IndexSearcherManager searcherManager, LuceneProperties.ResultCache config) {
+        this.enabled = config.isEnabled();
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .maximumWeight(config.getMaxSizeMb() * 1024 * 1024)
+                .recordStats();
+        if (config.getExpireAfterWriteSeconds() > 0) {
+            builder.expireAfterWrite(config.getExpireAfterWriteSeconds(), TimeUnit.SECONDS);
+        }
+        this.cache = builder
+                .weigher((Key key, Entry entry) -> entry.weight())
+                .build();
+        searcherManager.addListener(new ReferenceManager.RefreshListener() {
+            @Override
+            public void beforeRefresh() {
+            }
+
+            @Override
+            public void afterRefresh(boolean didRefresh) {
+                if (didRefresh) {
+                    cache.invalidateAll();
+                }
+            }
+        });
+    }
+
+    /**
+     * reader 的版本号，每次有新的提交或 NRT 刷新都会变化
+     */
+    public static long version(IndexSearcher searcher) {
+        if (searcher instanceof ShardedIndexSearcher sharded) {
+            return sharded.version();
+        }
+        IndexReader reader = searcher.getIndexReader();
+        return reader instanceof DirectoryReader directoryReader ? directoryReader.getVersion() : -1;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public PageResult<?> get(Key key) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = cache.getIfPresent(key);
+        return entry == null ? null : entry.value();
+    }
+
+    /**
+     * @param weight 估算的内存大小（字节），用于按容量淘汰
+     */
+    public void put(Key key, PageResult<?> value, int weight) {
+        if (enabled) {
+            cache.put(key, new Entry(value, Math.max(1, weight)));
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * 命中、未命中、淘汰等统计
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * 把命中率、淘汰数等统计注册到 registry
+     */
+    public void bindTo(MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, cache, "lucene.search.results");
+    }
+}
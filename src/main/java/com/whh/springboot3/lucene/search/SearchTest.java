@@ -2,37 +2,45 @@ package com.whh.springboot3.lucene.search;
 
 import com.alibaba.fastjson2.JSON;
 import com.whh.springboot3.lucene.Cons;
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.schema.SchemaRegistry;
+import com.whh.springboot3.lucene.search.base.HighlightMode;
 import com.whh.springboot3.lucene.search.base.LuceneQueryBuilder;
 import com.whh.springboot3.lucene.search.base.PageResult;
 import com.whh.springboot3.lucene.search.base.SearchResult;
-import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.cjk.CJKAnalyzer;
-import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.search.Query;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Paths;
 
 /**
  * @Author wanghonghui
  * @Description
  * @Date 2024/11/24 18:15
  */
-public class SearchTest extends AbstractSearch {
-
+@Component
+public class SearchTest extends AbstractSearch<Author> {
 
-
-    public static void main(String[] args) throws Exception {
-        SearchTest search = new SearchTest();
-        PageResult<SearchResult> pages = search.search("名不", Cons.AUTHOR_DESC, 1, 15, null, null);
-        String jsonString = JSON.toJSONString(pages);
-        System.err.println(jsonString);
+    public SearchTest(IndexSearcherManager searcherManager, SearchResultCache resultCache, SearchMetrics metrics,
+                      SearchAdmission admission, LuceneProperties properties) {
+        super(searcherManager, SchemaRegistry.of(Author.class));
+        setResultCache(resultCache);
+        setMetrics(metrics);
+        setAdmission(admission);
+        setLimits(properties.getSearcher().getLimits());
+        setHighlightMode(HighlightMode.UNIFIED);
     }
 
-    /**
-     * 获取分词器
-     */
-    @Override
-    public Analyzer getAnalyzer() {
-//        return new StandardAnalyzer();
-        return new CJKAnalyzer();
+    public static void main(String[] args) throws Exception {
+        LuceneProperties properties = new LuceneProperties();
+        try (IndexSearcherManager searcherManager = new IndexSearcherManager(Paths.get(properties.getIndex().getPath()), properties.getSearcher(),
+                Math.max(1, properties.getIndex().getShards()), properties.getIndex().getPreloadExtensions())) {
+            SearchTest search = new SearchTest(searcherManager, null, null, null, properties);
+            PageResult<SearchResult<Author>> pages = search.search("名不", Cons.AUTHOR_DESC, 1, 15, null, null);
+            String jsonString = JSON.toJSONString(pages);
+            System.err.println(jsonString);
+        }
     }
 
     /**
@@ -44,9 +52,22 @@ public class SearchTest extends AbstractSearch {
      */
     @Override
     public Query getQuery(String searchContent, String searchField) throws Exception {
-        return new LuceneQueryBuilder(getAnalyzer())
+        return new LuceneQueryBuilder(getSchema())
+                .limits(getLimits(), getMetrics() == null ? null : getMetrics().getRegistry(), getClass())
                 //.term(searchField, searchContent)
-                .phrase(searchField, searchContent.split(""))
+                //.phrase(searchField, searchContent.split(""))
+                .bigramPhrase(searchField, searchContent)
+                .queryBuilder
+                .build();
+    }
+
+    /**
+     * 搜索查在二元分词字段上，高亮按原字段的分词器组成短语，单个字时为词项查询
+     */
+    @Override
+    public Query getHighlightQuery(String searchContent, String searchField, Query query) {
+        return new LuceneQueryBuilder(getSchema())
+                .analyzedPhrase(searchField, searchContent)
                 .queryBuilder
                 .build();
     }
@@ -0,0 +1,107 @@
+package com.whh.springboot3.lucene.search;
+
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.search.base.SearchRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @Author wanghonghui
+ * @Description 启动预热：重放配置的查询，让索引文件进入页缓存、热点代码被 JIT 编译。
+ * 预热期间显式发布 REFUSING_TRAFFIC，结束后再发布 ACCEPTING_TRAFFIC，预热结束前就绪探针不会通过
+ * @Date 2026/10/17 19:20
+ */
+@Slf4j
+@Component
+public class SearchWarmup implements ApplicationRunner {
+
+    private final SearchTest search;
+
+    private final LuceneProperties.Warmup config;
+
+    private final ApplicationEventPublisher publisher;
+
+    public SearchWarmup(SearchTest search, LuceneProperties properties, ApplicationEventPublisher publisher) {
+        this.search = search;
+        this.config = properties.getWarmup();
+        this.publisher = publisher;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!config.isEnabled()) {
+            return;
+        }
+        AvailabilityChangeEvent.publish(publisher, this, ReadinessState.REFUSING_TRAFFIC);
+        try {
+            warmup();
+        } finally {
+            AvailabilityChangeEvent.publish(publisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+        }
+    }
+
+    private void warmup() throws IOException {
+        List<String> queries = loadQueries();
+        if (queries.isEmpty()) {
+            log.info("没有配置预热查询，跳过预热");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int executed = 0;
+        int failed = 0;
+        for (int round = 0; round < config.getRounds(); round++) {
+            for (String line : queries) {
+                try {
+                    replay(line);
+                    executed++;
+                } catch (Exception e) {
+                    // 单条失败不影响启动，只记录
+                    failed++;
+                    log.warn("预热查询失败: {}", line, e);
+                }
+            }
+        }
+        log.info("预热完成，共执行 {} 次查询，失败 {} 次，耗时 {} ms", executed, failed, System.currentTimeMillis() - start);
+    }
+
+    private void replay(String line) throws Exception {
+        String field = config.getDefaultField();
+        String content = line;
+        int colon = line.indexOf(':');
+        if (colon > 0 && search.getSchema().hasField(line.substring(0, colon))) {
+            field = line.substring(0, colon);
+            content = line.substring(colon + 1);
+        }
+        // 不走结果缓存，保证每一轮都真正执行查询、读取存储字段和高亮
+        search.search(new SearchRequest()
+                .setSearchContent(content)
+                .setSearchField(field)
+                .setCacheable(false));
+        search.count(content, field);
+    }
+
+    private List<String> loadQueries() throws IOException {
+        List<String> queries = new ArrayList<>(config.getQueries());
+        String file = config.getQueriesFile();
+        if (file != null && !file.isEmpty()) {
+            for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    queries.add(line.strip());
+                }
+            }
+        }
+        return queries;
+    }
+}
@@ -0,0 +1,301 @@
+package com.whh.springboot3.lucene.search;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.*;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * @Author wanghonghui
+ * @Description 多个分片组成的搜索器：本身建在所有分片 reader 组成的 MultiReader 上，docId 全局唯一，
+ * 读取存储字段、高亮、计数都直接用它；收集命中时并发地在各分片上搜索，再用 TopDocs.merge 归并。
+ * 各分片打分使用全局的词项和字段统计，分数在分片之间可比；全局统计每次搜索只计算一次，各分片共用
+ * @Date 2026/10/17 20:40
+ */
+public class ShardedIndexSearcher extends IndexSearcher {
+
+    /**
+     * 各分片上 acquire 得到的搜索器，归还时使用
+     */
+    private final List<IndexSearcher> shardSearchers;
+
+    /**
+     * 各分片在全局 docId 中的起始位置，多一个元素记录总数
+     */
+    private final int[] docStarts;
+
+    private final ExecutorService executor;
+
+    /**
+     * 创建各分片搜索器时使用的执行器和 slice 配置
+     */
+    private final ConcurrentSearcherFactory searcherFactory;
+
+    /**
+     * 分片内是否按 slice 并行，为 false 时分片搜索器不带执行器
+     */
+    private final boolean concurrent;
+
+    /**
+     * 请求级的超时，各分片上的搜索共用
+     */
+    private QueryTimeout timeout;
+
+    /**
+     * 是否有分片超时返回了部分结果
+     */
+    private volatile boolean shardTimedOut;
+
+    ShardedIndexSearcher(MultiReader reader, List<IndexSearcher> shardSearchers, ExecutorService executor,
+                         ConcurrentSearcherFactory searcherFactory, boolean concurrent) {
+        super(reader);
+        this.shardSearchers = shardSearchers;
+        this.executor = executor;
+        this.searcherFactory = searcherFactory;
+        this.concurrent = concurrent;
+        // 和分片搜索器使用同一个查询缓存，各分片的段在缓存中的 key 不变
+        IndexSearcher first = shardSearchers.get(0);
+        setSimilarity(first.getSimilarity());
+        setQueryCache(first.getQueryCache());
+        setQueryCachingPolicy(first.getQueryCachingPolicy());
+        this.docStarts = new int[shardSearchers.size() + 1];
+        for (int i = 0; i < shardSearchers.size(); i++) {
+            docStarts[i + 1] = docStarts[i] + shardSearchers.get(i).getIndexReader().maxDoc();
+        }
+    }
+
+    List<IndexSearcher> getShardSearchers() {
+        return shardSearchers;
+    }
+
+    /**
+     * 分片内是否按 slice 并行
+     */
+    boolean isConcurrent() {
+        return concurrent && searcherFactory.isConcurrent();
+    }
+
+    /**
+     * 同一个 reader 和同一组分片搜索器上的新搜索器，超时等请求级的状态互不影响；
+     * 不需要单独归还，随原搜索器一起归还
+     *
+     * @param concurrent 分片内是否按 slice 并行，分片之间总是并发搜索
+     */
+    ShardedIndexSearcher view(boolean concurrent) {
+        return new ShardedIndexSearcher((MultiReader) getIndexReader(), shardSearchers, executor, searcherFactory, concurrent);
+    }
+
+    /**
+     * 把 searchShards 返回的命中换算成游标使用的形式：分片序号和分片内的 docId
+     */
+    public ScoreDoc shardDoc(ScoreDoc scoreDoc) {
+        int doc = scoreDoc.doc - docStarts[scoreDoc.shardIndex];
+        return scoreDoc instanceof FieldDoc fieldDoc
+                ? new FieldDoc(doc, fieldDoc.score, fieldDoc.fields, fieldDoc.shardIndex)
+                : new ScoreDoc(doc, scoreDoc.score, scoreDoc.shardIndex);
+    }
+
+    @Override
+    public void setTimeout(QueryTimeout queryTimeout) {
+        super.setTimeout(queryTimeout);
+        this.timeout = queryTimeout;
+    }
+
+    @Override
+    public boolean timedOut() {
+        return shardTimedOut || super.timedOut();
+    }
+
+    /**
+     * 各分片 reader 版本之和，任一分片刷新后都会变大
+     */
+    public long version() {
+        long version = 0;
+        for (IndexSearcher searcher : shardSearchers) {
+            version += SearchResultCache.version(searcher);
+        }
+        return version;
+    }
+
+    /**
+     * 在各分片上并发收集前 numHits 条，归并后返回全局 docId
+     *
+     * @param sort  为 null 时按相关度排序
+     * @param after 游标对应的上一页最后一条（分片序号和分片内 docId，见 shardDoc），为 null 时从头开始
+     */
+    public TopDocs searchShards(Query query, Sort sort, ScoreDoc after, int numHits, int totalHitsThreshold) throws IOException {
+        int shards = shardSearchers.size();
+        Query rewritten = rewrite(query);
+        GlobalStatistics statistics = new GlobalStatistics(this);
+        if (after != null && (after.shardIndex < 0 || after.shardIndex >= shards)) {
+            throw new IllegalArgumentException("游标和当前分片数不匹配");
+        }
+        List<Future<TopDocs>> futures = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            int shard = i;
+            ScoreDoc shardAfter = shardAfter(after, shard);
+            IndexSearcher searcher = new ShardSearcher(shardSearchers.get(shard).getIndexReader(), this, statistics, searcherFactory, concurrent);
+            if (timeout != null) {
+                searcher.setTimeout(timeout);
+            }
+            futures.add(executor.submit(() -> {
+                TopDocs topDocs = sort != null
+                        ? searcher.search(rewritten, new TopFieldCollectorManager(sort, numHits, (FieldDoc) shardAfter, totalHitsThreshold))
+                        : searcher.search(rewritten, new TopScoreDocCollectorManager(numHits, shardAfter, totalHitsThreshold));
+                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                    scoreDoc.shardIndex = shard;
+                }
+                if (searcher.timedOut()) {
+                    shardTimedOut = true;
+                }
+                return topDocs;
+            }));
+        }
+        TopDocs[] shardHits = sort != null ? new TopFieldDocs[shards] : new TopDocs[shards];
+        try {
+            for (int i = 0; i < shards; i++) {
+                shardHits[i] = futures.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("分片搜索被中断");
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException("分片搜索失败", e.getCause());
+        }
+        TopDocs merged = sort != null
+                ? TopDocs.merge(sort, 0, numHits, (TopFieldDocs[]) shardHits)
+                : TopDocs.merge(0, numHits, shardHits);
+        for (ScoreDoc scoreDoc : merged.scoreDocs) {
+            scoreDoc.doc += docStarts[scoreDoc.shardIndex];
+        }
+        return merged;
+    }
+
+    /**
+     * 把游标换算到分片上：归并时分数（或排序值）相同的按分片序号、再按 docId 排列，
+     * 所以游标之前的分片里相同值的文档都已返回，之后的分片里都还没有返回；
+     * 游标所在的分片直接用游标里的分片内 docId，不依赖各分片当前的 maxDoc
+     */
+    private ScoreDoc shardAfter(ScoreDoc after, int shard) {
+        if (after == null) {
+            return null;
+        }
+        int doc;
+        if (shard < after.shardIndex) {
+            doc = Integer.MAX_VALUE;
+        } else if (shard > after.shardIndex) {
+            doc = -1;
+        } else {
+            doc = after.doc;
+        }
+        return after instanceof FieldDoc fieldDoc
+                ? new FieldDoc(doc, fieldDoc.score, fieldDoc.fields)
+                : new ScoreDoc(doc, after.score);
+    }
+
+    /**
+     * 一次搜索中的全局词项和字段统计，第一个需要的分片计算，其它分片直接使用
+     */
+    private static class GlobalStatistics {
+
+        private final IndexSearcher global;
+
+        private final Map<Term, Optional<TermStatistics>> terms = new ConcurrentHashMap<>();
+
+        private final Map<String, Optional<CollectionStatistics>> fields = new ConcurrentHashMap<>();
+
+        GlobalStatistics(IndexSearcher global) {
+            this.global = global;
+        }
+
+        /**
+         * 所有分片上的词项统计，词项在所有分片上都不存在时返回 null
+         */
+        TermStatistics term(Term term) throws IOException {
+            try {
+                return terms.computeIfAbsent(term, t -> {
+                    try {
+                        TermStates states = TermStates.build(global, t, true);
+                        return states.docFreq() == 0 ? Optional.empty()
+                                : Optional.of(global.termStatistics(t, states.docFreq(), states.totalTermFreq()));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }).orElse(null);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        CollectionStatistics field(String field) throws IOException {
+            try {
+                return fields.computeIfAbsent(field, f -> {
+                    try {
+                        return Optional.ofNullable(global.collectionStatistics(f));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }).orElse(null);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * 单个分片上的搜索器，词项和字段统计取全局值；配置了执行器并且要求并行时分片内也按 slice 并行
+     */
+    private static class ShardSearcher extends IndexSearcher {
+
+        private final GlobalStatistics statistics;
+
+        private final int maxDocsPerSlice;
+
+        private final int maxSegmentsPerSlice;
+
+        ShardSearcher(IndexReader reader, IndexSearcher global, GlobalStatistics statistics, ConcurrentSearcherFactory searcherFactory,
+                      boolean concurrent) {
+            super(reader, concurrent ? searcherFactory.getExecutor() : null);
+            this.statistics = statistics;
+            this.maxDocsPerSlice = searcherFactory.getMaxDocsPerSlice();
+            this.maxSegmentsPerSlice = searcherFactory.getMaxSegmentsPerSlice();
+            setSimilarity(global.getSimilarity());
+            setQueryCache(global.getQueryCache());
+            setQueryCachingPolicy(global.getQueryCachingPolicy());
+        }
+
+        @Override
+        protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+            return slices(leaves, maxDocsPerSlice, maxSegmentsPerSlice, false);
+        }
+
+        @Override
+        public TermStatistics termStatistics(Term term, int docFreq, long totalTermFreq) throws IOException {
+            TermStatistics global = statistics.term(term);
+            return global != null ? global : super.termStatistics(term, docFreq, totalTermFreq);
+        }
+
+        @Override
+        public CollectionStatistics collectionStatistics(String field) throws IOException {
+            return statistics.field(field);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.whh.springboot3.lucene.search.base;
+
+/**
+ * @Author wanghonghui
+ * @Description 高亮方式
+ * @Date 2026/10/17 16:50
+ */
+public enum HighlightMode {
+    /**
+     * Highlighter + QueryScorer，逐条命中对存储的原文重新分词
+     */
+    PLAIN,
+    /**
+     * UnifiedHighlighter，优先使用倒排或词向量里的 offset，整页命中一次批量高亮
+     */
+    UNIFIED
+}
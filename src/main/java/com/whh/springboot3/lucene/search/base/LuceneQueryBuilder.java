@@ -1,14 +1,30 @@
 package com.whh.springboot3.lucene.search.base;
 
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.schema.EntitySchema;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.cjk.CJKBigramFilter;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
 import org.apache.lucene.document.IntPoint;
 import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermStates;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.*;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.automaton.Operations;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.*;
 
 /**
  * @Author wanghonghui
@@ -18,10 +34,132 @@ import java.time.ZoneOffset;
 public class LuceneQueryBuilder {
     public final BooleanQuery.Builder queryBuilder;
     private final Analyzer analyzer;
+    private final EntitySchema<?> schema;
+    /**
+     * 多词项查询的展开限制，为 null 时不限制
+     */
+    private LuceneProperties.Limits limits;
+
+    /**
+     * 展开被截断时计数的 registry，为 null 时不计数
+     */
+    private MeterRegistry registry;
+
+    /**
+     * 展开被截断时计数的标签，一般是发起查询的搜索类
+     */
+    private Class<?> owner = LuceneQueryBuilder.class;
 
     public LuceneQueryBuilder(Analyzer analyzer) {
         this.queryBuilder = new BooleanQuery.Builder();
         this.analyzer = analyzer;
+        this.schema = null;
+    }
+
+    /**
+     * 使用索引结构，字段名会校验是否存在，分词器和索引时一致
+     */
+    public LuceneQueryBuilder(EntitySchema<?> schema) {
+        this.queryBuilder = new BooleanQuery.Builder();
+        this.analyzer = schema.getAnalyzer();
+        this.schema = schema;
+    }
+
+    /**
+     * 限制前缀、通配符、模糊查询的展开，并拒绝以通配符开头的查询；需要在添加查询条件之前设置
+     */
+    public LuceneQueryBuilder limits(LuceneProperties.Limits limits) {
+        this.limits = limits;
+        return this;
+    }
+
+    /**
+     * @param registry 展开被截断时计数的 registry，为 null 时不计数
+     * @param owner    发起查询的搜索类，展开被截断时按它计数
+     */
+    public LuceneQueryBuilder limits(LuceneProperties.Limits limits, MeterRegistry registry, Class<?> owner) {
+        this.registry = registry;
+        this.owner = owner;
+        return limits(limits);
+    }
+
+    /**
+     * 最多展开 maxExpansions 个词项，按混合后的文档频率打分；各词项的 boost 相同，
+     * 超出时保留的是按字典序排在前面的词项
+     */
+    private MultiTermQuery.RewriteMethod topTermsRewrite() {
+        return new LimitedTopTermsRewrite(limits.getMaxExpansions(), registry, owner);
+    }
+
+    /**
+     * 和 TopTermsBlendedFreqScoringRewrite 相同的打分方式；多收集一个词项，匹配的词项确实超过上限、
+     * 展开被截断时计数，便于观察有多少查询被截断（lucene.search.truncated，reason=max_expansions）
+     */
+    private static final class LimitedTopTermsRewrite extends TopTermsRewrite<LimitedTopTermsRewrite.Clauses> {
+
+        /**
+         * 最多展开的词项数
+         */
+        private final int limit;
+
+        private final MeterRegistry registry;
+
+        private final Class<?> owner;
+
+        LimitedTopTermsRewrite(int size, MeterRegistry registry, Class<?> owner) {
+            // 各词项的 boost 相同，队列按字典序保留前面的词项，多出的一个只用来判断是否截断
+            super((int) Math.min((long) size + 1, Integer.MAX_VALUE));
+            this.limit = size;
+            this.registry = registry;
+            this.owner = owner;
+        }
+
+        @Override
+        protected int getMaxSize() {
+            return IndexSearcher.getMaxClauseCount();
+        }
+
+        @Override
+        protected Clauses getTopLevelBuilder() {
+            return new Clauses();
+        }
+
+        @Override
+        protected void addClause(Clauses topLevel, Term term, int docCount, float boost, TermStates states) {
+            // 按词项升序调用，超出上限的是排在最后的词项
+            if (topLevel.count < limit) {
+                topLevel.builder.add(term, boost, states);
+            }
+            topLevel.count++;
+        }
+
+        @Override
+        protected Query build(Clauses topLevel) {
+            if (topLevel.count > limit && registry != null) {
+                Counter.builder("lucene.search.truncated")
+                        .description("展开的词项超过上限被截断的查询数")
+                        .tag("searcher", owner.getSimpleName())
+                        .tag("reason", QueryLimitException.MAX_EXPANSIONS)
+                        .register(registry)
+                        .increment();
+            }
+            return topLevel.builder.build();
+        }
+
+        static final class Clauses {
+            private final BlendedTermQuery.Builder builder = new BlendedTermQuery.Builder()
+                    .setRewriteMethod(BlendedTermQuery.BOOLEAN_REWRITE);
+            private int count;
+        }
+    }
+
+    /**
+     * 校验字段是否在索引结构中定义
+     */
+    private void checkField(String field) {
+        if (schema != null) {
+            schema.field(field);
+        }
     }
 
     /**
@@ -32,6 +170,7 @@ public class LuceneQueryBuilder {
     }
 
     public LuceneQueryBuilder term(String field, String value, BooleanClause.Occur occur) {
+        checkField(field);
         if (value != null && !value.trim().isEmpty()) {
             queryBuilder.add(new TermQuery(new Term(field, value)), occur);
         }
@@ -46,9 +185,15 @@ public class LuceneQueryBuilder {
     }
 
     public LuceneQueryBuilder match(String field, String text, BooleanClause.Occur occur) {
+        checkField(field);
         if (text != null && !text.trim().isEmpty()) {
             try {
                 QueryParser parser = new QueryParser(field, analyzer);
+                if (limits != null) {
+                    parser.setAllowLeadingWildcard(limits.isAllowLeadingWildcard());
+                    parser.setMultiTermRewriteMethod(topTermsRewrite());
+                    parser.setFuzzyPrefixLength(limits.getFuzzyPrefixLength());
+                }
                 queryBuilder.add(parser.parse(text), occur);
             } catch (Exception e) {
                 throw new RuntimeException("Parse query error", e);
@@ -65,8 +210,14 @@ public class LuceneQueryBuilder {
     }
 
     public LuceneQueryBuilder prefix(String field, String prefix, BooleanClause.Occur occur) {
+        checkField(field);
         if (prefix != null && !prefix.trim().isEmpty()) {
-            queryBuilder.add(new PrefixQuery(new Term(field, prefix)), occur);
+            Term term = new Term(field, prefix);
+            if (limits == null) {
+                queryBuilder.add(new PrefixQuery(term), occur);
+            } else {
+                queryBuilder.add(new PrefixQuery(term, topTermsRewrite()), occur);
+            }
         }
         return this;
     }
@@ -79,8 +230,18 @@ public class LuceneQueryBuilder {
     }
 
     public LuceneQueryBuilder wildcard(String field, String wildcard, BooleanClause.Occur occur) {
+        checkField(field);
         if (wildcard != null && !wildcard.trim().isEmpty()) {
-            queryBuilder.add(new WildcardQuery(new Term(field, wildcard)), occur);
+            Term term = new Term(field, wildcard);
+            if (limits == null) {
+                queryBuilder.add(new WildcardQuery(term), occur);
+            } else {
+                char first = wildcard.charAt(0);
+                if (!limits.isAllowLeadingWildcard() && (first == WildcardQuery.WILDCARD_STRING || first == WildcardQuery.WILDCARD_CHAR)) {
+                    throw new QueryLimitException(QueryLimitException.LEADING_WILDCARD, "不支持以通配符开头的查询：" + wildcard);
+                }
+                queryBuilder.add(new WildcardQuery(term, Operations.DEFAULT_DETERMINIZE_WORK_LIMIT, topTermsRewrite()), occur);
+            }
         }
         return this;
     }
@@ -93,8 +254,16 @@ public class LuceneQueryBuilder {
     }
 
     public LuceneQueryBuilder fuzzy(String field, String term, int maxEdits, BooleanClause.Occur occur) {
+        checkField(field);
         if (term != null && !term.trim().isEmpty()) {
-            queryBuilder.add(new FuzzyQuery(new Term(field, term), maxEdits), occur);
+            if (limits == null) {
+                queryBuilder.add(new FuzzyQuery(new Term(field, term), maxEdits), occur);
+            } else {
+                // 短词编辑距离为 2 时几乎能匹配字段的所有词项
+                int edits = term.codePointCount(0, term.length()) < limits.getFuzzyMinLengthForTwoEdits() ? Math.min(maxEdits, 1) : maxEdits;
+                queryBuilder.add(new FuzzyQuery(new Term(field, term), edits, limits.getFuzzyPrefixLength(),
+                        limits.getFuzzyMaxExpansions(), FuzzyQuery.defaultTranspositions), occur);
+            }
         }
         return this;
     }
@@ -107,6 +276,7 @@ public class LuceneQueryBuilder {
     }
 
     public LuceneQueryBuilder phrase(String field, String[] terms, int slop, BooleanClause.Occur occur) {
+        checkField(field);
         if (terms != null && terms.length > 0) {
             PhraseQuery.Builder phraseBuilder = new PhraseQuery.Builder();
             for (String term : terms) {
@@ -118,6 +288,171 @@ public class LuceneQueryBuilder {
         return this;
     }
 
+    /**
+     * 按字段的分词器切分后组成短语，只有一个词项时为词项查询；分词结果和索引时一致，
+     * 适合作为高亮查询
+     */
+    public LuceneQueryBuilder analyzedPhrase(String field, String text) {
+        return analyzedPhrase(field, text, BooleanClause.Occur.MUST);
+    }
+
+    public LuceneQueryBuilder analyzedPhrase(String field, String text, BooleanClause.Occur occur) {
+        checkField(field);
+        if (text == null || text.trim().isEmpty()) {
+            return this;
+        }
+        List<String> terms = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        analyze(field, text.trim(), terms, positions);
+        if (terms.size() == 1) {
+            queryBuilder.add(new TermQuery(new Term(field, terms.get(0))), occur);
+        } else if (!terms.isEmpty()) {
+            PhraseQuery.Builder phraseBuilder = new PhraseQuery.Builder();
+            for (int i = 0; i < terms.size(); i++) {
+                phraseBuilder.add(new Term(field, terms.get(i)), positions.get(i));
+            }
+            queryBuilder.add(phraseBuilder.build(), occur);
+        }
+        return this;
+    }
+
+    /**
+     * 中文短语查询，改写到二元分词字段上：相邻的二元词项组成短语，结果和按单字短语查询一致，
+     * 但每个词项的倒排表短得多；只有一个字时查二元分词字段上的单字词项
+     */
+    public LuceneQueryBuilder bigramPhrase(String field, String text) {
+        return bigramPhrase(field, text, BooleanClause.Occur.MUST);
+    }
+
+    public LuceneQueryBuilder bigramPhrase(String field, String text, BooleanClause.Occur occur) {
+        return bigram(field, text, true, occur);
+    }
+
+    /**
+     * 中文短语查询，改写成二元分词字段上的二元词项合取，不校验位置，比 bigramPhrase 更快；
+     * 三个字以上时二元词项不相邻的文档也会命中
+     */
+    public LuceneQueryBuilder bigramMatch(String field, String text) {
+        return bigramMatch(field, text, BooleanClause.Occur.MUST);
+    }
+
+    public LuceneQueryBuilder bigramMatch(String field, String text, BooleanClause.Occur occur) {
+        return bigram(field, text, false, occur);
+    }
+
+    private LuceneQueryBuilder bigram(String field, String text, boolean exact, BooleanClause.Occur occur) {
+        checkField(field);
+        if (text == null || text.trim().isEmpty()) {
+            return this;
+        }
+        String bigramField = schema != null ? schema.bigramField(field) : null;
+        if (bigramField == null) {
+            throw new IllegalArgumentException("字段没有二元分词索引: " + field);
+        }
+        List<String> terms = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        analyzeBigrams(bigramField, text.trim(), terms, positions);
+        if (terms.isEmpty()) {
+            return this;
+        }
+        if (terms.size() == 1) {
+            queryBuilder.add(new TermQuery(new Term(bigramField, terms.get(0))), occur);
+        } else if (exact) {
+            PhraseQuery.Builder phraseBuilder = new PhraseQuery.Builder();
+            for (int i = 0; i < terms.size(); i++) {
+                phraseBuilder.add(new Term(bigramField, terms.get(i)), positions.get(i));
+            }
+            queryBuilder.add(phraseBuilder.build(), occur);
+        } else {
+            BooleanQuery.Builder conjunction = new BooleanQuery.Builder();
+            for (String t : new LinkedHashSet<>(terms)) {
+                conjunction.add(new TermQuery(new Term(bigramField, t)), BooleanClause.Occur.MUST);
+            }
+            queryBuilder.add(conjunction.build(), occur);
+        }
+        return this;
+    }
+
+    /**
+     * 用二元分词字段的分词器切分文本，去掉被二元词项覆盖的单字词项：连续的字只查二元词项，
+     * 孤立的字（包括只输入一个字）查单字词项
+     */
+    private void analyzeBigrams(String bigramField, String text, List<String> terms, List<Integer> positions) {
+        List<String> allTerms = new ArrayList<>();
+        List<Integer> allPositions = new ArrayList<>();
+        List<String> types = new ArrayList<>();
+        List<Integer> starts = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        Set<Integer> bigramStarts = new HashSet<>();
+        Set<Integer> bigramEnds = new HashSet<>();
+        try (TokenStream stream = analyzer.tokenStream(bigramField, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            PositionIncrementAttribute increment = stream.addAttribute(PositionIncrementAttribute.class);
+            TypeAttribute type = stream.addAttribute(TypeAttribute.class);
+            OffsetAttribute offset = stream.addAttribute(OffsetAttribute.class);
+            stream.reset();
+            int position = -1;
+            while (stream.incrementToken()) {
+                position += increment.getPositionIncrement();
+                allTerms.add(term.toString());
+                allPositions.add(position);
+                types.add(type.type());
+                starts.add(offset.startOffset());
+                ends.add(offset.endOffset());
+                if (CJKBigramFilter.DOUBLE_TYPE.equals(type.type())) {
+                    bigramStarts.add(offset.startOffset());
+                    bigramEnds.add(offset.endOffset());
+                }
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (int i = 0; i < allTerms.size(); i++) {
+            if (CJKBigramFilter.SINGLE_TYPE.equals(types.get(i))
+                    && (bigramStarts.contains(starts.get(i)) || bigramEnds.contains(ends.get(i)))) {
+                continue;
+            }
+            terms.add(allTerms.get(i));
+            positions.add(allPositions.get(i));
+        }
+    }
+
+    /**
+     * 用字段的分词器切分文本，依次记录词项和位置
+     */
+    private void analyze(String field, String text, List<String> terms, List<Integer> positions) {
+        try (TokenStream stream = analyzer.tokenStream(field, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            PositionIncrementAttribute increment = stream.addAttribute(PositionIncrementAttribute.class);
+            stream.reset();
+            int position = -1;
+            while (stream.incrementToken()) {
+                position += increment.getPositionIncrement();
+                terms.add(term.toString());
+                positions.add(position);
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 字符串范围查询，适合不分词的字段，边界为 null 时不限
+     */
+    public LuceneQueryBuilder termRange(String field, String lower, String upper) {
+        return termRange(field, lower, upper, BooleanClause.Occur.MUST);
+    }
+
+    public LuceneQueryBuilder termRange(String field, String lower, String upper, BooleanClause.Occur occur) {
+        checkField(field);
+        if (lower != null || upper != null) {
+            queryBuilder.add(TermRangeQuery.newStringRange(field, lower, upper, true, true), occur);
+        }
+        return this;
+    }
+
     /**
      * 数值范围查询 - Integer
      */
@@ -126,6 +461,7 @@ public class LuceneQueryBuilder {
     }
 
     public LuceneQueryBuilder intRange(String field, Integer lower, Integer upper, BooleanClause.Occur occur) {
+        checkField(field);
         if (lower != null || upper != null) {
             int min = lower != null ? lower : Integer.MIN_VALUE;
             int max = upper != null ? upper : Integer.MAX_VALUE;
@@ -142,6 +478,7 @@ public class LuceneQueryBuilder {
     }
 
     public LuceneQueryBuilder longRange(String field, Long lower, Long upper, BooleanClause.Occur occur) {
+        checkField(field);
         if (lower != null || upper != null) {
             long min = lower != null ? lower : Long.MIN_VALUE;
             long max = upper != null ? upper : Long.MAX_VALUE;
@@ -158,6 +495,7 @@ public class LuceneQueryBuilder {
     }
 
     public LuceneQueryBuilder dateRange(String field, LocalDateTime start, LocalDateTime end, BooleanClause.Occur occur) {
+        checkField(field);
         if (start != null || end != null) {
             long startTime = start != null ? start.toInstant(ZoneOffset.UTC).toEpochMilli() : Long.MIN_VALUE;
             long endTime = end != null ? end.toInstant(ZoneOffset.UTC).toEpochMilli() : Long.MAX_VALUE;
@@ -166,11 +504,99 @@ public class LuceneQueryBuilder {
         return this;
     }
 
+    /**
+     * 向量近邻查询，返回和 vector 最相似的 k 个文档
+     */
+    public LuceneQueryBuilder knn(String field, float[] vector, int k) {
+        return knn(field, vector, k, null, BooleanClause.Occur.MUST);
+    }
+
+    /**
+     * 向量近邻查询
+     *
+     * @param filter 前置过滤，在图搜索过程中只接受满足过滤条件的文档，返回的 k 个结果都满足条件；为 null 时不过滤
+     */
+    public LuceneQueryBuilder knn(String field, float[] vector, int k, Query filter, BooleanClause.Occur occur) {
+        queryBuilder.add(knnQuery(field, vector, k, filter), occur);
+        return this;
+    }
+
+    /**
+     * 创建向量近邻查询，使用索引结构时按字段定义校验维度并归一化
+     */
+    public Query knnQuery(String field, float[] vector, int k, Query filter) {
+        if (k < 1) {
+            throw new IllegalArgumentException("近邻数至少为 1");
+        }
+        float[] prepared = schema != null ? schema.vectorField(field).prepare(vector) : vector;
+        return new KnnFloatVectorQuery(field, prepared, k, filter);
+    }
+
+    /**
+     * 过滤：精确匹配，只缩小结果集不参与打分，结果可以被查询缓存按段缓存成位图
+     */
+    public LuceneQueryBuilder filterTerm(String field, String value) {
+        return term(field, value, BooleanClause.Occur.FILTER);
+    }
+
+    /**
+     * 过滤：匹配任意一个值
+     */
+    public LuceneQueryBuilder filterTerms(String field, Collection<String> values) {
+        checkField(field);
+        if (values != null && !values.isEmpty()) {
+            List<BytesRef> terms = new ArrayList<>(values.size());
+            for (String value : values) {
+                terms.add(new BytesRef(value));
+            }
+            queryBuilder.add(new TermInSetQuery(field, terms), BooleanClause.Occur.FILTER);
+        }
+        return this;
+    }
+
+    /**
+     * 过滤：前缀
+     */
+    public LuceneQueryBuilder filterPrefix(String field, String prefix) {
+        return prefix(field, prefix, BooleanClause.Occur.FILTER);
+    }
+
+    /**
+     * 过滤：字符串范围
+     */
+    public LuceneQueryBuilder filterTermRange(String field, String lower, String upper) {
+        return termRange(field, lower, upper, BooleanClause.Occur.FILTER);
+    }
+
+    /**
+     * 过滤：数值范围 - Integer
+     */
+    public LuceneQueryBuilder filterIntRange(String field, Integer lower, Integer upper) {
+        return intRange(field, lower, upper, BooleanClause.Occur.FILTER);
+    }
+
+    /**
+     * 过滤：数值范围 - Long
+     */
+    public LuceneQueryBuilder filterLongRange(String field, Long lower, Long upper) {
+        return longRange(field, lower, upper, BooleanClause.Occur.FILTER);
+    }
+
+    /**
+     * 过滤：日期范围，重复使用的时间窗口可以直接命中查询缓存
+     */
+    public LuceneQueryBuilder filterDateRange(String field, LocalDateTime start, LocalDateTime end) {
+        return dateRange(field, start, end, BooleanClause.Occur.FILTER);
+    }
+
     /**
      * 多字段匹配，至少匹配一个字段
      */
     public LuceneQueryBuilder multiMatch(String[] fields, String text) {
         if (text != null && !text.trim().isEmpty() && fields != null && fields.length > 0) {
+            for (String field : fields) {
+                checkField(field);
+            }
             BooleanQuery.Builder multiBuilder = new BooleanQuery.Builder();
             for (String field : fields) {
                 multiBuilder.add(new TermQuery(new Term(field, text)), BooleanClause.Occur.SHOULD);
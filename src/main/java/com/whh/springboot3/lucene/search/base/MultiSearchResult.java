@@ -0,0 +1,37 @@
+package com.whh.springboot3.lucene.search.base;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author wanghonghui
+ * @Description 批量搜索中单个查询的结果，成功时 result 不为 null，失败时 error 为失败原因
+ * @Date 2026/10/18 00:55
+ */
+@Getter
+public class MultiSearchResult<T> {
+    private final PageResult<SearchResult<T>> result;   // 搜索结果，失败时为 null
+    private final long tookMicros;                      // 本查询的耗时（微秒），包含等待准入的时间
+    private final String error;                         // 失败原因，成功时为 null
+    private final String errorType;                     // 失败的异常类型，成功时为 null
+
+    private MultiSearchResult(PageResult<SearchResult<T>> result, long tookNanos, String error, String errorType) {
+        this.result = result;
+        this.tookMicros = TimeUnit.NANOSECONDS.toMicros(tookNanos);
+        this.error = error;
+        this.errorType = errorType;
+    }
+
+    public static <T> MultiSearchResult<T> of(PageResult<SearchResult<T>> result, long tookNanos) {
+        return new MultiSearchResult<>(result, tookNanos, null, null);
+    }
+
+    public static <T> MultiSearchResult<T> failed(Exception e, long tookNanos) {
+        return new MultiSearchResult<>(null, tookNanos, String.valueOf(e.getMessage()), e.getClass().getSimpleName());
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
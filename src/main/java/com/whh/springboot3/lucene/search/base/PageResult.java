@@ -1,6 +1,7 @@
 package com.whh.springboot3.lucene.search.base;
 
 import lombok.Getter;
+import org.apache.lucene.search.TotalHits;
 
 import java.util.List;
 
@@ -13,16 +14,35 @@ import java.util.List;
 public class PageResult<T> {
     private final List<T> content;      // 当前页数据
     private final long total;           // 总记录数
+    private final TotalHits.Relation totalRelation; // total 是精确值还是下限
     private final int pageNumber;       // 当前页码
     private final int pageSize;         // 每页大小
     private final int totalPages;       // 总页数
+    private final String after;         // 下一页游标，没有更多数据时为 null
+    private final boolean partial;      // 收集命中超时，只是部分结果
 
     public PageResult(List<T> content, long total, int pageNumber, int pageSize) {
+        this(content, total, pageNumber, pageSize, null);
+    }
+
+    public PageResult(List<T> content, long total, int pageNumber, int pageSize, String after) {
+        this(content, total, TotalHits.Relation.EQUAL_TO, pageNumber, pageSize, after);
+    }
+
+    public PageResult(List<T> content, long total, TotalHits.Relation totalRelation, int pageNumber, int pageSize, String after) {
+        this(content, total, totalRelation, pageNumber, pageSize, after, false);
+    }
+
+    public PageResult(List<T> content, long total, TotalHits.Relation totalRelation, int pageNumber, int pageSize, String after,
+                      boolean partial) {
         this.content = content;
         this.total = total;
+        this.totalRelation = totalRelation;
         this.pageNumber = pageNumber;
         this.pageSize = pageSize;
         this.totalPages = pageSize == 0 ? 1 : (int) Math.ceil((double) total / pageSize);
+        this.after = after;
+        this.partial = partial;
     }
 
     public boolean hasNext() {
@@ -0,0 +1,56 @@
+package com.whh.springboot3.lucene.search.base;
+
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.StoredFieldVisitor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @Author wanghonghui
+ * @Description 只解码指定的存储字段，需要的字段都读到后停止读取该文档
+ * @Date 2026/10/17 19:10
+ */
+public class ProjectionVisitor extends StoredFieldVisitor {
+
+    /**
+     * 需要读取的字段，为 null 时读取全部
+     */
+    private final Set<String> fields;
+
+    private final Map<String, String> values = new HashMap<>();
+
+    private int remaining;
+
+    public ProjectionVisitor(Set<String> fields) {
+        this.fields = fields;
+        this.remaining = fields == null ? -1 : fields.size();
+    }
+
+    @Override
+    public Status needsField(FieldInfo fieldInfo) {
+        if (fields == null) {
+            return Status.YES;
+        }
+        if (remaining == 0) {
+            return Status.STOP;
+        }
+        return fields.contains(fieldInfo.name) ? Status.YES : Status.NO;
+    }
+
+    @Override
+    public void stringField(FieldInfo fieldInfo, String value) {
+        // 多值字段只保留第一个值
+        if (values.putIfAbsent(fieldInfo.name, value) == null && fields != null) {
+            remaining--;
+        }
+    }
+
+    /**
+     * 读取到的字段值
+     */
+    public Map<String, String> getValues() {
+        return values;
+    }
+}
@@ -0,0 +1,42 @@
+package com.whh.springboot3.lucene.search.base;
+
+import lombok.Getter;
+
+/**
+ * @Author wanghonghui
+ * @Description 查询超出开销限制（以通配符开头、翻页过深等），按参数错误处理
+ * @Date 2026/10/17 21:30
+ */
+@Getter
+public class QueryLimitException extends IllegalArgumentException {
+
+    /**
+     * 以通配符开头
+     */
+    public static final String LEADING_WILDCARD = "leading_wildcard";
+
+    /**
+     * 按页码翻页过深
+     */
+    public static final String RESULT_WINDOW = "result_window";
+
+    /**
+     * 批量搜索的查询数过多
+     */
+    public static final String BATCH_SIZE = "batch_size";
+
+    /**
+     * 多词项查询展开的词项数达到上限被截断，查询照常执行，只用作计数的标签
+     */
+    public static final String MAX_EXPANSIONS = "max_expansions";
+
+    /**
+     * 触发的限制，用作计数的标签
+     */
+    private final String reason;
+
+    public QueryLimitException(String reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+}
@@ -0,0 +1,118 @@
+package com.whh.springboot3.lucene.search.base;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.util.BytesRef;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * @Author wanghonghui
+ * @Description searchAfter 游标的编解码，游标对客户端不透明，只能原样传回
+ * @Date 2026/10/17 14:40
+ */
+public final class SearchCursor {
+
+    private SearchCursor() {
+    }
+
+    /**
+     * 把当前页最后一条命中编码成游标
+     *
+     * @param last 当前页最后一条命中
+     * @param sort 本次查询的排序，以主键结尾时排序值里带着主键；主键没有 doc values 且按相关度排序时为 null
+     */
+    public static String encode(ScoreDoc last, Sort sort) {
+        JSONObject json = new JSONObject();
+        json.put("d", last.doc);
+        json.put("s", last.score);
+        json.put("i", last.shardIndex);
+        json.put("o", signature(sort));
+        if (last instanceof FieldDoc fieldDoc) {
+            JSONArray fields = new JSONArray();
+            for (Object value : fieldDoc.fields) {
+                fields.add(encodeValue(value));
+            }
+            json.put("f", fields);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.toJSONString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标，空字符串表示从第一条开始
+     *
+     * @param token 游标
+     * @param sort  本次查询的排序，必须和生成游标时一致
+     * @return searchAfter 使用的 after，第一页时为 null
+     */
+    public static ScoreDoc decode(String token, Sort sort) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        JSONObject json;
+        try {
+            json = JSON.parseObject(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new IllegalArgumentException("无效的游标", e);
+        }
+        if (json == null || json.getIntValue("o") != signature(sort)) {
+            throw new IllegalArgumentException("游标和当前排序方式不匹配");
+        }
+        int doc = json.getIntValue("d");
+        float score = json.getFloatValue("s");
+        int shardIndex = json.getIntValue("i");
+        JSONArray fields = json.getJSONArray("f");
+        if (fields == null) {
+            return new ScoreDoc(doc, score, shardIndex);
+        }
+        Object[] values = new Object[fields.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = decodeValue(fields.getJSONArray(i));
+        }
+        return new FieldDoc(doc, score, values, shardIndex);
+    }
+
+    private static int signature(Sort sort) {
+        return sort == null ? 0 : sort.toString().hashCode();
+    }
+
+    private static JSONArray encodeValue(Object value) {
+        if (value == null) {
+            return JSONArray.of("n");
+        }
+        if (value instanceof BytesRef bytes) {
+            byte[] copy = BytesRef.deepCopyOf(bytes).bytes;
+            return JSONArray.of("b", Base64.getEncoder().encodeToString(copy));
+        }
+        if (value instanceof Integer) {
+            return JSONArray.of("i", value);
+        }
+        if (value instanceof Long) {
+            return JSONArray.of("l", value);
+        }
+        if (value instanceof Float) {
+            return JSONArray.of("f", value);
+        }
+        if (value instanceof Double) {
+            return JSONArray.of("d", value);
+        }
+        throw new IllegalArgumentException("不支持的排序值类型: " + value.getClass().getName());
+    }
+
+    private static Object decodeValue(JSONArray value) {
+        return switch (value.getString(0)) {
+            case "n" -> null;
+            case "b" -> new BytesRef(Base64.getDecoder().decode(value.getString(1)));
+            case "i" -> value.getIntValue(1);
+            case "l" -> value.getLongValue(1);
+            case "f" -> value.getFloatValue(1);
+            case "d" -> value.getDoubleValue(1);
+            default -> throw new IllegalArgumentException("无效的游标");
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package com.whh.springboot3.lucene.search.base;
+
+import com.whh.springboot3.lucene.Cons;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.Map;
+
+/**
+ * @Author wanghonghui
+ * @Description 搜索请求参数
+ * @Date 2026/10/17 14:30
+ */
+@Data
+@Accessors(chain = true)
+public class SearchRequest {
+    /**
+     * 搜索词
+     */
+    private String searchContent;
+    /**
+     * 搜索字段
+     */
+    private String searchField;
+    /**
+     * 页码（从1开始），游标模式下只做回显
+     */
+    private int pageNumber = 1;
+    /**
+     * 每页大小
+     */
+    private int pageSize = Cons.PAGE_SIZE;
+    /**
+     * 排序字段，为空时按相关度排序
+     */
+    private String sortField;
+    /**
+     * 排序方式 (true为升序，false为降序)
+     */
+    private Boolean sortOrder;
+    /**
+     * 游标，不为 null 时使用 searchAfter 翻页，空字符串表示第一页
+     */
+    private String after;
+    /**
+     * 是否按 slice 并行搜索，为 false 时即使配置了执行器也在当前线程顺序执行，适合开销小的查询
+     */
+    private boolean concurrent = true;
+    /**
+     * 精确计数的上限，命中数超过后 total 只是下限（totalRelation 为 GREATER_THAN_OR_EQUAL_TO），
+     * 查询可以跳过不可能进入前列的文档；需要精确总数时设为 Integer.MAX_VALUE
+     */
+    private int totalHitsThreshold = Cons.TOTAL_HITS_THRESHOLD;
+    /**
+     * 精确匹配的过滤条件（字段 -> 值），不参与打分，重复出现的过滤条件由查询缓存按段缓存
+     */
+    private Map<String, String> filters;
+    /**
+     * 查询向量，不为 null 时做向量近邻检索，有搜索词时再和关键词检索的结果按 RRF 融合（混合检索）；
+     * 向量检索只支持按相关度排序和按页码翻页
+     */
+    private float[] vector;
+    /**
+     * 向量字段，为 null 时使用索引结构中唯一的向量字段
+     */
+    private String vectorField;
+    /**
+     * 向量检索和关键词检索各取的候选数，小于当前页末尾位置时按页末尾位置取
+     */
+    private int k = 100;
+    /**
+     * RRF 的排名常数
+     */
+    private int rankConstant = 60;
+    /**
+     * 需要返回的字段，为 null 时返回全部存储字段
+     */
+    private String[] fields;
+    /**
+     * 只返回主键和得分，不读取存储字段，也不高亮
+     */
+    private boolean idsOnly;
+    /**
+     * 只统计精确命中数，不收集文档，返回的结果只有 total
+     */
+    private boolean countOnly;
+    /**
+     * 是否读写结果缓存，预热等需要真正执行查询的场景设为 false
+     */
+    private boolean cacheable = true;
+    /**
+     * 收集命中的时间预算（毫秒），超时后返回部分结果；小于等于 0 时使用配置的默认值
+     */
+    private long timeoutMs;
+}
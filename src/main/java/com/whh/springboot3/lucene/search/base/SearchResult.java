@@ -1,7 +1,6 @@
 package com.whh.springboot3.lucene.search.base;
 
 import lombok.Getter;
-import org.apache.lucene.document.Document;
 
 import java.util.Map;
 
@@ -11,13 +10,15 @@ import java.util.Map;
  * @Date 2024/11/24 20:25
  */
 @Getter
-public class SearchResult {
-    private final Document document;
+public class SearchResult<T> {
+    private final String id;
+    private final T source;
     private final Map<String, String> highlightedFields;
     private final float score;
 
-    public SearchResult(Document document, Map<String, String> highlightedFields, float score) {
-        this.document = document;
+    public SearchResult(String id, T source, Map<String, String> highlightedFields, float score) {
+        this.id = id;
+        this.source = source;
         this.highlightedFields = highlightedFields;
         this.score = score;
     }
@@ -0,0 +1,297 @@
+package com.whh.springboot3.lucene.suggest;
+
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.search.IndexSearcherManager;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.suggest.InputIterator;
+import org.apache.lucene.search.suggest.Lookup;
+import org.apache.lucene.search.suggest.fst.WFSTCompletionLookup;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @Author wanghonghui
+ * @Description 基于 FST 的前缀补全，从字段的 doc values 构建，常驻内存；权重为同一取值出现的文档数。
+ * reader 刷新后标记为过期，后台按固定间隔重建并整体替换，查询不受重建影响
+ * @Date 2026/10/17 21:10
+ */
+@Slf4j
+public class FieldSuggester implements Closeable {
+
+    /**
+     * 补全结果
+     */
+    public record Suggestion(String text, long weight) {
+    }
+
+    private final IndexSearcherManager searcherManager;
+
+    private final String field;
+
+    private final int maxEntries;
+
+    private final AtomicBoolean stale = new AtomicBoolean(true);
+
+    private final ScheduledExecutorService rebuilder;
+
+    /**
+     * reader 刷新后标记补全器过期，关闭时移除
+     */
+    private final ReferenceManager.RefreshListener refreshListener = new ReferenceManager.RefreshListener() {
+        @Override
+        public void beforeRefresh() {
+        }
+
+        @Override
+        public void afterRefresh(boolean didRefresh) {
+            if (didRefresh) {
+                stale.set(true);
+            }
+        }
+    };
+
+    /**
+     * 当前使用的补全器，重建后整体替换
+     */
+    private volatile Lookup lookup;
+
+    /**
+     * @param searcherManager 搜索器管理器
+     * @param field           有 SortedDocValues 的不分词字段
+     * @param config          补全配置
+     */
+    public FieldSuggester(IndexSearcherManager searcherManager, String field, LuceneProperties.Suggest config) throws IOException {
+        this.searcherManager = searcherManager;
+        this.field = field;
+        this.maxEntries = config.getMaxEntries();
+        // 先注册监听再构建，构建期间发生的刷新也会标记过期，不会漏掉
+        searcherManager.addListener(refreshListener);
+        try {
+            rebuild();
+        } catch (IOException | RuntimeException e) {
+            searcherManager.removeListener(refreshListener);
+            throw e;
+        }
+        this.rebuilder = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "lucene-suggest-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = config.getRebuildIntervalMs();
+        this.rebuilder.scheduleWithFixedDelay(this::rebuildQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 前缀补全
+     *
+     * @param prefix 前缀
+     * @param size   最多返回的条数
+     * @return 按权重从高到低排列
+     */
+    public List<Suggestion> suggest(String prefix, int size) throws IOException {
+        Lookup current = lookup;
+        if (prefix == null || prefix.isEmpty() || size < 1 || current == null || current.getCount() == 0) {
+            return Collections.emptyList();
+        }
+        List<Lookup.LookupResult> results = current.lookup(prefix, false, size);
+        List<Suggestion> suggestions = new ArrayList<>(results.size());
+        for (Lookup.LookupResult result : results) {
+            suggestions.add(new Suggestion(result.key.toString(), result.value));
+        }
+        return suggestions;
+    }
+
+    /**
+     * 补全器占用的内存（字节）
+     */
+    public long ramBytesUsed() {
+        Lookup current = lookup;
+        return current == null ? 0 : current.ramBytesUsed();
+    }
+
+    /**
+     * 从当前 reader 重建补全器，完成后替换正在使用的补全器
+     */
+    public synchronized void rebuild() throws IOException {
+        stale.set(false);
+        long start = System.currentTimeMillis();
+        Map<String, Long> weights = loadWeights();
+        WFSTCompletionLookup next = new WFSTCompletionLookup(new ByteBuffersDirectory(), "suggest");
+        next.build(new WeightedInputIterator(weights));
+        this.lookup = next;
+        log.debug("补全器重建完成，字段 {}，{} 条，{} 字节，耗时 {} ms", field, weights.size(), next.ramBytesUsed(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 统计每个取值的存活文档数，只保留权重最高的 maxEntries 条；各段的取值本身有序，
+     * 按字典序归并各段后逐个累加，内存只和段数、maxEntries 有关，和取值总数无关
+     */
+    private Map<String, Long> loadWeights() throws IOException {
+        PriorityQueue<Suggestion> top = new PriorityQueue<>(maxEntries + 1, Comparator.comparingLong(Suggestion::weight));
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            PriorityQueue<LeafTerms> merging = new PriorityQueue<>(Comparator.comparing((LeafTerms leaf) -> leaf.term));
+            for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                LeafTerms terms = new LeafTerms(leaf);
+                if (terms.next()) {
+                    merging.add(terms);
+                }
+            }
+            while (!merging.isEmpty()) {
+                LeafTerms first = merging.poll();
+                BytesRef term = first.term;
+                long weight = first.count;
+                List<LeafTerms> advanced = new ArrayList<>();
+                advanced.add(first);
+                while (!merging.isEmpty() && merging.peek().term.equals(term)) {
+                    LeafTerms same = merging.poll();
+                    weight += same.count;
+                    advanced.add(same);
+                }
+                if (top.size() < maxEntries || (!top.isEmpty() && weight > top.peek().weight())) {
+                    top.add(new Suggestion(term.utf8ToString(), weight));
+                    if (top.size() > maxEntries) {
+                        top.poll();
+                    }
+                }
+                for (LeafTerms leaf : advanced) {
+                    if (leaf.next()) {
+                        merging.add(leaf);
+                    }
+                }
+            }
+        } finally {
+            searcherManager.release(searcher);
+        }
+        Map<String, Long> weights = new HashMap<>(top.size() * 2);
+        for (Suggestion suggestion : top) {
+            weights.put(suggestion.text(), suggestion.weight());
+        }
+        return weights;
+    }
+
+    /**
+     * 按字典序遍历一个段中有存活文档的取值
+     */
+    private class LeafTerms {
+
+        private final SortedDocValues values;
+
+        private final long[] counts;
+
+        private int ord = -1;
+
+        private BytesRef term;
+
+        private long count;
+
+        LeafTerms(LeafReaderContext leaf) throws IOException {
+            Bits liveDocs = leaf.reader().getLiveDocs();
+            this.values = DocValues.getSorted(leaf.reader(), field);
+            this.counts = new long[values.getValueCount()];
+            for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+                if (liveDocs == null || liveDocs.get(doc)) {
+                    counts[values.ordValue()]++;
+                }
+            }
+        }
+
+        /**
+         * 前进到下一个有存活文档的取值，没有时返回 false
+         */
+        boolean next() throws IOException {
+            while (++ord < counts.length) {
+                if (counts[ord] > 0) {
+                    // lookupOrd 返回的 BytesRef 会被复用，归并时需要保留一份
+                    term = BytesRef.deepCopyOf(values.lookupOrd(ord));
+                    count = counts[ord];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private void rebuildQuietly() {
+        if (!stale.get()) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (Exception e) {
+            stale.set(true);
+            log.warn("重建补全器失败，字段 {}", field, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        searcherManager.removeListener(refreshListener);
+        rebuilder.shutdownNow();
+    }
+
+    /**
+     * 把 取值 -> 权重 转成补全器的输入
+     */
+    private static class WeightedInputIterator implements InputIterator {
+
+        private final Iterator<Map.Entry<String, Long>> iterator;
+
+        private long weight;
+
+        WeightedInputIterator(Map<String, Long> weights) {
+            this.iterator = weights.entrySet().iterator();
+        }
+
+        @Override
+        public BytesRef next() {
+            if (!iterator.hasNext()) {
+                return null;
+            }
+            Map.Entry<String, Long> entry = iterator.next();
+            weight = entry.getValue();
+            return new BytesRef(entry.getKey());
+        }
+
+        @Override
+        public long weight() {
+            return weight;
+        }
+
+        @Override
+        public BytesRef payload() {
+            return null;
+        }
+
+        @Override
+        public boolean hasPayloads() {
+            return false;
+        }
+
+        @Override
+        public Set<BytesRef> contexts() {
+            return null;
+        }
+
+        @Override
+        public boolean hasContexts() {
+            return false;
+        }
+    }
+}
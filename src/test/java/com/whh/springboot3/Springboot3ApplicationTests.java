@@ -3,7 +3,13 @@ package com.whh.springboot3;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+/**
+ * 索引放在临时目录，每次运行一个新目录；空索引上预热没有意义，关闭
+ */
+@SpringBootTest(properties = {
+        "lucene.index.path=${java.io.tmpdir}/springboot3-lucene-test/${random.uuid}",
+        "lucene.warmup.enabled=false"
+})
 class Springboot3ApplicationTests {
 
     @Test
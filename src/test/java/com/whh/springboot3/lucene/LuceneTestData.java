@@ -0,0 +1,80 @@
+package com.whh.springboot3.lucene;
+
+import com.alibaba.fastjson2.JSON;
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.index.IndexAuthor;
+import com.whh.springboot3.lucene.index.IndexWriterService;
+import com.whh.springboot3.lucene.schema.SchemaRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @Author wanghonghui
+ * @Description 测试数据和临时索引：作者主键、姓名唯一，desc 中“诗人”出现的次数不同，相关度有高有低
+ * @Date 2026/10/18 10:00
+ */
+public final class LuceneTestData {
+
+    private LuceneTestData() {
+    }
+
+    /**
+     * 测试用的配置：分组提交间隔和未提交上限放大，只有显式提交或 COMMIT 等级的写入才会落盘
+     */
+    public static LuceneProperties properties(Path dir, int shards) {
+        LuceneProperties properties = new LuceneProperties();
+        properties.getIndex().setPath(dir.toString());
+        properties.getIndex().setShards(shards);
+        properties.getWriter().setCommitIntervalMs(60_000);
+        properties.getWriter().setMaxPendingDocs(Integer.MAX_VALUE);
+        return properties;
+    }
+
+    /**
+     * 在 properties 配置的目录中打开 writer，指标注册到独立的 registry，测试之间互不影响
+     */
+    public static IndexWriterService openWriter(LuceneProperties properties) throws IOException {
+        return new IndexWriterService(Path.of(properties.getIndex().getPath()), SchemaRegistry.of(Author.class), properties,
+                new SimpleMeterRegistry());
+    }
+
+    /**
+     * 全量导入后刷新搜索器，返回的 writer 由调用方关闭
+     */
+    public static IndexWriterService buildIndex(LuceneProperties properties, List<Author> authors) throws IOException {
+        IndexWriterService writerService = openWriter(properties);
+        try {
+            new IndexAuthor(writerService).indexAuthors(new ByteArrayInputStream(json(authors)), true);
+            writerService.getSearcherManager().maybeRefreshBlocking();
+            return writerService;
+        } catch (IOException | RuntimeException e) {
+            writerService.close();
+            throw e;
+        }
+    }
+
+    public static Author author(int i) {
+        return new Author()
+                .setId(String.format("a-%04d", i))
+                .setName(String.format("作者%04d", i))
+                .setDesc("诗人".repeat(1 + i % 4) + "，唐代第" + i + "位");
+    }
+
+    public static List<Author> authors(int count) {
+        List<Author> authors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            authors.add(author(i));
+        }
+        return authors;
+    }
+
+    public static byte[] json(List<Author> authors) {
+        return JSON.toJSONBytes(authors);
+    }
+}
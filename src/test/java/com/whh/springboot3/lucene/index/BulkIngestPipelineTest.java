@@ -0,0 +1,152 @@
+package com.whh.springboot3.lucene.index;
+
+import com.whh.springboot3.lucene.Cons;
+import com.whh.springboot3.lucene.LuceneTestData;
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.schema.EntitySchema;
+import com.whh.springboot3.lucene.schema.SchemaRegistry;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @Author wanghonghui
+ * @Description 流式导入：队列满时解析线程阻塞（背压），工作线程失败时导入立即失败并带出原始异常
+ * @Date 2026/10/18 10:30
+ */
+class BulkIngestPipelineTest {
+
+    /**
+     * 解析出的实体数，fastjson 每读一个数组元素调用一次构造方法
+     */
+    static final AtomicInteger PARSED = new AtomicInteger();
+
+    @TempDir
+    Path dir;
+
+    private final EntitySchema<Author> schema = SchemaRegistry.of(Author.class);
+
+    @Test
+    @Timeout(30)
+    void parserBlocksWhenQueueIsFull() throws Exception {
+        int threads = 1;
+        int batchSize = 1;
+        int queueCapacity = 2;
+        int count = 100;
+        PARSED.set(0);
+        CountDownLatch release = new CountDownLatch(1);
+        try (IndexWriterService writerService = LuceneTestData.openWriter(LuceneTestData.properties(dir, 1))) {
+            BulkIngestPipeline<CountingAuthor> pipeline = new BulkIngestPipeline<>(writerService, author -> {
+                await(release);
+                return schema.toDocument(author);
+            }, threads, batchSize, queueCapacity);
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Future<Long> run = executor.submit(() -> pipeline.run(input(count), CountingAuthor.class));
+
+                // 工作线程卡在第一批上，解析线程最多再解析出 队列容量 + 1 批，然后阻塞在入队上
+                int bound = (threads + queueCapacity + 1) * batchSize;
+                long deadline = System.currentTimeMillis() + 1000;
+                while (System.currentTimeMillis() < deadline) {
+                    assertTrue(PARSED.get() <= bound, "解析超过了队列容量: " + PARSED.get());
+                    Thread.sleep(10);
+                }
+                assertFalse(run.isDone());
+                assertEquals(bound, PARSED.get());
+
+                release.countDown();
+                assertTrue(run.get() >= 0);
+            } finally {
+                release.countDown();
+                executor.shutdownNow();
+            }
+            assertEquals(count, PARSED.get());
+            writerService.commit();
+            assertEquals(count, committedDocs(writerService));
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    void workerFailureFailsTheRunWithItsCause() throws Exception {
+        IllegalStateException failure = new IllegalStateException("转换失败");
+        try (IndexWriterService writerService = LuceneTestData.openWriter(LuceneTestData.properties(dir, 1))) {
+            // 队列很小、数据很多：工作线程退出后解析线程不能一直阻塞在满的队列上
+            BulkIngestPipeline<Author> pipeline = new BulkIngestPipeline<>(writerService, author -> {
+                if (author.getId().equals("a-0005")) {
+                    throw failure;
+                }
+                return schema.toDocument(author);
+            }, Cons.AUTHOR_ID, Author::getId, 2, 1, 1);
+
+            IOException e = assertThrows(IOException.class, () -> pipeline.run(input(5000), Author.class));
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test
+    void rejectsInputThatIsNotAnArray() throws Exception {
+        try (IndexWriterService writerService = LuceneTestData.openWriter(LuceneTestData.properties(dir, 1))) {
+            BulkIngestPipeline<Author> pipeline = new BulkIngestPipeline<>(writerService, schema::toDocument, 2, 10, 2);
+
+            assertThrows(IOException.class, () -> pipeline.run(new ByteArrayInputStream("{}".getBytes()), Author.class));
+        }
+    }
+
+    @Test
+    void upsertPipelineDoesNotDuplicate() throws Exception {
+        try (IndexWriterService writerService = LuceneTestData.openWriter(LuceneTestData.properties(dir, 2))) {
+            BulkIngestPipeline<Author> pipeline = new BulkIngestPipeline<>(writerService, schema::toDocument,
+                    Cons.AUTHOR_ID, Author::getId, 4, 7, 2);
+            pipeline.run(input(300), Author.class);
+            pipeline.run(input(300), Author.class);
+            writerService.commit();
+
+            assertEquals(300, committedDocs(writerService));
+        }
+    }
+
+    private static InputStream input(int count) {
+        return new ByteArrayInputStream(LuceneTestData.json(LuceneTestData.authors(count)));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int committedDocs(IndexWriterService writerService) throws IOException {
+        int docs = 0;
+        for (IndexWriter writer : writerService.getWriters()) {
+            try (DirectoryReader reader = DirectoryReader.open(writer.getDirectory())) {
+                docs += reader.numDocs();
+            }
+        }
+        return docs;
+    }
+
+    /**
+     * 构造时计数，用来观察解析线程读到了哪里
+     */
+    public static class CountingAuthor extends Author {
+
+        public CountingAuthor() {
+            PARSED.incrementAndGet();
+        }
+    }
+}
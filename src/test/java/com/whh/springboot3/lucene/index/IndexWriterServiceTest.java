@@ -0,0 +1,170 @@
+package com.whh.springboot3.lucene.index;
+
+import com.whh.springboot3.lucene.Cons;
+import com.whh.springboot3.lucene.LuceneTestData;
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.index.IndexWriterService.Durability;
+import com.whh.springboot3.lucene.schema.SchemaRegistry;
+import com.whh.springboot3.lucene.search.IndexSearcherManager;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @Author wanghonghui
+ * @Description 分组提交：各持久化等级返回时写入所处的状态，以及提交进行中完成的写入不会被提前唤醒
+ * @Date 2026/10/18 10:10
+ */
+class IndexWriterServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void noneReturnsWithoutCommit() throws IOException {
+        try (IndexWriterService writerService = LuceneTestData.openWriter(LuceneTestData.properties(dir, 1))) {
+            writerService.addDocument(document(0), Durability.NONE);
+
+            assertEquals(0, committedDocs(writerService));
+        }
+    }
+
+    @Test
+    void visibleReturnsSearchableButNotCommitted() throws IOException {
+        try (IndexWriterService writerService = LuceneTestData.openWriter(LuceneTestData.properties(dir, 1))) {
+            writerService.addDocument(document(0), Durability.VISIBLE);
+
+            assertEquals(1, visibleDocs(writerService));
+            assertEquals(0, committedDocs(writerService));
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    void commitReturnsDurable() throws IOException {
+        try (IndexWriterService writerService = LuceneTestData.openWriter(groupCommit(1))) {
+            writerService.addDocument(document(0), Durability.COMMIT);
+
+            assertEquals(1, committedDocs(writerService));
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    void awaitCommitCoversEveryShard() throws IOException {
+        try (IndexWriterService writerService = LuceneTestData.openWriter(groupCommit(2))) {
+            long seqNo = -1;
+            for (int i = 0; i < 20; i++) {
+                seqNo = Math.max(seqNo, writerService.addDocument(document(i), Durability.NONE));
+            }
+            writerService.await(seqNo, Durability.COMMIT);
+
+            assertEquals(20, committedDocs(writerService));
+        }
+    }
+
+    /**
+     * 提交间隔很短，写入经常在一次提交已经开始之后才完成；每个 COMMIT 写入返回时都必须已经在提交里
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2})
+    @Timeout(60)
+    void concurrentCommitWritesAreNeverReleasedEarly(int shards) throws Exception {
+        int threads = 8;
+        int docsPerThread = 50;
+        try (IndexWriterService writerService = LuceneTestData.openWriter(groupCommit(shards))) {
+            Queue<String> notCommitted = new ConcurrentLinkedQueue<>();
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = new ArrayList<>(threads);
+                for (int t = 0; t < threads; t++) {
+                    int first = t * docsPerThread;
+                    futures.add(executor.submit(() -> {
+                        for (int i = first; i < first + docsPerThread; i++) {
+                            writerService.addDocument(document(i), Durability.COMMIT);
+                            String id = LuceneTestData.author(i).getId();
+                            if (committedDocFreq(writerService, new Term(Cons.AUTHOR_ID, id)) != 1) {
+                                notCommitted.add(id);
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            assertTrue(notCommitted.isEmpty(), "COMMIT 返回时还没有落盘: " + notCommitted);
+            assertEquals(threads * docsPerThread, committedDocs(writerService));
+        }
+    }
+
+    /**
+     * 提交间隔 5ms，等待 COMMIT 的写入很快被唤醒
+     */
+    private LuceneProperties groupCommit(int shards) {
+        LuceneProperties properties = LuceneTestData.properties(dir, shards);
+        properties.getWriter().setCommitIntervalMs(5);
+        return properties;
+    }
+
+    private static Document document(int i) {
+        Author author = LuceneTestData.author(i);
+        return SchemaRegistry.of(Author.class).toDocument(author);
+    }
+
+    /**
+     * 从磁盘上最后一次提交读出的文档数，和 writer 内存中的状态无关
+     */
+    private static int committedDocs(IndexWriterService writerService) throws IOException {
+        int docs = 0;
+        for (IndexWriter writer : writerService.getWriters()) {
+            try (DirectoryReader reader = DirectoryReader.open(writer.getDirectory())) {
+                docs += reader.numDocs();
+            }
+        }
+        return docs;
+    }
+
+    private static int committedDocFreq(IndexWriterService writerService, Term term) throws IOException {
+        int docFreq = 0;
+        for (IndexWriter writer : writerService.getWriters()) {
+            try (DirectoryReader reader = DirectoryReader.open(writer.getDirectory())) {
+                docFreq += reader.docFreq(term);
+            }
+        }
+        return docFreq;
+    }
+
+    private static int visibleDocs(IndexWriterService writerService) throws IOException {
+        IndexSearcherManager searcherManager = writerService.getSearcherManager();
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            return searcher.count(new MatchAllDocsQuery());
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.whh.springboot3.lucene.index;
+
+import com.whh.springboot3.lucene.LuceneTestData;
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.search.IndexSearcherManager;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @Author wanghonghui
+ * @Description 全量重建：按写入代数删除本次没有重写的旧文档，代数只增不减，重启后继续
+ * @Date 2026/10/18 15:30
+ */
+class RebuildTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * 连续重建之间的间隔远小于 1 毫秒，按写入时间判断时上一轮的文档会被当成本轮写入的
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2})
+    void backToBackRebuildsDeleteEverythingNotRewritten(int shards) throws IOException {
+        try (IndexWriterService writerService = LuceneTestData.openWriter(LuceneTestData.properties(dir, shards))) {
+            IndexAuthor indexAuthor = new IndexAuthor(writerService);
+            List<Author> authors = LuceneTestData.authors(20);
+            for (int round = 0; round < 10; round++) {
+                int count = round % 2 == 0 ? 20 : 10 + round;
+                rebuild(indexAuthor, authors.subList(0, count));
+                assertEquals(count, liveDocs(writerService), "第 " + round + " 轮");
+            }
+        }
+    }
+
+    @Test
+    void generationContinuesAfterReopen() throws IOException {
+        LuceneProperties properties = LuceneTestData.properties(dir, 1);
+        List<Author> authors = LuceneTestData.authors(10);
+        long generation;
+        try (IndexWriterService writerService = LuceneTestData.openWriter(properties)) {
+            assertEquals(0, writerService.generation());
+            rebuild(new IndexAuthor(writerService), authors);
+            rebuild(new IndexAuthor(writerService), authors);
+            generation = writerService.generation();
+            assertEquals(2, generation);
+        }
+
+        try (IndexWriterService writerService = LuceneTestData.openWriter(properties)) {
+            assertEquals(generation, writerService.generation());
+            rebuild(new IndexAuthor(writerService), authors.subList(0, 4));
+            assertTrue(writerService.generation() > generation);
+            assertEquals(4, liveDocs(writerService));
+        }
+    }
+
+    private static void rebuild(IndexAuthor indexAuthor, List<Author> authors) throws IOException {
+        indexAuthor.indexAuthors(new ByteArrayInputStream(LuceneTestData.json(authors)), true);
+    }
+
+    private static int liveDocs(IndexWriterService writerService) throws IOException {
+        IndexSearcherManager searcherManager = writerService.getSearcherManager();
+        searcherManager.maybeRefreshBlocking();
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            return searcher.count(new MatchAllDocsQuery());
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.whh.springboot3.lucene.index;
+
+import com.whh.springboot3.lucene.Cons;
+import com.whh.springboot3.lucene.LuceneTestData;
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.search.IndexSearcherManager;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @Author wanghonghui
+ * @Description 增量同步：按内容哈希统计新增、修改、未变化和删除的实体，未变化的实体不产生写入
+ * @Date 2026/10/18 11:10
+ */
+class SyncAuthorsTest {
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2})
+    void countsAddedUpdatedUnchangedAndDeleted(int shards) throws IOException {
+        try (IndexWriterService writerService = LuceneTestData.openWriter(LuceneTestData.properties(dir, shards))) {
+            IndexAuthor indexAuthor = new IndexAuthor(writerService);
+            List<Author> authors = LuceneTestData.authors(10);
+
+            assertEquals(new SyncResult(10, 0, 0, 0), sync(indexAuthor, authors, true));
+
+            // 改 2 个，删 4 个，加 3 个
+            List<Author> changed = new ArrayList<>(authors.subList(0, 6));
+            changed.get(0).setDesc("改过的简介");
+            changed.get(1).setName("改过的名字");
+            for (int i = 10; i < 13; i++) {
+                changed.add(LuceneTestData.author(i));
+            }
+
+            assertEquals(new SyncResult(3, 2, 4, 4), sync(indexAuthor, changed, true));
+            assertEquals(9, liveDocs(writerService));
+            assertEquals("改过的简介", storedDesc(writerService, "a-0000"));
+            assertNull(storedDesc(writerService, "a-0009"));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2})
+    void unchangedEntitiesAreNotWritten(int shards) throws IOException {
+        try (IndexWriterService writerService = LuceneTestData.openWriter(LuceneTestData.properties(dir, shards))) {
+            IndexAuthor indexAuthor = new IndexAuthor(writerService);
+            List<Author> authors = LuceneTestData.authors(20);
+            // 全量导入写入的哈希和同步计算的一致
+            indexAuthor.indexAuthors(new ByteArrayInputStream(LuceneTestData.json(authors)), true);
+            int maxDoc = maxDoc(writerService);
+
+            // 覆盖写入会追加新文档并标记旧文档删除，maxDoc 不变说明没有任何写入
+            assertEquals(new SyncResult(0, 0, 20, 0), sync(indexAuthor, authors, true));
+            assertEquals(maxDoc, maxDoc(writerService));
+        }
+    }
+
+    /**
+     * 同一个主键在输入中出现多次：第一次按新增计，之后和上一次出现的内容比较
+     */
+    @Test
+    void duplicateIdsInOneInputAreNotCountedAsAdded() throws IOException {
+        try (IndexWriterService writerService = LuceneTestData.openWriter(LuceneTestData.properties(dir, 1))) {
+            IndexAuthor indexAuthor = new IndexAuthor(writerService);
+            List<Author> authors = new ArrayList<>(LuceneTestData.authors(5));
+            authors.add(LuceneTestData.author(1));
+            authors.add(LuceneTestData.author(2).setDesc("改过的简介"));
+
+            assertEquals(new SyncResult(5, 1, 1, 0), sync(indexAuthor, authors, true));
+            assertEquals(5, liveDocs(writerService));
+            assertEquals("改过的简介", storedDesc(writerService, "a-0002"));
+
+            // 已在索引中的主键重复出现：第一次未变化，第二次和第一次比较
+            authors = new ArrayList<>(LuceneTestData.authors(5));
+            authors.get(2).setDesc("改过的简介");
+            authors.add(LuceneTestData.author(3).setDesc("又改过的简介"));
+            assertEquals(new SyncResult(0, 1, 5, 0), sync(indexAuthor, authors, true));
+            assertEquals("又改过的简介", storedDesc(writerService, "a-0003"));
+        }
+    }
+
+    @Test
+    void missingEntitiesAreKeptUnlessRequested() throws IOException {
+        try (IndexWriterService writerService = LuceneTestData.openWriter(LuceneTestData.properties(dir, 1))) {
+            IndexAuthor indexAuthor = new IndexAuthor(writerService);
+            List<Author> authors = LuceneTestData.authors(10);
+            sync(indexAuthor, authors, true);
+
+            assertEquals(new SyncResult(0, 0, 5, 0), sync(indexAuthor, authors.subList(0, 5), false));
+            assertEquals(10, liveDocs(writerService));
+        }
+    }
+
+    private static SyncResult sync(IndexAuthor indexAuthor, List<Author> authors, boolean deleteMissing) throws IOException {
+        return indexAuthor.syncAuthors(new ByteArrayInputStream(LuceneTestData.json(authors)), deleteMissing);
+    }
+
+    private static int maxDoc(IndexWriterService writerService) {
+        int maxDoc = 0;
+        for (IndexWriter writer : writerService.getWriters()) {
+            maxDoc += writer.getDocStats().maxDoc;
+        }
+        return maxDoc;
+    }
+
+    private static int liveDocs(IndexWriterService writerService) throws IOException {
+        IndexSearcherManager searcherManager = writerService.getSearcherManager();
+        searcherManager.maybeRefreshBlocking();
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            return searcher.count(new MatchAllDocsQuery());
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private static String storedDesc(IndexWriterService writerService, String id) throws IOException {
+        IndexSearcherManager searcherManager = writerService.getSearcherManager();
+        searcherManager.maybeRefreshBlocking();
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs hits = searcher.search(new TermQuery(new Term(Cons.AUTHOR_ID, id)), 2);
+            if (hits.scoreDocs.length == 0) {
+                return null;
+            }
+            assertEquals(1, hits.scoreDocs.length);
+            return searcher.storedFields().document(hits.scoreDocs[0].doc).get(Cons.AUTHOR_DESC);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.whh.springboot3.lucene.replication;
+
+import com.whh.springboot3.lucene.LuceneTestData;
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.index.IndexWriterService;
+import com.whh.springboot3.lucene.index.IndexWriterService.Durability;
+import com.whh.springboot3.lucene.schema.SchemaRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @Author wanghonghui
+ * @Description 段复制：段文件先落盘，segments_N 最后改名发布，副本随时打开都是一个完整的提交
+ * @Date 2026/10/18 11:50
+ */
+class IndexReplicatorTest {
+
+    private static final int BATCH = 20;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void segmentsFileIsPublishedLast() throws IOException {
+        LuceneProperties properties = properties();
+        try (IndexWriterService writerService = LuceneTestData.openWriter(properties);
+             IndexReplicator replicator = new IndexReplicator(writerService, properties, new SimpleMeterRegistry())) {
+            for (int round = 0; round < 3; round++) {
+                addBatch(writerService, round);
+                writerService.commit();
+                replicator.replicate();
+
+                Path replicaPath = replicaPath();
+                try (Directory replica = FSDirectory.open(replicaPath)) {
+                    String[] files = replica.listAll();
+                    long generation = SegmentInfos.getLastCommitGeneration(files);
+                    assertEquals(SegmentInfos.getLastCommitGeneration(writerService.getWriters().get(0).getDirectory()), generation);
+                    String segmentsFile = IndexFileNames.fileNameFromGeneration(IndexFileNames.SEGMENTS, "", generation);
+                    FileTime published = Files.getLastModifiedTime(replicaPath.resolve(segmentsFile));
+                    for (String file : files) {
+                        assertFalse(file.startsWith("pending_"), "临时的 segments 文件没有改名: " + file);
+                        assertTrue(Files.getLastModifiedTime(replicaPath.resolve(file)).compareTo(published) <= 0,
+                                file + " 比 " + segmentsFile + " 晚写入");
+                    }
+                    // 提交引用的文件都已经在副本上
+                    for (String file : SegmentInfos.readCommit(replica, segmentsFile).files(true)) {
+                        assertTrue(List.of(files).contains(file), "缺少文件: " + file);
+                    }
+                    try (DirectoryReader reader = DirectoryReader.open(replica)) {
+                        assertEquals((round + 1) * BATCH, reader.numDocs());
+                    }
+                }
+                IndexReplicator.TargetStatus status = replicator.status().get(0);
+                assertNull(status.lastError());
+                assertEquals(status.primaryGeneration(), status.generation());
+                assertEquals(0, status.lagMs());
+            }
+        }
+    }
+
+    /**
+     * 复制的同时不停打开副本：每次打开的都必须是某一次完整的提交，不会读到缺文件或写了一半的 segments_N
+     */
+    @Test
+    @Timeout(120)
+    void replicaAlwaysOpensACompleteCommit() throws Exception {
+        int rounds = 30;
+        LuceneProperties properties = properties();
+        try (IndexWriterService writerService = LuceneTestData.openWriter(properties);
+             IndexReplicator replicator = new IndexReplicator(writerService, properties, new SimpleMeterRegistry());
+             Directory replica = FSDirectory.open(replicaPath())) {
+            AtomicBoolean done = new AtomicBoolean();
+            Queue<String> errors = new ConcurrentLinkedQueue<>();
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Future<Integer> opens = executor.submit(() -> {
+                    int count = 0;
+                    while (!done.get()) {
+                        if (!DirectoryReader.indexExists(replica)) {
+                            continue;
+                        }
+                        try (DirectoryReader reader = DirectoryReader.open(replica)) {
+                            // 每次提交正好多一批
+                            if (reader.numDocs() % BATCH != 0) {
+                                errors.add("读到了不完整的提交: " + reader.numDocs());
+                            }
+                            count++;
+                        } catch (IOException e) {
+                            errors.add(e.toString());
+                        }
+                    }
+                    return count;
+                });
+                for (int round = 0; round < rounds; round++) {
+                    addBatch(writerService, round);
+                    writerService.commit();
+                    replicator.replicate();
+                }
+                done.set(true);
+                assertTrue(opens.get() > 0);
+            } finally {
+                done.set(true);
+                executor.shutdownNow();
+            }
+
+            assertTrue(errors.isEmpty(), errors.toString());
+            try (DirectoryReader reader = DirectoryReader.open(replica)) {
+                assertEquals(rounds * BATCH, reader.numDocs());
+            }
+        }
+    }
+
+    @Test
+    void rejectsReplicaAtThePrimaryPath() throws IOException {
+        LuceneProperties properties = properties();
+        properties.getReplication().setTargets(List.of(properties.getIndex().getPath()));
+        try (IndexWriterService writerService = LuceneTestData.openWriter(properties)) {
+            assertThrows(IllegalArgumentException.class, () -> new IndexReplicator(writerService, properties, new SimpleMeterRegistry()));
+        }
+    }
+
+    /**
+     * 定时复制的间隔放大，复制只在测试里显式触发（启动时的第一轮除外）
+     */
+    private LuceneProperties properties() {
+        LuceneProperties properties = LuceneTestData.properties(dir.resolve("primary"), 1);
+        properties.getReplication().setTargets(List.of(replicaPath().toString()));
+        properties.getReplication().setIntervalMs(60_000);
+        return properties;
+    }
+
+    private Path replicaPath() {
+        return dir.resolve("replica");
+    }
+
+    private static void addBatch(IndexWriterService writerService, int round) throws IOException {
+        for (int i = round * BATCH; i < (round + 1) * BATCH; i++) {
+            Author author = LuceneTestData.author(i);
+            writerService.addDocument(SchemaRegistry.of(Author.class).toDocument(author), Durability.NONE);
+        }
+    }
+}
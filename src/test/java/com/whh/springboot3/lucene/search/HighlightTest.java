@@ -0,0 +1,112 @@
+package com.whh.springboot3.lucene.search;
+
+import com.whh.springboot3.lucene.Cons;
+import com.whh.springboot3.lucene.LuceneTestData;
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.index.IndexWriterService;
+import com.whh.springboot3.lucene.search.base.PageResult;
+import com.whh.springboot3.lucene.search.base.SearchRequest;
+import com.whh.springboot3.lucene.search.base.SearchResult;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @Author wanghonghui
+ * @Description 整页高亮：搜索查在二元分词字段上，UnifiedHighlighter 用源字段倒排中的 offset 标出命中的字
+ * @Date 2026/10/18 15:50
+ */
+class HighlightTest {
+
+    private static final List<String> DESCS = List.of(
+            "床前明月光，疑是地上霜",
+            "举头望明月，低头思故乡",
+            "明日复明日，明日何其多",
+            "月落乌啼霜满天");
+
+    @TempDir
+    Path dir;
+
+    private IndexWriterService writerService;
+
+    private SearchTest search;
+
+    @BeforeEach
+    void buildIndex() throws IOException {
+        List<Author> authors = new ArrayList<>();
+        for (int i = 0; i < DESCS.size(); i++) {
+            authors.add(new Author().setId("h-" + i).setName("诗人" + i).setDesc(DESCS.get(i)));
+        }
+        LuceneProperties properties = LuceneTestData.properties(dir, 1);
+        writerService = LuceneTestData.buildIndex(properties, authors);
+        search = new SearchTest(writerService.getSearcherManager(), null, null, null, properties);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        if (writerService != null) {
+            writerService.close();
+        }
+    }
+
+    /**
+     * 相邻的字可能分成几段标记，合并后就是整个搜索词
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "明月,   h-0 h-1",
+            "霜,     h-0 h-3",
+            "明日,   h-2",
+            "思故乡, h-1"
+    })
+    void fragmentsMarkTheMatchedCharacters(String searchContent, String expectedIds) throws Exception {
+        PageResult<SearchResult<Author>> page = search.search(new SearchRequest()
+                .setSearchContent(searchContent)
+                .setSearchField(Cons.AUTHOR_DESC)
+                .setCacheable(false));
+
+        Set<String> ids = new HashSet<>();
+        for (SearchResult<Author> result : page.getContent()) {
+            ids.add(result.getId());
+            String fragment = result.getHighlightedFields().get(Cons.AUTHOR_DESC);
+            assertNotNull(fragment, result.getId());
+            assertTrue(fragment.replace("</em><em>", "").contains("<em>" + searchContent + "</em>"), fragment);
+            // 去掉标记后是原文
+            assertEquals(result.getSource().getDesc(), fragment.replace("<em>", "").replace("</em>", ""));
+        }
+        assertEquals(Set.of(expectedIds.split(" ")), ids);
+    }
+
+    /**
+     * 高亮字段的倒排带 offset，高亮时不需要重新分词
+     */
+    @Test
+    void descIndexesOffsets() throws IOException {
+        IndexSearcher searcher = writerService.getSearcherManager().acquire();
+        try {
+            for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                FieldInfo fieldInfo = leaf.reader().getFieldInfos().fieldInfo(Cons.AUTHOR_DESC);
+                assertEquals(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS, fieldInfo.getIndexOptions());
+            }
+        } finally {
+            writerService.getSearcherManager().release(searcher);
+        }
+    }
+}
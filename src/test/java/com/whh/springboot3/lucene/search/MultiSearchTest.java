@@ -0,0 +1,142 @@
+package com.whh.springboot3.lucene.search;
+
+import com.whh.springboot3.lucene.Cons;
+import com.whh.springboot3.lucene.LuceneTestData;
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.index.IndexWriterService;
+import com.whh.springboot3.lucene.search.base.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @Author wanghonghui
+ * @Description 批量搜索：结果和请求一一对应，单个查询失败只记录在它自己的结果里
+ * @Date 2026/10/18 12:10
+ */
+class MultiSearchTest {
+
+    private static final int COUNT = 120;
+
+    @TempDir
+    Path dir;
+
+    private IndexWriterService writerService;
+
+    private SearchTest search;
+
+    @BeforeEach
+    void buildIndex() throws IOException {
+        LuceneProperties properties = LuceneTestData.properties(dir, 2);
+        properties.getSearcher().getLimits().setMaxMultiSearch(20);
+        writerService = LuceneTestData.buildIndex(properties, LuceneTestData.authors(COUNT));
+        search = new SearchTest(writerService.getSearcherManager(), null, null, null, properties);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        if (writerService != null) {
+            writerService.close();
+        }
+    }
+
+    /**
+     * 各查询并发执行，完成先后不定，结果仍按请求顺序返回，并且和单独搜索的结果相同
+     */
+    @Test
+    void resultsFollowRequestOrder() throws Exception {
+        List<SearchRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            // 命中数各不相同：编号以 i 开头的作者
+            requests.add(new SearchRequest()
+                    .setSearchContent("第" + i)
+                    .setSearchField(Cons.AUTHOR_DESC)
+                    .setSortField(Cons.AUTHOR_NAME)
+                    .setSortOrder(i % 2 == 0)
+                    .setPageSize(5)
+                    .setCacheable(false));
+        }
+        Collections.shuffle(requests);
+
+        List<MultiSearchResult<Author>> results = search.multiSearch(requests);
+
+        assertEquals(requests.size(), results.size());
+        for (int i = 0; i < requests.size(); i++) {
+            MultiSearchResult<Author> result = results.get(i);
+            assertTrue(result.isSuccess(), result.getError());
+            PageResult<SearchResult<Author>> expected = search.search(requests.get(i));
+            assertEquals(expected.getTotal(), result.getResult().getTotal(), requests.get(i).getSearchContent());
+            assertEquals(ids(expected), ids(result.getResult()), requests.get(i).getSearchContent());
+        }
+    }
+
+    @Test
+    void failedQueryDoesNotFailTheBatch() throws Exception {
+        List<SearchRequest> requests = List.of(
+                request("诗人"),
+                // 未定义的排序字段
+                request("诗人").setSortField("unknown"),
+                // 翻页超过结果窗口
+                request("诗人").setPageNumber(10_000).setPageSize(100),
+                request("诗人诗人").setCountOnly(true),
+                request("唐代"));
+
+        List<MultiSearchResult<Author>> results = search.multiSearch(requests);
+
+        assertEquals(5, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(COUNT, results.get(0).getResult().getTotal());
+
+        assertFalse(results.get(1).isSuccess());
+        assertNull(results.get(1).getResult());
+        assertEquals(IllegalArgumentException.class.getSimpleName(), results.get(1).getErrorType());
+
+        assertFalse(results.get(2).isSuccess());
+        assertEquals(QueryLimitException.class.getSimpleName(), results.get(2).getErrorType());
+
+        assertTrue(results.get(3).isSuccess());
+        assertEquals(search.count("诗人诗人", Cons.AUTHOR_DESC), results.get(3).getResult().getTotal());
+        assertTrue(results.get(3).getResult().getContent().isEmpty());
+
+        assertTrue(results.get(4).isSuccess());
+        assertEquals(COUNT, results.get(4).getResult().getTotal());
+    }
+
+    @Test
+    void batchLargerThanLimitIsRejected() {
+        List<SearchRequest> requests = Collections.nCopies(21, request("诗人"));
+
+        QueryLimitException e = assertThrows(QueryLimitException.class, () -> search.multiSearch(requests));
+        assertEquals(QueryLimitException.BATCH_SIZE, e.getReason());
+    }
+
+    @Test
+    void emptyBatchReturnsNothing() throws Exception {
+        assertTrue(search.multiSearch(List.of()).isEmpty());
+    }
+
+    private static SearchRequest request(String searchContent) {
+        return new SearchRequest()
+                .setSearchContent(searchContent)
+                .setSearchField(Cons.AUTHOR_DESC)
+                .setCacheable(false);
+    }
+
+    private static List<String> ids(PageResult<SearchResult<Author>> page) {
+        List<String> ids = new ArrayList<>(page.getContent().size());
+        for (SearchResult<Author> result : page.getContent()) {
+            ids.add(result.getId());
+        }
+        return ids;
+    }
+}
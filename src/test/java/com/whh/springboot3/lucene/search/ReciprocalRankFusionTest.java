@@ -0,0 +1,92 @@
+package com.whh.springboot3.lucene.search;
+
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @Author wanghonghui
+ * @Description 倒数排名融合：只按排名累加得分，两路都靠前的排在最前，分数相同按 docId
+ * @Date 2026/10/18 16:00
+ */
+class ReciprocalRankFusionTest {
+
+    @Test
+    void documentsRankedHighInBothListsComeFirst() {
+        TopDocs keyword = topDocs(1, 2, 3);
+        TopDocs vector = topDocs(3, 1, 4);
+
+        TopDocs fused = ReciprocalRankFusion.fuse(10, 60, keyword, vector);
+
+        assertArrayEquals(new int[]{1, 3, 2, 4}, docs(fused));
+        assertEquals(1f / 61 + 1f / 62, fused.scoreDocs[0].score, 1e-7f);
+        assertEquals(1f / 63 + 1f / 61, fused.scoreDocs[1].score, 1e-7f);
+        assertEquals(1f / 62, fused.scoreDocs[2].score, 1e-7f);
+        assertEquals(1f / 63, fused.scoreDocs[3].score, 1e-7f);
+        assertEquals(new TotalHits(4, TotalHits.Relation.EQUAL_TO), fused.totalHits);
+    }
+
+    /**
+     * 原始分数不参与融合，BM25 分数再高也只按排名计
+     */
+    @Test
+    void rawScoresAreIgnored() {
+        TopDocs keyword = new TopDocs(new TotalHits(2, TotalHits.Relation.EQUAL_TO),
+                new ScoreDoc[]{new ScoreDoc(7, 100f), new ScoreDoc(8, 0.1f)});
+        TopDocs vector = new TopDocs(new TotalHits(2, TotalHits.Relation.EQUAL_TO),
+                new ScoreDoc[]{new ScoreDoc(8, 0.99f), new ScoreDoc(9, 0.98f)});
+
+        assertArrayEquals(new int[]{8, 7, 9}, docs(ReciprocalRankFusion.fuse(10, 60, keyword, vector)));
+    }
+
+    @Test
+    void tiesAreOrderedByDocId() {
+        TopDocs fused = ReciprocalRankFusion.fuse(10, 60, topDocs(5, 6), topDocs(2, 1));
+
+        assertArrayEquals(new int[]{2, 5, 1, 6}, docs(fused));
+    }
+
+    /**
+     * 排名常数越小，靠前的排名权重越大：常数为 60 时两路都排第四的文档（2）排在最前，
+     * 常数为 1 时只在一路排第一的文档（1、5）排在它前面
+     */
+    @Test
+    void rankConstantControlsDecay() {
+        TopDocs keyword = topDocs(1, 3, 4, 2);
+        TopDocs vector = topDocs(5, 6, 7, 2);
+
+        assertArrayEquals(new int[]{2, 1, 5, 3, 6, 4, 7}, docs(ReciprocalRankFusion.fuse(10, 60, keyword, vector)));
+        assertArrayEquals(new int[]{1, 5, 2, 3, 6, 4, 7}, docs(ReciprocalRankFusion.fuse(10, 1, keyword, vector)));
+    }
+
+    @Test
+    void truncatesToTopNAndReportsIncompleteTotals() {
+        TopDocs keyword = new TopDocs(new TotalHits(100, TotalHits.Relation.EQUAL_TO),
+                new ScoreDoc[]{new ScoreDoc(1, 1f), new ScoreDoc(2, 1f)});
+
+        TopDocs fused = ReciprocalRankFusion.fuse(2, 60, keyword, null, topDocs(3, 4, 1));
+
+        assertArrayEquals(new int[]{1, 3}, docs(fused));
+        // 关键词一路只取了 100 条中的 2 条，并集大小只是下限
+        assertEquals(new TotalHits(4, TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO), fused.totalHits);
+    }
+
+    private static TopDocs topDocs(int... docs) {
+        ScoreDoc[] scoreDocs = new ScoreDoc[docs.length];
+        for (int i = 0; i < docs.length; i++) {
+            scoreDocs[i] = new ScoreDoc(docs[i], docs.length - i);
+        }
+        return new TopDocs(new TotalHits(docs.length, TotalHits.Relation.EQUAL_TO), scoreDocs);
+    }
+
+    private static int[] docs(TopDocs topDocs) {
+        int[] docs = new int[topDocs.scoreDocs.length];
+        for (int i = 0; i < docs.length; i++) {
+            docs[i] = topDocs.scoreDocs[i].doc;
+        }
+        return docs;
+    }
+}
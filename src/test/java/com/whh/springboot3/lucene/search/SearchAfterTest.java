@@ -0,0 +1,147 @@
+package com.whh.springboot3.lucene.search;
+
+import com.whh.springboot3.lucene.Cons;
+import com.whh.springboot3.lucene.LuceneTestData;
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.index.IndexWriterService;
+import com.whh.springboot3.lucene.schema.SchemaRegistry;
+import com.whh.springboot3.lucene.search.base.PageResult;
+import com.whh.springboot3.lucene.search.base.SearchRequest;
+import com.whh.springboot3.lucene.search.base.SearchResult;
+import org.apache.lucene.index.Term;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @Author wanghonghui
+ * @Description 游标翻页：按相关度和按字段排序、单分片和多分片，逐页取完和一次取完的结果完全一致，
+ * 中途刷新或合并也不影响
+ * @Date 2026/10/18 10:50
+ */
+class SearchAfterTest {
+
+    private static final int COUNT = 137;
+
+    @TempDir
+    Path dir;
+
+    /**
+     * 相关度相同的文档很多，多分片时翻页还要保持分片之间的先后顺序
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "1,,",
+            "2,,",
+            "1,name,true",
+            "2,name,true",
+            "2,name,false",
+            "3,id,false"
+    })
+    void cursorPagesMatchOneLargePage(int shards, String sortField, Boolean sortOrder) throws Exception {
+        LuceneProperties properties = LuceneTestData.properties(dir, shards);
+        try (IndexWriterService writerService = LuceneTestData.buildIndex(properties, LuceneTestData.authors(COUNT))) {
+            SearchTest search = new SearchTest(writerService.getSearcherManager(), null, null, null, properties);
+
+            List<String> expected = ids(search.search(request(sortField, sortOrder).setPageSize(COUNT)));
+            assertEquals(COUNT, expected.size());
+
+            List<String> paged = new ArrayList<>();
+            String after = null;
+            int pages = 0;
+            do {
+                PageResult<SearchResult<Author>> page = search.search(request(sortField, sortOrder).setPageSize(10).setAfter(after));
+                assertEquals(COUNT, page.getTotal());
+                paged.addAll(ids(page));
+                after = page.getAfter();
+                assertTrue(++pages <= COUNT / 10 + 2, "游标没有结束");
+            } while (after != null);
+
+            assertEquals(COUNT, new HashSet<>(paged).size(), "翻页结果有重复");
+            assertEquals(expected, paged);
+        }
+    }
+
+    /**
+     * 翻到一半时重写一部分文档（已经返回的、游标本身和还没返回的都有）再合并成一个段，所有 docId 都变了；
+     * 排序以主键结尾，游标里带着主键值，后面的页不重复也不遗漏。
+     * 合并清掉了删除的旧版本，词项统计和分数回到原来的值
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "1,,",
+            "2,,",
+            "1,name,true",
+            "2,name,false"
+    })
+    void cursorSurvivesUpdatesAndMerge(int shards, String sortField, Boolean sortOrder) throws Exception {
+        LuceneProperties properties = LuceneTestData.properties(dir, shards);
+        try (IndexWriterService writerService = LuceneTestData.buildIndex(properties, LuceneTestData.authors(COUNT))) {
+            SearchTest search = new SearchTest(writerService.getSearcherManager(), null, null, null, properties);
+
+            List<String> expected = ids(search.search(request(sortField, sortOrder).setPageSize(COUNT)));
+
+            List<String> paged = new ArrayList<>();
+            String after = null;
+            int pages = 0;
+            do {
+                PageResult<SearchResult<Author>> page = search.search(request(sortField, sortOrder).setPageSize(10).setAfter(after));
+                paged.addAll(ids(page));
+                after = page.getAfter();
+                if (++pages == 2) {
+                    for (int i = 1; i < COUNT; i += 2) {
+                        Author author = LuceneTestData.author(i);
+                        writerService.updateDocument(new Term(Cons.AUTHOR_ID, author.getId()),
+                                SchemaRegistry.of(Author.class).toDocument(author), IndexWriterService.Durability.NONE);
+                    }
+                    writerService.forceMerge(1);
+                    writerService.getSearcherManager().maybeRefreshBlocking();
+                }
+                assertTrue(pages <= COUNT / 10 + 2, "游标没有结束");
+            } while (after != null);
+
+            assertEquals(COUNT, new HashSet<>(paged).size(), "翻页结果有重复");
+            assertEquals(expected, paged);
+        }
+    }
+
+    @Test
+    void cursorFollowsItsOwnSort() throws Exception {
+        LuceneProperties properties = LuceneTestData.properties(dir, 2);
+        try (IndexWriterService writerService = LuceneTestData.buildIndex(properties, LuceneTestData.authors(COUNT))) {
+            SearchTest search = new SearchTest(writerService.getSearcherManager(), null, null, null, properties);
+
+            PageResult<SearchResult<Author>> first = search.search(request(Cons.AUTHOR_NAME, true).setPageSize(10));
+            PageResult<SearchResult<Author>> second = search.search(request(Cons.AUTHOR_NAME, true).setPageSize(10).setAfter(first.getAfter()));
+
+            assertEquals("a-0010", second.getContent().get(0).getId());
+            assertEquals("a-0019", second.getContent().get(9).getId());
+        }
+    }
+
+    private static SearchRequest request(String sortField, Boolean sortOrder) {
+        return new SearchRequest()
+                .setSearchContent("诗人")
+                .setSearchField(Cons.AUTHOR_DESC)
+                .setSortField(sortField)
+                .setSortOrder(sortOrder)
+                .setCacheable(false);
+    }
+
+    private static List<String> ids(PageResult<SearchResult<Author>> page) {
+        List<String> ids = new ArrayList<>(page.getContent().size());
+        for (SearchResult<Author> result : page.getContent()) {
+            ids.add(result.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,239 @@
+package com.whh.springboot3.lucene.search;
+
+import com.whh.springboot3.lucene.Cons;
+import com.whh.springboot3.lucene.LuceneTestData;
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.index.IndexWriterService;
+import com.whh.springboot3.lucene.schema.SchemaRegistry;
+import com.whh.springboot3.lucene.search.base.LuceneQueryBuilder;
+import com.whh.springboot3.lucene.search.base.PageResult;
+import com.whh.springboot3.lucene.search.base.SearchRequest;
+import com.whh.springboot3.lucene.search.base.SearchResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.queries.function.FunctionScoreQuery;
+import org.apache.lucene.search.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @Author wanghonghui
+ * @Description 单次查询的开销限制：超出时间预算返回部分结果，并发已满时拒绝，前缀展开超过上限时截断并计数
+ * @Date 2026/10/18 15:00
+ */
+class SearchLimitsTest {
+
+    private static final int COUNT = 1000;
+
+    @TempDir
+    Path dir;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private LuceneProperties properties;
+
+    private IndexWriterService writerService;
+
+    @BeforeEach
+    void buildIndex() throws IOException {
+        properties = LuceneTestData.properties(dir, 1);
+        writerService = LuceneTestData.buildIndex(properties, LuceneTestData.authors(COUNT));
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        if (writerService != null) {
+            writerService.close();
+        }
+    }
+
+    /**
+     * 每个文档打分都要 1 毫秒，全部收集需要 1 秒；时间预算只有 50 毫秒，返回超时前收集到的命中
+     */
+    @Test
+    void timeoutReturnsPartialResults() throws Exception {
+        SearchMetrics metrics = new SearchMetrics(registry, new LuceneProperties.SlowLog());
+        SlowSearch search = new SlowSearch(writerService.getSearcherManager(), metrics, properties);
+
+        PageResult<SearchResult<Author>> page = search.search(new SearchRequest()
+                .setSearchContent("诗人")
+                .setSearchField(Cons.AUTHOR_DESC)
+                .setPageSize(COUNT)
+                .setTimeoutMs(50)
+                .setCacheable(false));
+
+        assertTrue(page.isPartial());
+        assertTrue(page.getContent().size() < COUNT);
+        // 部分结果之后可能还有没收集到的命中，不返回游标
+        assertNull(page.getAfter());
+        assertEquals(1, registry.get("lucene.search.timeouts").tag("searcher", SlowSearch.class.getSimpleName()).counter().count());
+    }
+
+    /**
+     * 只允许一个搜索同时执行、不排队：许可被占用时直接拒绝，归还后恢复
+     */
+    @Test
+    void admissionRejectsWhenFull() throws Exception {
+        properties.getSearcher().getAdmission().setMaxConcurrent(1);
+        properties.getSearcher().getAdmission().setMaxQueued(0);
+        SearchAdmission admission = new SearchAdmission(properties.getSearcher().getAdmission(), registry);
+        SearchTest search = new SearchTest(writerService.getSearcherManager(), null, null, admission, properties);
+        SearchRequest request = new SearchRequest().setSearchContent("诗人").setSearchField(Cons.AUTHOR_DESC).setCacheable(false);
+
+        admission.acquire();
+        try {
+            SearchRejectedException e = assertThrows(SearchRejectedException.class, () -> search.search(request));
+            assertEquals("queue_full", e.getReason());
+        } finally {
+            admission.release();
+        }
+
+        assertEquals(COUNT, search.search(request).getTotal());
+        assertEquals(1, registry.get("lucene.search.admission.rejected").tag("reason", "queue_full").counter().count());
+    }
+
+    /**
+     * 排队的请求等不到许可时超时拒绝
+     */
+    @Test
+    void admissionRejectsAfterWaiting() throws Exception {
+        properties.getSearcher().getAdmission().setMaxConcurrent(1);
+        properties.getSearcher().getAdmission().setMaxQueued(1);
+        properties.getSearcher().getAdmission().setMaxWaitMs(20);
+        SearchAdmission admission = new SearchAdmission(properties.getSearcher().getAdmission(), registry);
+        SearchTest search = new SearchTest(writerService.getSearcherManager(), null, null, admission, properties);
+
+        admission.acquire();
+        try {
+            SearchRejectedException e = assertThrows(SearchRejectedException.class, () -> search.count("诗人", Cons.AUTHOR_DESC));
+            assertEquals("timeout", e.getReason());
+        } finally {
+            admission.release();
+        }
+    }
+
+    /**
+     * 姓名是“作者0000”到“作者0999”：匹配的词项超过上限时按字典序保留前面的并计数一次，正好等于上限时不算截断
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "作者,     5,  0,  5,  1",
+            "作者000,  5,  0,  5,  1",
+            "作者001,  10, 10, 10, 0",
+            "作者0012, 10, 12, 1,  0"
+    })
+    void expansionIsCappedAndCounted(String prefix, int maxExpansions, int first, int expectedHits, int truncated) throws IOException {
+        LuceneProperties.Limits limits = new LuceneProperties.Limits();
+        limits.setMaxExpansions(maxExpansions);
+        Query query = new LuceneQueryBuilder(SchemaRegistry.of(Author.class))
+                .limits(limits, registry, SearchTest.class)
+                .prefix(Cons.AUTHOR_NAME, prefix)
+                .queryBuilder
+                .build();
+
+        Set<String> expected = new HashSet<>();
+        for (int i = first; i < first + expectedHits; i++) {
+            expected.add(String.format("作者%04d", i));
+        }
+        assertEquals(expected, names(query));
+        Counter counter = registry.find("lucene.search.truncated").tag("searcher", SearchTest.class.getSimpleName()).counter();
+        assertEquals(truncated, counter == null ? 0 : (int) counter.count());
+    }
+
+    private Set<String> names(Query query) throws IOException {
+        IndexSearcherManager searcherManager = writerService.getSearcherManager();
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            Set<String> names = new HashSet<>();
+            for (ScoreDoc scoreDoc : searcher.search(query, COUNT).scoreDocs) {
+                names.add(searcher.storedFields().document(scoreDoc.doc).get(Cons.AUTHOR_NAME));
+            }
+            return names;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * 每个文档打分前等待 1 毫秒的搜索
+     */
+    private static class SlowSearch extends SearchTest {
+
+        SlowSearch(IndexSearcherManager searcherManager, SearchMetrics metrics, LuceneProperties properties) {
+            super(searcherManager, null, metrics, null, properties);
+        }
+
+        @Override
+        public Query getQuery(String searchContent, String searchField) throws Exception {
+            return new FunctionScoreQuery(super.getQuery(searchContent, searchField), new SlowValues());
+        }
+    }
+
+    private static final class SlowValues extends DoubleValuesSource {
+
+        @Override
+        public DoubleValues getValues(LeafReaderContext ctx, DoubleValues scores) {
+            return new DoubleValues() {
+                @Override
+                public double doubleValue() {
+                    return 1;
+                }
+
+                @Override
+                public boolean advanceExact(int doc) throws IOException {
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException();
+                    }
+                    return true;
+                }
+            };
+        }
+
+        @Override
+        public boolean needsScores() {
+            return false;
+        }
+
+        @Override
+        public DoubleValuesSource rewrite(IndexSearcher searcher) {
+            return this;
+        }
+
+        @Override
+        public boolean isCacheable(LeafReaderContext ctx) {
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return SlowValues.class.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof SlowValues;
+        }
+
+        @Override
+        public String toString() {
+            return "slow";
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.whh.springboot3.lucene.search;
+
+import com.whh.springboot3.lucene.Cons;
+import com.whh.springboot3.lucene.LuceneTestData;
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.index.IndexWriterService;
+import com.whh.springboot3.lucene.schema.SchemaRegistry;
+import com.whh.springboot3.lucene.search.base.PageResult;
+import com.whh.springboot3.lucene.search.base.SearchRequest;
+import com.whh.springboot3.lucene.search.base.SearchResult;
+import org.apache.lucene.index.Term;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @Author wanghonghui
+ * @Description 结果缓存：相同的请求命中缓存，reader 刷新后整体失效，返回的结果和缓存互不影响
+ * @Date 2026/10/18 15:40
+ */
+class SearchResultCacheTest {
+
+    private static final int COUNT = 50;
+
+    @TempDir
+    Path dir;
+
+    private IndexWriterService writerService;
+
+    private SearchResultCache resultCache;
+
+    private SearchTest search;
+
+    @BeforeEach
+    void buildIndex() throws IOException {
+        LuceneProperties properties = LuceneTestData.properties(dir, 1);
+        writerService = LuceneTestData.buildIndex(properties, LuceneTestData.authors(COUNT));
+        resultCache = new SearchResultCache(writerService.getSearcherManager(), properties.getSearcher().getResultCache());
+        search = new SearchTest(writerService.getSearcherManager(), resultCache, null, null, properties);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        if (writerService != null) {
+            writerService.close();
+        }
+    }
+
+    @Test
+    void refreshInvalidatesCachedResults() throws Exception {
+        PageResult<SearchResult<Author>> first = search.search(request());
+        PageResult<SearchResult<Author>> second = search.search(request());
+
+        assertEquals(1, resultCache.stats().hitCount());
+        assertEquals(COUNT, second.getTotal());
+        assertEquals(first.getContent().get(0).getId(), second.getContent().get(0).getId());
+
+        // 改掉分数最高的文档，它不再命中
+        String top = first.getContent().get(0).getId();
+        Author changed = new Author().setId(top).setName("改过的名字").setDesc("隐士");
+        writerService.updateDocument(new Term(Cons.AUTHOR_ID, top), SchemaRegistry.of(Author.class).toDocument(changed),
+                IndexWriterService.Durability.NONE);
+        writerService.getSearcherManager().maybeRefreshBlocking();
+
+        assertEquals(0, resultCache.size());
+        PageResult<SearchResult<Author>> refreshed = search.search(request());
+        assertEquals(COUNT - 1, refreshed.getTotal());
+        assertNotEquals(top, refreshed.getContent().get(0).getId());
+        assertEquals(1, resultCache.stats().hitCount());
+    }
+
+    /**
+     * 调用方修改返回的实体不影响缓存中的结果
+     */
+    @Test
+    void cachedResultsAreCopied() throws Exception {
+        PageResult<SearchResult<Author>> first = search.search(request());
+        String desc = first.getContent().get(0).getSource().getDesc();
+        first.getContent().get(0).getSource().setDesc("调用方改过的简介");
+
+        PageResult<SearchResult<Author>> second = search.search(request());
+
+        assertEquals(1, resultCache.stats().hitCount());
+        assertEquals(desc, second.getContent().get(0).getSource().getDesc());
+    }
+
+    private static SearchRequest request() {
+        return new SearchRequest()
+                .setSearchContent("诗人")
+                .setSearchField(Cons.AUTHOR_DESC)
+                .setPageSize(10);
+    }
+}
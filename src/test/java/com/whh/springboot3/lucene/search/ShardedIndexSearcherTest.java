@@ -0,0 +1,213 @@
+package com.whh.springboot3.lucene.search;
+
+import com.whh.springboot3.lucene.Cons;
+import com.whh.springboot3.lucene.LuceneTestData;
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.index.IndexWriterService;
+import com.whh.springboot3.lucene.schema.SchemaRegistry;
+import com.whh.springboot3.lucene.search.base.PageResult;
+import com.whh.springboot3.lucene.search.base.SearchRequest;
+import com.whh.springboot3.lucene.search.base.SearchResult;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @Author wanghonghui
+ * @Description 多分片搜索：用全局词项统计打分，分数和单个索引完全一致，合并后的顺序和单个索引相同；
+ * 游标按分片定位，不受其它分片文档数变化的影响
+ * @Date 2026/10/18 11:30
+ */
+class ShardedIndexSearcherTest {
+
+    private static final int COUNT = 200;
+
+    @TempDir
+    Path dir;
+
+    private IndexWriterService single;
+
+    private IndexWriterService sharded;
+
+    private SearchTest singleSearch;
+
+    private SearchTest shardedSearch;
+
+    @BeforeEach
+    void buildIndexes() throws IOException {
+        List<Author> authors = LuceneTestData.authors(COUNT);
+        LuceneProperties singleProperties = LuceneTestData.properties(dir.resolve("single"), 1);
+        LuceneProperties shardedProperties = LuceneTestData.properties(dir.resolve("sharded"), 3);
+        single = LuceneTestData.buildIndex(singleProperties, authors);
+        sharded = LuceneTestData.buildIndex(shardedProperties, authors);
+        singleSearch = new SearchTest(single.getSearcherManager(), null, null, null, singleProperties);
+        shardedSearch = new SearchTest(sharded.getSearcherManager(), null, null, null, shardedProperties);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        if (sharded != null) {
+            sharded.close();
+        }
+        if (single != null) {
+            single.close();
+        }
+    }
+
+    /**
+     * 各分片的文档数和词频分布不同，只用分片自己的统计时同一个文档的分数会不一样
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"诗人", "诗人诗人", "唐代第1"})
+    void scoresMatchSingleIndex(String searchContent) throws Exception {
+        PageResult<SearchResult<Author>> expected = singleSearch.search(request(searchContent, null));
+        PageResult<SearchResult<Author>> actual = shardedSearch.search(request(searchContent, null));
+
+        assertTrue(expected.getTotal() > 0);
+        assertEquals(expected.getTotal(), actual.getTotal());
+        Map<String, Float> expectedScores = scores(expected);
+        Map<String, Float> actualScores = scores(actual);
+        assertEquals(expectedScores.keySet(), actualScores.keySet());
+        for (Map.Entry<String, Float> entry : expectedScores.entrySet()) {
+            float score = entry.getValue();
+            assertEquals(score, actualScores.get(entry.getKey()), Math.max(1, score) * 1e-5f, entry.getKey());
+        }
+    }
+
+    @Test
+    void mergedHitsAreOrderedByScore() throws Exception {
+        List<SearchResult<Author>> hits = shardedSearch.search(request("诗人", null)).getContent();
+
+        assertEquals(COUNT, hits.size());
+        for (int i = 1; i < hits.size(); i++) {
+            assertTrue(hits.get(i - 1).getScore() >= hits.get(i).getScore(), "第 " + i + " 条分数比前一条高");
+        }
+        // 分数最高的是“诗人”出现 4 次的文档
+        assertTrue(hits.get(0).getSource().getDesc().startsWith("诗人".repeat(4)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void fieldSortMatchesSingleIndex(boolean ascending) throws Exception {
+        List<String> expected = ids(singleSearch.search(request("诗人", ascending)));
+        List<String> actual = ids(shardedSearch.search(request("诗人", ascending)));
+
+        assertEquals(COUNT, actual.size());
+        assertEquals(expected, actual);
+        List<String> sorted = new ArrayList<>(actual);
+        sorted.sort(ascending ? Comparator.naturalOrder() : Comparator.reverseOrder());
+        // 姓名和主键的编号一致，按姓名排序即按主键排序
+        assertEquals(sorted, actual);
+    }
+
+    @Test
+    void countMatchesSingleIndex() throws Exception {
+        assertEquals(singleSearch.count("诗人诗人", Cons.AUTHOR_DESC), shardedSearch.count("诗人诗人", Cons.AUTHOR_DESC));
+    }
+
+    /**
+     * 翻页过程中前面的分片增加了文档，各分片在全局 docId 中的起始位置都变了；
+     * 游标记录的是分片序号和分片内 docId，相关度相同的文档仍然不重复、不遗漏
+     */
+    @Test
+    void cursorSurvivesShardGrowth() throws Exception {
+        Set<String> paged = new HashSet<>();
+        String after = null;
+        int pages = 0;
+        do {
+            PageResult<SearchResult<Author>> page = shardedSearch.search(request("诗人", null).setPageSize(7).setAfter(after));
+            for (SearchResult<Author> result : page.getContent()) {
+                assertTrue(paged.add(result.getId()), "翻页结果有重复: " + result.getId());
+            }
+            after = page.getAfter();
+            if (++pages == 2) {
+                // 没有 desc 的文档不改变 desc 字段的统计，已返回文档的分数不变
+                for (int i = 0; i < 30; i++) {
+                    Author author = new Author().setId(String.format("x-%04d", i)).setName(String.format("新作者%04d", i));
+                    sharded.addDocument(SchemaRegistry.of(Author.class).toDocument(author), IndexWriterService.Durability.NONE);
+                }
+                sharded.getSearcherManager().maybeRefreshBlocking();
+            }
+            assertTrue(pages <= COUNT / 7 + 2, "游标没有结束");
+        } while (after != null);
+
+        assertEquals(COUNT, paged.size());
+    }
+
+    /**
+     * 顺序执行的视图只是分片内不再按 slice 并行，结果和共享的搜索器相同
+     */
+    @Test
+    void sequentialViewDropsSliceExecutor() throws Exception {
+        LuceneProperties properties = LuceneTestData.properties(dir.resolve("concurrent"), 3);
+        properties.getSearcher().getConcurrency().setExecutor(ConcurrentSearcherFactory.ExecutorType.FORK_JOIN);
+        properties.getSearcher().getConcurrency().setParallelism(2);
+        try (IndexWriterService writerService = LuceneTestData.buildIndex(properties, LuceneTestData.authors(COUNT))) {
+            IndexSearcherManager searcherManager = writerService.getSearcherManager();
+            IndexSearcher acquired = searcherManager.acquire();
+            try {
+                ShardedIndexSearcher shared = assertInstanceOf(ShardedIndexSearcher.class, acquired);
+                ShardedIndexSearcher sequential = assertInstanceOf(ShardedIndexSearcher.class, searcherManager.sequential(acquired));
+                ShardedIndexSearcher concurrentView = assertInstanceOf(ShardedIndexSearcher.class, searcherManager.view(acquired, true));
+                ShardedIndexSearcher sequentialView = assertInstanceOf(ShardedIndexSearcher.class, searcherManager.view(acquired, false));
+                assertTrue(shared.isConcurrent());
+                assertTrue(concurrentView.isConcurrent());
+                assertFalse(sequential.isConcurrent());
+                assertFalse(sequentialView.isConcurrent());
+
+                Query query = new TermQuery(new Term(Cons.AUTHOR_DESC, "诗"));
+                TopDocs expected = shared.searchShards(query, null, null, COUNT, Integer.MAX_VALUE);
+                TopDocs actual = sequential.searchShards(query, null, null, COUNT, Integer.MAX_VALUE);
+                assertEquals(expected.totalHits, actual.totalHits);
+                assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+                for (int i = 0; i < expected.scoreDocs.length; i++) {
+                    assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+                    assertEquals(expected.scoreDocs[i].score, actual.scoreDocs[i].score);
+                }
+            } finally {
+                searcherManager.release(acquired);
+            }
+        }
+    }
+
+    /**
+     * sortOrder 为 null 时按相关度排序，否则按姓名排序
+     */
+    private static SearchRequest request(String searchContent, Boolean sortOrder) {
+        return new SearchRequest()
+                .setSearchContent(searchContent)
+                .setSearchField(Cons.AUTHOR_DESC)
+                .setSortField(sortOrder == null ? null : Cons.AUTHOR_NAME)
+                .setSortOrder(sortOrder)
+                .setPageSize(COUNT)
+                .setCacheable(false);
+    }
+
+    private static Map<String, Float> scores(PageResult<SearchResult<Author>> page) {
+        Map<String, Float> scores = new HashMap<>();
+        for (SearchResult<Author> result : page.getContent()) {
+            scores.put(result.getId(), result.getScore());
+        }
+        return scores;
+    }
+
+    private static List<String> ids(PageResult<SearchResult<Author>> page) {
+        List<String> ids = new ArrayList<>(page.getContent().size());
+        for (SearchResult<Author> result : page.getContent()) {
+            ids.add(result.getId());
+        }
+        return ids;
+    }
+}
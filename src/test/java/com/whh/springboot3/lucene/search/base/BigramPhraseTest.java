@@ -0,0 +1,136 @@
+package com.whh.springboot3.lucene.search.base;
+
+import com.whh.springboot3.lucene.Cons;
+import com.whh.springboot3.lucene.LuceneTestData;
+import com.whh.springboot3.lucene.config.LuceneProperties;
+import com.whh.springboot3.lucene.entity.Author;
+import com.whh.springboot3.lucene.index.IndexWriterService;
+import com.whh.springboot3.lucene.schema.EntitySchema;
+import com.whh.springboot3.lucene.schema.SchemaRegistry;
+import com.whh.springboot3.lucene.search.IndexSearcherManager;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @Author wanghonghui
+ * @Description 二元分词短语查询：一个字、两个字和更长的输入，命中和源字段上的单字短语完全一致
+ * @Date 2026/10/18 14:20
+ */
+class BigramPhraseTest {
+
+    private static final List<String> DESCS = List.of(
+            "床前明月光，疑是地上霜",
+            "举头望明月，低头思故乡",
+            "明日复明日，明日何其多",
+            "月落乌啼霜满天",
+            "春眠不觉晓，处处闻啼鸟",
+            "明",
+            "月 明 星 稀",
+            "Li Bai 字太白，号青莲居士",
+            "白日依山尽，黄河入海流");
+
+    @TempDir
+    Path dir;
+
+    private final EntitySchema<Author> schema = SchemaRegistry.of(Author.class);
+
+    private IndexWriterService writerService;
+
+    @BeforeEach
+    void buildIndex() throws IOException {
+        List<Author> authors = new ArrayList<>();
+        for (int i = 0; i < DESCS.size(); i++) {
+            authors.add(new Author().setId("d-" + i).setName("诗人" + DESCS.get(i).charAt(0)).setDesc(DESCS.get(i)));
+        }
+        writerService = LuceneTestData.buildIndex(LuceneTestData.properties(dir, 1), authors);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        if (writerService != null) {
+            writerService.close();
+        }
+    }
+
+    /**
+     * 源字段用 StandardAnalyzer 按字切分，单字短语是命中的标准答案
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"明", "月", "霜", "稀", "明月", "明日", "日何", "明月光", "低头思故乡", "啼", "太白", "bai", "白", "海流", "故"})
+    void matchesSingleCharacterPhrase(String text) throws IOException {
+        Set<String> expected = hits(new LuceneQueryBuilder(schema).analyzedPhrase(Cons.AUTHOR_DESC, text).queryBuilder.build());
+        Set<String> actual = hits(new LuceneQueryBuilder(schema).bigramPhrase(Cons.AUTHOR_DESC, text).queryBuilder.build());
+
+        assertFalse(expected.isEmpty(), text);
+        assertEquals(expected, actual, text);
+    }
+
+    /**
+     * 一个字只查单字词项，不展开二元词项，也就不受展开限制和前导通配符限制的影响
+     */
+    @Test
+    void singleCharacterIsOneTermQuery() {
+        BooleanQuery query = new LuceneQueryBuilder(schema)
+                .limits(new LuceneProperties.Limits())
+                .bigramPhrase(Cons.AUTHOR_DESC, "明")
+                .queryBuilder
+                .build();
+
+        assertEquals(1, query.clauses().size());
+        assertEquals(new TermQuery(new Term(schema.bigramField(Cons.AUTHOR_DESC), "明")),
+                query.clauses().get(0).query());
+    }
+
+    /**
+     * name 是不分词的字段，源字段上查不到名字中间的字，二元分词字段可以
+     */
+    @Test
+    void singleCharacterMatchesInsideKeywordField() throws IOException {
+        Set<String> hits = hits(new LuceneQueryBuilder(schema).bigramPhrase(Cons.AUTHOR_NAME, "人").queryBuilder.build());
+
+        assertEquals(DESCS.size(), hits.size());
+    }
+
+    @Test
+    void longerPhraseKeepsOnlyBigrams() {
+        BooleanQuery query = new LuceneQueryBuilder(schema)
+                .bigramPhrase(Cons.AUTHOR_DESC, "明月光")
+                .queryBuilder
+                .build();
+
+        PhraseQuery phrase = assertInstanceOf(PhraseQuery.class, query.clauses().get(0).query());
+        assertEquals(2, phrase.getTerms().length);
+        assertEquals("明月", phrase.getTerms()[0].text());
+        assertEquals("月光", phrase.getTerms()[1].text());
+        assertArrayEquals(new int[]{0, 1}, phrase.getPositions());
+    }
+
+    private Set<String> hits(Query query) throws IOException {
+        IndexSearcherManager searcherManager = writerService.getSearcherManager();
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            Set<String> ids = new HashSet<>();
+            for (ScoreDoc scoreDoc : searcher.search(query, 100).scoreDocs) {
+                ids.add(searcher.storedFields().document(scoreDoc.doc).get(Cons.AUTHOR_ID));
+            }
+            return ids;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+}